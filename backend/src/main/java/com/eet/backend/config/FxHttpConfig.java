@@ -0,0 +1,29 @@
+package com.eet.backend.config;
+
+import com.eet.backend.services.fx.CircuitBreaker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+public class FxHttpConfig {
+
+    // Cliente compartido por los proveedores FX: reutiliza conexiones y nunca espera sin límite
+    @Bean
+    public HttpClient fxHttpClient(@Value("${fx.http.connect-timeout-ms:1000}") long connectTimeoutMs) {
+        return HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    // Compartido por todas las cargas de tipos: si los proveedores caen, dejamos de llamarles un rato
+    @Bean
+    public CircuitBreaker fxCircuitBreaker(@Value("${fx.breaker.failure-threshold:3}") int failureThreshold,
+                                           @Value("${fx.breaker.open-ms:30000}") long openMs) {
+        return new CircuitBreaker(failureThreshold, openMs);
+    }
+}
@@ -1,5 +1,9 @@
 package com.eet.backend.controllers;
 
+import com.eet.backend.services.ExchangeRateService;
+import com.eet.backend.services.fx.SingleFlight;
+import com.eet.backend.services.stats.StatsCache;
+import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -9,8 +13,12 @@ import java.util.Map;
 
 @RestController
 @RequestMapping("/api/diag") // pasa por el filtro JWT
+@RequiredArgsConstructor
 public class DiagnosticsController {
 
+    private final ExchangeRateService exchangeRateService;
+    private final StatsCache statsCache;
+
     @GetMapping("/whoami")
     public Map<String,Object> who(@AuthenticationPrincipal Object principal) {
         var a = org.springframework.security.core.context.SecurityContextHolder
@@ -22,5 +30,44 @@ public class DiagnosticsController {
                 "authenticated", a != null && a.isAuthenticated()
         );
     }
-}
 
+    @GetMapping("/fx-cache")
+    public Map<String,Object> fxCache() {
+        var s = exchangeRateService.getCacheStats();
+        return Map.of(
+                "hits", s.hits(),
+                "misses", s.misses(),
+                "hitRatio", s.hitRatio(),
+                "evictions", s.evictions(),
+                "cachedDates", s.cachedDates(),
+                "maxDates", s.maxDates()
+        );
+    }
+
+    @GetMapping("/fx-fetch")
+    public Map<String,Object> fxFetch() {
+        return Map.of(
+                "pair", fetchStats(exchangeRateService.getFetchStats()),
+                "pivotRow", fetchStats(exchangeRateService.getPivotFetchStats()),
+                "hedging", exchangeRateService.getHedgeStats(),
+                "breaker", exchangeRateService.getBreakerStats(),
+                "staleRates", exchangeRateService.getStaleRateCount()
+        );
+    }
+
+    @GetMapping("/stats-cache")
+    public StatsCache.Stats statsCache() {
+        return statsCache.stats();
+    }
+
+    private Map<String,Object> fetchStats(SingleFlight.Stats s) {
+        return Map.of(
+                "executions", s.executions(),
+                "coalescedWaiters", s.coalescedWaiters(),
+                "failures", s.failures(),
+                "inFlight", s.inFlight(),
+                "avgFetchMillis", s.avgFetchMillis(),
+                "maxFetchMillis", s.maxFetchMillis()
+        );
+    }
+}
@@ -1,16 +1,24 @@
 package com.eet.backend.controllers;
 
 import com.eet.backend.dto.*;
-import com.eet.backend.model.ExchangeRate;
+import com.eet.backend.repositories.ExchangeRateQueryRepository;
+import com.eet.backend.services.ExchangeRateBackfillService;
 import com.eet.backend.services.ExchangeRateService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/exchange-rates")
@@ -18,44 +26,111 @@ import java.util.stream.Collectors;
 public class ExchangeRateController {
 
     private final ExchangeRateService exchangeRateService;
+    private final ExchangeRateBackfillService backfillService;
+    private final ObjectMapper objectMapper;
 
+    // La carga histórica es una operación de mantenimiento: fuera de la API salvo que se active
+    @Value("${fx.backfill.endpoint-enabled:false}") boolean backfillEndpointEnabled;
+
+    private static final int MAX_BATCH = 1000;
+    private static final int DEFAULT_PAGE = 500;
+    private static final int MAX_PAGE = 5000;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * Histórico de tipos filtrado y paginado por keyset (?from=&to=&fromCurrency=&toCurrency=&cursor=&limit=).
+     * La siguiente página va en la cabecera X-Next-Cursor; el cuerpo sigue siendo un array de ExchangeRateDto.
+     * ETag = parámetros de la petición + última inserción en la tabla; Last-Modified = esa inserción.
+     * Si no ha cambiado, 304 sin consultar filas.
+     */
     @GetMapping
-    public List<ExchangeRateDto> getAllRates() {
-        return exchangeRateService.getAll().stream()
-                .map(this::toDto)
-                .collect(Collectors.toList());
+    public ResponseEntity<StreamingResponseBody> getAllRates(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String fromCurrency,
+            @RequestParam(required = false) String toCurrency,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE) int limit,
+            WebRequest webRequest) {
+
+        ExchangeRateQueryRepository.Filter filter = new ExchangeRateQueryRepository.Filter(from, to, fromCurrency, toCurrency);
+        int size = Math.max(1, Math.min(limit, MAX_PAGE));
+
+        // La misma versión de la tabla con otros filtros, cursor o tamaño es otra respuesta
+        ExchangeRateQueryRepository.Version version = exchangeRateService.getRatesVersion();
+        long lastModified = version.lastInsert() == null ? -1 : version.lastInsert().toEpochMilli();
+        String params = filter + "|" + (cursor == null ? "" : cursor.trim()) + "|" + size;
+        String etag = "\"fx-" + Integer.toHexString(params.hashCode()) + "-" + lastModified + "\"";
+        if (webRequest.checkNotModified(etag, lastModified)) {
+            return null; // 304; checkNotModified ya ha escrito ETag y Last-Modified
+        }
+
+        ExchangeRateService.RatePage page;
+        try {
+            page = exchangeRateService.getRatesPage(filter, cursor, size);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.maxAge(5, TimeUnit.MINUTES).cachePrivate().mustRevalidate());
+        if (page.nextCursor() != null) response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+
+        List<ExchangeRateDto> rates = page.rates();
+        return response.body(out -> {
+            // Se escribe fila a fila en la salida, sin montar el JSON completo en memoria
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartArray();
+                for (ExchangeRateDto r : rates) {
+                    json.writeStartObject();
+                    json.writeStringField("fromCurrency", r.getFromCurrency());
+                    json.writeStringField("toCurrency", r.getToCurrency());
+                    json.writeNumberField("rate", r.getRate());
+                    json.writeStringField("date", r.getDate().toString());
+                    json.writeEndObject();
+                }
+                json.writeEndArray();
+            }
+        });
     }
 
     @PostMapping("/convert")
-    public ResponseEntity<CurrencyConversionResponseDto> convert(@RequestBody CurrencyConversionRequestDto request) {
-        BigDecimal converted = exchangeRateService.convert(
-                request.getAmount(),
-                request.getFromCurrency(),
-                request.getToCurrency());
-
-        BigDecimal rate = exchangeRateService.getRate(
-                request.getFromCurrency(),
-                request.getToCurrency(),
-                LocalDate.now()
-        ).map(ExchangeRate::getRate).orElse(BigDecimal.ONE); // fallback por seguridad
-
-        return ResponseEntity.ok(
-                CurrencyConversionResponseDto.builder()
-                        .originalAmount(request.getAmount())
-                        .fromCurrency(request.getFromCurrency().toUpperCase())
-                        .toCurrency(request.getToCurrency().toUpperCase())
-                        .convertedAmount(converted)
-                        .exchangeRate(rate)
-                        .build()
-        );
+    public ResponseEntity<?> convert(@RequestBody CurrencyConversionRequestDto request) {
+        // Una sola resolución del tipo: el importe convertido y el tipo devuelto salen de la misma lectura
+        try {
+            return ResponseEntity.ok(exchangeRateService.convertAll(List.of(request)).get(0));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    // Varias conversiones en una petición; cada par (y fecha) distinto se resuelve una vez
+    @PostMapping("/convert/batch")
+    public ResponseEntity<?> convertBatch(@RequestBody List<CurrencyConversionRequestDto> requests) {
+        if (requests.size() > MAX_BATCH) {
+            return ResponseEntity.badRequest().body("Máximo " + MAX_BATCH + " conversiones por petición");
+        }
+        try {
+            return ResponseEntity.ok(exchangeRateService.convertAll(requests));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
-    private ExchangeRateDto toDto(ExchangeRate rate) {
-        return ExchangeRateDto.builder()
-                .fromCurrency(rate.getFromCurrency())
-                .toCurrency(rate.getToCurrency())
-                .rate(rate.getRate())
-                .date(rate.getDate())
-                .build();
+    // Carga histórica de un rango (una petición de serie por base). Ej: ?from=2024-01-01&to=2024-12-31
+    // Desactivado por defecto (404); el job diario ya rellena los huecos recientes
+    @PostMapping("/backfill")
+    public ResponseEntity<?> backfill(@RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                      @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                      @RequestParam(required = false) List<String> bases) {
+        if (!backfillEndpointEnabled) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            return ResponseEntity.ok(backfillService.backfill(from, to, bases));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 }
@@ -1,12 +1,19 @@
 package com.eet.backend.controllers;
 
 import com.eet.backend.dto.stats.*;
+import com.eet.backend.model.User;
+import com.eet.backend.services.BalanceLedgerService;
+import com.eet.backend.services.MonthlyRollupService;
 import com.eet.backend.services.StatsService;
+import com.eet.backend.services.stats.StatsCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -15,14 +22,19 @@ import java.util.UUID;
 public class StatsController {
 
     private final StatsService statsService;
+    private final MonthlyRollupService monthlyRollupService;
+    private final BalanceLedgerService balanceLedgerService;
+    private final StatsCache statsCache;
 
     @GetMapping("/monthly-summary")
     public ResponseEntity<MonthlySummaryDto> getMonthlySummary(
             @RequestParam UUID userId,
+            @AuthenticationPrincipal User caller,
             @RequestParam(required = false) Integer month,
             @RequestParam(required = false) Integer year
     ) {
-        MonthlySummaryDto summary = statsService.getMonthlySummary(userId, month, year);
+        MonthlySummaryDto summary = statsCache.get(userId, currencyOf(caller, userId), "monthly-summary", month + "/" + year,
+                () -> statsService.getMonthlySummary(userId, month, year));
         return ResponseEntity.ok(summary);
     }
 
@@ -30,44 +42,103 @@ public class StatsController {
     @GetMapping("/monthly-evolution")
     public ResponseEntity<List<MonthlyEvolutionEntryDto>> getMonthlyEvolution(
             @RequestParam UUID userId,
+            @AuthenticationPrincipal User caller,
             @RequestParam(defaultValue = "6") int monthsBack
     ) {
-        List<MonthlyEvolutionEntryDto> data = statsService.getMonthlyEvolution(userId, monthsBack);
+        List<MonthlyEvolutionEntryDto> data = statsCache.get(userId, currencyOf(caller, userId), "monthly-evolution", String.valueOf(monthsBack),
+                () -> statsService.getMonthlyEvolution(userId, monthsBack));
         return ResponseEntity.ok(data);
     }
 
     @GetMapping("/income-vs-expense")
     public ResponseEntity<IncomeVsExpenseDto> getIncomeVsExpense(
             @RequestParam UUID userId,
+            @AuthenticationPrincipal User caller,
             @RequestParam int month,
             @RequestParam int year
     ) {
-        return ResponseEntity.ok(statsService.getIncomeVsExpense(userId, month, year));
+        return ResponseEntity.ok(statsCache.get(userId, currencyOf(caller, userId), "income-vs-expense", month + "/" + year,
+                () -> statsService.getIncomeVsExpense(userId, month, year)));
     }
 
     @GetMapping("/monthly-comparison")
     public ResponseEntity<List<MonthlyComparisonDto>> getMonthlyComparison(
             @RequestParam UUID userId,
+            @AuthenticationPrincipal User caller,
             @RequestParam(defaultValue = "6") int monthsBack
     ) {
-        return ResponseEntity.ok(statsService.getMonthlyComparison(userId, monthsBack));
+        return ResponseEntity.ok(statsCache.get(userId, currencyOf(caller, userId), "monthly-comparison", String.valueOf(monthsBack),
+                () -> statsService.getMonthlyComparison(userId, monthsBack)));
     }
 
     @GetMapping("/trip-spending")
     public ResponseEntity<List<TripSpendingDto>> getTripSpending(
-            @RequestParam UUID userId
+            @RequestParam UUID userId,
+            @AuthenticationPrincipal User caller
     ) {
-        return ResponseEntity.ok(statsService.getTripSpendingByUser(userId));
+        return ResponseEntity.ok(statsCache.get(userId, currencyOf(caller, userId), "trip-spending", "",
+                () -> statsService.getTripSpendingByUser(userId)));
     }
 
     @GetMapping("/annual-summary")
     public ResponseEntity<AnnualSummaryDto> getAnnualSummary(
             @RequestParam UUID userId,
+            @AuthenticationPrincipal User caller,
             @RequestParam int year
     ) {
-        return ResponseEntity.ok(statsService.getAnnualSummary(userId, year));
+        return ResponseEntity.ok(statsCache.get(userId, currencyOf(caller, userId), "annual-summary", String.valueOf(year),
+                () -> statsService.getAnnualSummary(userId, year)));
     }
 
-}
+    @GetMapping("/bundle")
+    public ResponseEntity<StatsBundleDto> getBundle(
+            @RequestParam UUID userId,
+            @AuthenticationPrincipal User caller,
+            @RequestParam(required = false) Integer month,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(defaultValue = "6") int evolutionMonths,
+            @RequestParam(defaultValue = "6") int comparisonMonths
+    ) {
+        String params = month + "/" + year + "/" + evolutionMonths + "/" + comparisonMonths;
+        return ResponseEntity.ok(statsCache.get(userId, currencyOf(caller, userId), "bundle", params,
+                () -> statsService.getBundle(userId, month, year, evolutionMonths, comparisonMonths)));
+    }
+
+    // El usuario autenticado ya viene cargado por JwtAuthFilter: su moneda preferida no cuesta otra consulta.
+    // Para otro usuario no hay moneda y la caché se salta.
+    private static String currencyOf(User caller, UUID userId) {
+        return caller != null && userId.equals(caller.getUserId()) ? caller.getPreferredCurrency() : null;
+    }
 
+    // ==================== ROLLUPS ====================
+    // Mantenimiento: solo sobre los datos propios
 
+    @PostMapping("/rollups/rebuild")
+    @PreAuthorize("@authz.isSelf(#userId)")
+    public ResponseEntity<Map<String, Object>> rebuildRollups(@RequestParam UUID userId) {
+        int buckets = monthlyRollupService.rebuild(userId);
+        return ResponseEntity.ok(Map.of("userId", userId, "buckets", buckets));
+    }
+
+    @GetMapping("/rollups/check")
+    @PreAuthorize("@authz.isSelf(#userId)")
+    public ResponseEntity<RollupCheckDto> checkRollups(@RequestParam UUID userId) {
+        return ResponseEntity.ok(monthlyRollupService.check(userId));
+    }
+
+    // ==================== LEDGER DE BALANCES ====================
+    // Mantenimiento: solo sobre los datos propios
+
+    @PostMapping("/ledger/rebuild")
+    @PreAuthorize("@authz.isSelf(#userId)")
+    public ResponseEntity<Map<String, Object>> rebuildLedger(@RequestParam UUID userId) {
+        int rows = balanceLedgerService.rebuild(userId);
+        return ResponseEntity.ok(Map.of("userId", userId, "currencies", rows));
+    }
+
+    @GetMapping("/ledger/check")
+    @PreAuthorize("@authz.isSelf(#userId)")
+    public ResponseEntity<LedgerCheckDto> checkLedger(@RequestParam UUID userId) {
+        return ResponseEntity.ok(balanceLedgerService.check(userId));
+    }
+}
@@ -2,9 +2,11 @@ package com.eet.backend.controllers;
 
 import com.eet.backend.dto.*;
 import com.eet.backend.model.*;
+import com.eet.backend.repositories.TransactionQueryRepository;
 import com.eet.backend.services.*;
 //import com.eet.backend.service.ExchangeRateInitializer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -12,8 +14,9 @@ import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -23,9 +26,16 @@ public class TransactionController {
 
     private final TransactionService transactionService;
     private final UserService userService;
-    private final BudgetService budgetService;
+    private final DashboardService dashboardService;
     private final ExchangeRateService exchangeRateService;
     private final RecurringTransactionService recurringTransactionService;
+    private final RecurringCatchUpService recurringCatchUpService;
+
+    private static final int DEFAULT_PAGE = 50;
+    private static final int MAX_PAGE = 500;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    // true mientras se generan en segundo plano las ocurrencias atrasadas de las recurrentes
+    private static final String RECURRING_PENDING_HEADER = "X-Recurring-Pending";
 
     // private final ExchangeRateInitializer exchangeRateInitializer;
 
@@ -39,7 +49,7 @@ public class TransactionController {
     @GetMapping
     public ResponseEntity<List<TransactionDto>> getAllTransactions(@AuthenticationPrincipal UserDetails userDetails) {
         User user = getAuthenticatedUser(userDetails);
-        recurringTransactionService.processDueTransactionsForUser(user); // <-- NUEVO
+        boolean pending = recurringCatchUpService.requestCatchUp(user);
 
         List<Transaction> transactions = transactionService.getAllByUserId(user.getUserId());
 
@@ -47,7 +57,52 @@ public class TransactionController {
                 .map(tx -> toDto(tx, user))
                 .toList();
 
-        return ResponseEntity.ok(dtos);
+        return ResponseEntity.ok()
+                .header(RECURRING_PENDING_HEADER, String.valueOf(pending))
+                .body(dtos);
+    }
+
+    /**
+     * Listado paginado por keyset (?type=&categoryId=&tripId=&currency=&from=&to=&minAmount=&maxAmount=&cursor=&limit=),
+     * de la más reciente a la más antigua. La siguiente página va en la cabecera X-Next-Cursor.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<List<TransactionDto>> getTransactionPage(
+            @AuthenticationPrincipal UserDetails userDetails,
+            @RequestParam(required = false) TransactionType type,
+            @RequestParam(required = false) UUID categoryId,
+            @RequestParam(required = false) UUID tripId,
+            @RequestParam(required = false) String currency,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "" + DEFAULT_PAGE) int limit) {
+        User user = getAuthenticatedUser(userDetails);
+        boolean pending = (cursor == null || cursor.isBlank())
+                ? recurringCatchUpService.requestCatchUp(user) // solo al pedir la primera página
+                : recurringCatchUpService.isPending(user.getUserId());
+
+        TransactionService.TransactionPage page;
+        try {
+            page = transactionService.getPage(user.getUserId(),
+                    new TransactionQueryRepository.Filter(type, categoryId, tripId, currency, from, to, minAmount, maxAmount),
+                    cursor, Math.max(1, Math.min(limit, MAX_PAGE)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Un tipo por moneda para toda la página
+        Map<String, ExchangeRate> rates = new HashMap<>();
+        List<TransactionDto> dtos = page.transactions().stream()
+                .map(tx -> toDto(tx, user, rates.computeIfAbsent(tx.getCurrency(), c -> rateFor(c, user))))
+                .toList();
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header(RECURRING_PENDING_HEADER, String.valueOf(pending));
+        if (page.nextCursor() != null) response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+        return response.body(dtos);
     }
 
     @GetMapping("/{id}")
@@ -109,36 +164,8 @@ public class TransactionController {
 
     @GetMapping("/dashboard")
     public ResponseEntity<DashboardDto> getDashboardData(@AuthenticationPrincipal UserDetails userDetails) {
-        User user = getAuthenticatedUser(userDetails);
-
-        BigDecimal balance = transactionService.getBalance(user);
-        BigDecimal currentExpenses = transactionService.getCurrentMonthExpenses(user);
-       // exchangeRateInitializer.ensureRatesFrom(user.getPreferredCurrency());
-
-
-        Optional<Budget> monthlyBudget = budgetService.getMonthlyBudget(
-                user.getUserId(),
-                LocalDate.now().getMonthValue(),
-                LocalDate.now().getYear()
-        );
-
-        BigDecimal maxSpending = monthlyBudget.map(Budget::getMaxSpending).orElse(null);
-        BigDecimal availableBudget = (maxSpending != null) ? maxSpending.subtract(currentExpenses) : null;
-
-        List<TransactionDto> recentDtos = transactionService.getRecentByUser(user, 5)
-                .stream()
-                .map(tx -> toDto(tx, user))
-                .toList();
-
-        DashboardDto dto = new DashboardDto(
-                balance,
-                currentExpenses,
-                maxSpending,
-                availableBudget,
-                recentDtos
-        );
-
-        return ResponseEntity.ok(dto);
+        // Usuario, presupuesto, balances y recientes en un plan fijo de lecturas
+        return ResponseEntity.ok(dashboardService.getDashboard(userDetails.getUsername()));
     }
 
 
@@ -167,36 +194,19 @@ public class TransactionController {
 
     // ==================== DTO CONVERTER ====================
     private TransactionDto toDto(Transaction tx, User user) {
-        ExchangeRate rate = exchangeRateService.getRate(
-                tx.getCurrency(), user.getPreferredCurrency()
-        ).orElseThrow(() -> new RuntimeException("Missing exchange rate for: "
-                + tx.getCurrency() + " → " + user.getPreferredCurrency()));
-
-        BigDecimal convertedAmount = tx.getAmount().multiply(rate.getRate());
-        boolean isRecurring = tx instanceof RecurringTransaction;
-        RecurringTransaction rtx = isRecurring ? (RecurringTransaction) tx : null;
-
-        return TransactionDto.builder()
-                .transactionId(tx.getTransactionId())
-                .type(tx.getType() != null ? tx.getType().name() : null)
-                .amount(tx.getAmount())
-                .currency(tx.getCurrency())
-                .convertedAmount(convertedAmount)
-                .convertedCurrency(user.getPreferredCurrency())
-                .categoryId(tx.getCategory() != null ? tx.getCategory().getCategoryId() : null)
-                .categoryName(tx.getCategory() != null ? tx.getCategory().getName() : null)
-                .categoryEmoji(tx.getCategory() != null ? tx.getCategory().getEmoji() : null)
-                .date(tx.getDate())
-                .description(tx.getDescription())
-                .tripId(tx.getTrip() != null ? tx.getTrip().getTripId() : null)
-                .tripName(tx.getTrip() != null ? tx.getTrip().getName() : null)
-                .recurring(isRecurring)
-                .recurrencePattern(isRecurring ? rtx.getRecurrencePattern().name() : null)
-                .nextExecution(isRecurring ? rtx.getNextExecution() : null)
-                .build();
+        return toDto(tx, user, rateFor(tx.getCurrency(), user));
     }
 
+    private ExchangeRate rateFor(String currency, User user) {
+        return exchangeRateService.getRate(
+                currency, user.getPreferredCurrency()
+        ).orElseThrow(() -> new RuntimeException("Missing exchange rate for: "
+                + currency + " → " + user.getPreferredCurrency()));
+    }
 
+    private TransactionDto toDto(Transaction tx, User user, ExchangeRate rate) {
+        return TransactionDto.from(tx, rate, user.getPreferredCurrency());
+    }
 
     private Transaction toEntity(TransactionRequestDto dto, User user) {
         Transaction.TransactionBuilder builder = Transaction.builder()
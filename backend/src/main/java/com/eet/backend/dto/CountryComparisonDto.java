@@ -12,4 +12,9 @@ public class CountryComparisonDto {
     private BigDecimal userAverage;
     private BigDecimal countryAverage;
     private String currency;
+    // Ambas son distribuciones de medias mensuales por categoría: countryBands, las de los usuarios
+    // del país en los meses cerrados; userBands, las del propio usuario en todos sus meses cerrados
+    // (histórico completo, no solo el mes pedido, cuya media es userAverage)
+    private QuantileBandsDto countryBands;
+    private QuantileBandsDto userBands;
 }
@@ -3,6 +3,7 @@ package com.eet.backend.dto;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Getter
 @Setter
@@ -13,4 +14,5 @@ public class CurrencyConversionRequestDto {
     private BigDecimal amount;
     private String fromCurrency;
     private String toCurrency;
+    private LocalDate date; // opcional: tipo de ese día (por defecto, hoy)
 }
@@ -3,6 +3,7 @@ package com.eet.backend.dto;
 import lombok.*;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 
 @Getter
 @Setter
@@ -15,4 +16,6 @@ public class CurrencyConversionResponseDto {
     private String toCurrency;
     private BigDecimal convertedAmount;
     private BigDecimal exchangeRate;
+    private LocalDate rateDate;  // fecha del tipo usado (anterior a hoy si es stale)
+    private boolean stale;
 }
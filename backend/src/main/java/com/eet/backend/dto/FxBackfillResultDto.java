@@ -0,0 +1,21 @@
+package com.eet.backend.dto;
+
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class FxBackfillResultDto {
+    private List<String> bases;
+    private LocalDate from;
+    private LocalDate to;
+    private int publishedDays;  // días con datos del proveedor (suma de todas las bases)
+    private int rows;           // filas enviadas en batch, incluidas las rellenadas hacia delante
+    private int inserted;       // filas nuevas; las que ya existían se ignoran (ON CONFLICT)
+    private long elapsedMillis;
+}
@@ -0,0 +1,20 @@
+package com.eet.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+// Bandas de una distribución de gasto (p10..p90) y cuántas muestras la forman
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuantileBandsDto {
+    private BigDecimal p10;
+    private BigDecimal p25;
+    private BigDecimal median;
+    private BigDecimal p75;
+    private BigDecimal p90;
+    private long sampleSize;
+}
@@ -1,5 +1,9 @@
 package com.eet.backend.dto;
 
+import com.eet.backend.model.ExchangeRate;
+import com.eet.backend.model.Money;
+import com.eet.backend.model.RecurringTransaction;
+import com.eet.backend.model.Transaction;
 import lombok.*;
 
 import java.math.BigDecimal;
@@ -27,7 +31,33 @@ public class TransactionDto {
     private String tripName; // nuevo campo opcional
     private BigDecimal convertedAmount; // cantidad en moneda preferida del usuario
     private String convertedCurrency;   // ISO de la moneda preferida
+    private Boolean rateStale;          // true si se convirtió con un tipo antiguo (proveedores FX caídos)
 
+    /** DTO de una transacción con el tipo de cambio ya resuelto a {@code convertedCurrency}. */
+    public static TransactionDto from(Transaction tx, ExchangeRate rate, String convertedCurrency) {
+        boolean isRecurring = tx instanceof RecurringTransaction;
+        RecurringTransaction rtx = isRecurring ? (RecurringTransaction) tx : null;
 
+        return TransactionDto.builder()
+                .transactionId(tx.getTransactionId())
+                .type(tx.getType() != null ? tx.getType().name() : null)
+                .amount(tx.getAmount())
+                .currency(tx.getCurrency())
+                // Misma escala fija que ExchangeRateService.convert
+                .convertedAmount(Money.of(tx.getAmount()).times(rate.getRate()).toBigDecimal())
+                .convertedCurrency(convertedCurrency)
+                .rateStale(rate.isStale())
+                .categoryId(tx.getCategory() != null ? tx.getCategory().getCategoryId() : null)
+                .categoryName(tx.getCategory() != null ? tx.getCategory().getName() : null)
+                .categoryEmoji(tx.getCategory() != null ? tx.getCategory().getEmoji() : null)
+                .date(tx.getDate())
+                .description(tx.getDescription())
+                .tripId(tx.getTrip() != null ? tx.getTrip().getTripId() : null)
+                .tripName(tx.getTrip() != null ? tx.getTrip().getName() : null)
+                .recurring(isRecurring)
+                .recurrencePattern(isRecurring ? rtx.getRecurrencePattern().name() : null)
+                .nextExecution(isRecurring ? rtx.getNextExecution() : null)
+                .build();
+    }
 }
 
@@ -0,0 +1,30 @@
+package com.eet.backend.dto.stats;
+
+import com.eet.backend.model.TransactionType;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Fila agregada en BD: suma de importes por (tipo, categoría, moneda) sin convertir.
+ * La conversión a la moneda preferida se hace una vez por fila, no por transacción.
+ * {@code period} (año * 100 + mes) solo viene informado en las consultas por meses.
+ */
+@Getter
+@AllArgsConstructor
+public class CategoryCurrencyTotal {
+    private TransactionType type;
+    private UUID categoryId;
+    private String categoryName;
+    private String categoryEmoji;
+    private String currency;
+    private BigDecimal total;
+    private long count;
+    private Integer period;
+
+    public CategoryCurrencyTotal(TransactionType type, UUID categoryId, String categoryName, String categoryEmoji,
+                                 String currency, BigDecimal total, long count) {
+        this(type, categoryId, categoryName, categoryEmoji, currency, total, count, null);
+    }
+}
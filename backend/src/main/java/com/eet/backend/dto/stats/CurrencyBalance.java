@@ -0,0 +1,15 @@
+package com.eet.backend.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/** Balance acumulado y gasto del mes de un usuario en una moneda, sin convertir. */
+@Getter
+@AllArgsConstructor
+public class CurrencyBalance {
+    private String currency;
+    private BigDecimal balance;
+    private BigDecimal monthExpense;
+}
@@ -0,0 +1,16 @@
+package com.eet.backend.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/** Usuario autenticado y su presupuesto del mes, leídos juntos para el dashboard. */
+@Getter
+@AllArgsConstructor
+public class DashboardHeader {
+    private UUID userId;
+    private String preferredCurrency;
+    private BigDecimal maxSpending;
+}
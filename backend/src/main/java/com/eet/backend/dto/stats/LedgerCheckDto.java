@@ -0,0 +1,19 @@
+package com.eet.backend.dto.stats;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerCheckDto {
+    private UUID userId; // null en la conciliación de todos los usuarios
+    private int rows;
+    private boolean consistent;
+    private int repaired;
+    private List<LedgerMismatchDto> mismatches;
+}
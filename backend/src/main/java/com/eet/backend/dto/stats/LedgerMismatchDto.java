@@ -0,0 +1,22 @@
+package com.eet.backend.dto.stats;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LedgerMismatchDto {
+    private UUID userId;
+    private String currency;
+    private BigDecimal expectedIncome;
+    private BigDecimal ledgerIncome;
+    private BigDecimal expectedExpense;
+    private BigDecimal ledgerExpense;
+    private long expectedCount;
+    private long ledgerCount;
+}
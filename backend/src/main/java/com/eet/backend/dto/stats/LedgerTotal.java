@@ -0,0 +1,21 @@
+package com.eet.backend.dto.stats;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Ingresos y gastos por (usuario, moneda) calculados sobre las transacciones en bruto;
+ * sirve para reconstruir y conciliar la tabla balance_ledger.
+ */
+@Getter
+@AllArgsConstructor
+public class LedgerTotal {
+    private UUID userId;
+    private String currency;
+    private BigDecimal income;
+    private BigDecimal expense;
+    private Long count;
+}
@@ -0,0 +1,23 @@
+package com.eet.backend.dto.stats;
+
+import com.eet.backend.model.TransactionType;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Agregado mensual calculado sobre las transacciones en bruto; sirve para reconstruir
+ * y para comprobar la tabla monthly_rollups.
+ */
+@Getter
+@AllArgsConstructor
+public class RollupBucket {
+    private UUID userId;
+    private Integer period;
+    private TransactionType type;
+    private UUID categoryId;
+    private String currency;
+    private BigDecimal total;
+    private Long count;
+}
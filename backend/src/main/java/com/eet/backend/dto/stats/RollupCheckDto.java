@@ -0,0 +1,18 @@
+package com.eet.backend.dto.stats;
+
+import lombok.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupCheckDto {
+    private UUID userId;
+    private int buckets;
+    private boolean consistent;
+    private List<RollupMismatchDto> mismatches;
+}
@@ -0,0 +1,23 @@
+package com.eet.backend.dto.stats;
+
+import com.eet.backend.model.TransactionType;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RollupMismatchDto {
+    private int period;
+    private TransactionType type;
+    private UUID categoryId;
+    private String currency;
+    private BigDecimal expectedTotal;
+    private BigDecimal rollupTotal;
+    private long expectedCount;
+    private long rollupCount;
+}
@@ -0,0 +1,22 @@
+package com.eet.backend.dto.stats;
+
+import lombok.*;
+
+import java.util.List;
+
+/**
+ * Todo lo que pinta la página de estadísticas en una sola respuesta (/api/stats/bundle).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StatsBundleDto {
+    private MonthlySummaryDto monthlySummary;
+    private List<MonthlyEvolutionEntryDto> monthlyEvolution;
+    private IncomeVsExpenseDto incomeVsExpense;
+    private List<MonthlyComparisonDto> monthlyComparison;
+    private AnnualSummaryDto annualSummary;
+    private List<TripSpendingDto> tripSpending;
+}
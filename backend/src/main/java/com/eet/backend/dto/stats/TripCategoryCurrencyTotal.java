@@ -0,0 +1,20 @@
+package com.eet.backend.dto.stats;
+
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Gasto agregado en BD por (viaje, categoría, moneda), sin convertir.
+ */
+@Getter
+@AllArgsConstructor
+public class TripCategoryCurrencyTotal {
+    private UUID tripId;
+    private UUID categoryId;
+    private String categoryName;
+    private String currency;
+    private BigDecimal total;
+    private long count;
+}
@@ -0,0 +1,50 @@
+package com.eet.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Ingresos y gastos acumulados de un usuario en una moneda, sin convertir. Lo mantiene
+ * {@code BalanceLedgerService} en la misma transacción que cada alta/baja/edición, así que
+ * el balance se lee con una fila por moneda en lugar de recorrer todo el historial.
+ */
+@Entity
+@Table(name = "balance_ledger",
+        uniqueConstraints = @UniqueConstraint(name = "uk_balance_ledger_user_currency",
+                columnNames = {"user_id", "currency"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceLedger {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "ledger_id", updatable = false, nullable = false)
+    private UUID ledgerId;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private String currency;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal income;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal expense;
+
+    @Column(name = "tx_count", nullable = false)
+    private long txCount;
+
+    public BigDecimal net() {
+        return income.subtract(expense);
+    }
+}
@@ -1,5 +1,6 @@
 package com.eet.backend.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
@@ -27,5 +28,9 @@ public class CountrySpendingStats {
 
     private String currency;
 
+    // QuantileSketch (t-digest) de las medias de usuario; el cierre de mes le fusiona las nuevas
+    @Column(length = 16384)
+    private byte[] sketch;
+
 }
 
@@ -37,6 +37,10 @@ public class ExchangeRate {
     @Column(nullable = false)
     private LocalDate date;
 
+    // No se persiste: true si es el último tipo guardado porque los proveedores no respondieron
+    @Transient
+    private boolean stale;
+
     public BigDecimal convert(BigDecimal amount) {
         return amount.multiply(rate);
     }
@@ -0,0 +1,124 @@
+package com.eet.backend.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Importe en punto fijo: un {@code long} en diezmilésimas (la misma escala 4 que
+ * {@code numeric(19,4)} en BD). Pensado para los bucles de agregación: sumar no crea
+ * objetos intermedios de {@link BigDecimal} y la escala no crece al multiplicar.
+ *
+ * <p>Reglas de redondeo: sumas y restas son exactas (desbordar lanza
+ * {@link ArithmeticException}); {@link #of(BigDecimal)} y {@link #times(BigDecimal)}
+ * redondean a 4 decimales con HALF_EVEN. El paso a {@link BigDecimal} solo se hace al
+ * construir el DTO.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 4;
+    public static final Money ZERO = new Money(0);
+
+    private static final long[] POW10 = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L, 10_000_000_000_000_000L,
+            100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+
+    private final long minor;
+
+    private Money(long minor) {
+        this.minor = minor;
+    }
+
+    public static Money ofMinor(long minor) {
+        return minor == 0 ? ZERO : new Money(minor);
+    }
+
+    public static Money of(BigDecimal amount) {
+        if (amount == null) return ZERO;
+        if (amount.scale() > SCALE) amount = amount.setScale(SCALE, RoundingMode.HALF_EVEN);
+        // movePointRight deja escala 0: longValueExact lee el valor compacto sin crear un BigInteger
+        return ofMinor(amount.movePointRight(SCALE).longValueExact());
+    }
+
+    public long minor() {
+        return minor;
+    }
+
+    public Money plus(Money other) {
+        return other.minor == 0 ? this : ofMinor(Math.addExact(minor, other.minor));
+    }
+
+    public Money minus(Money other) {
+        return other.minor == 0 ? this : ofMinor(Math.subtractExact(minor, other.minor));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minor));
+    }
+
+    /** Multiplica por un tipo de cambio (u otro factor) y redondea a 4 decimales con HALF_EVEN. */
+    public Money times(BigDecimal factor) {
+        if (minor == 0) return ZERO;
+        int scale = factor.scale();
+        if (scale >= 0 && scale < POW10.length && factor.precision() < 19) {
+            long f = factor.movePointRight(scale).longValueExact();
+            long hi = Math.multiplyHigh(minor, f);
+            long lo = minor * f;
+            // Sin desbordamiento si la parte alta es solo la extensión de signo de la baja
+            if ((hi == 0 && lo >= 0) || (hi == -1 && lo < 0)) {
+                return ofMinor(divideHalfEven(lo, POW10[scale]));
+            }
+        }
+        // Caso raro (factor enorme o escala negativa): exacto vía BigDecimal
+        return of(BigDecimal.valueOf(minor, SCALE).multiply(factor));
+    }
+
+    // Redondeo HALF_EVEN de a / b con b > 0
+    private static long divideHalfEven(long a, long b) {
+        if (b == 1) return a;
+        long q = Math.floorDiv(a, b);
+        long r = Math.floorMod(a, b); // 0 <= r < b
+        long twice = r - (b - r);     // signo de 2r - b sin desbordar
+        if (twice > 0 || (twice == 0 && (q & 1) != 0)) q++;
+        return q;
+    }
+
+    public int signum() {
+        return Long.signum(minor);
+    }
+
+    public boolean isZero() {
+        return minor == 0;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minor, SCALE);
+    }
+
+    /** Media de {@code count} importes ya sumados, redondeada como en el resto del proyecto. */
+    public BigDecimal average(long count, int scale, RoundingMode rounding) {
+        return toBigDecimal().divide(BigDecimal.valueOf(count), scale, rounding);
+    }
+
+    @Override
+    public int compareTo(Money o) {
+        return Long.compare(minor, o.minor);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money m && m.minor == minor;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minor);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.eet.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.UUID;
+
+/**
+ * Total mensual precalculado por (usuario, año-mes, tipo, categoría, moneda).
+ * Lo mantiene {@code MonthlyRollupService} en la misma transacción que la escritura
+ * de la transacción; los importes van sin convertir, como en la tabla original.
+ */
+@Entity
+@Table(name = "monthly_rollups",
+        uniqueConstraints = @UniqueConstraint(name = "uk_monthly_rollups_bucket",
+                columnNames = {"user_id", "period", "type", "category_id", "currency"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MonthlyRollup {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @Column(name = "rollup_id", updatable = false, nullable = false)
+    private UUID rollupId;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    // año * 100 + mes (202403): ordena y filtra por rangos con un simple BETWEEN
+    @Column(nullable = false)
+    private int period;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TransactionType type;
+
+    @Column(name = "category_id", nullable = false)
+    private UUID categoryId;
+
+    @Column(nullable = false)
+    private String currency;
+
+    @Column(nullable = false, precision = 19, scale = 4)
+    private BigDecimal total;
+
+    @Column(name = "tx_count", nullable = false)
+    private long txCount;
+
+    public static int period(YearMonth ym) {
+        return ym.getYear() * 100 + ym.getMonthValue();
+    }
+
+    public static int period(LocalDate date) {
+        return period(YearMonth.from(date));
+    }
+}
@@ -11,7 +11,17 @@ import java.util.UUID;
 
 @Entity
 @Inheritance(strategy = InheritanceType.JOINED)
-@Table(name = "transactions")
+// Índices del listado por keyset (TransactionQueryRepository): usuario, filtro de igualdad y (date, id)
+@Table(name = "transactions", indexes = {
+        @Index(name = "ix_transactions_user_date", columnList = "user_id, date, transaction_id"),
+        @Index(name = "ix_transactions_user_type_date", columnList = "user_id, type, date, transaction_id"),
+        @Index(name = "ix_transactions_user_category_date", columnList = "user_id, category_id, date, transaction_id"),
+        @Index(name = "ix_transactions_user_trip_date", columnList = "user_id, trip_id, date, transaction_id"),
+        @Index(name = "ix_transactions_user_currency_date", columnList = "user_id, currency, date, transaction_id")
+}, uniqueConstraints = {
+        // Clave de idempotencia de las ocurrencias generadas por una recurrente
+        @UniqueConstraint(name = "uk_transactions_recurring_occurrence", columnNames = {"recurring_source_id", "occurrence_date"})
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -55,5 +65,14 @@ public class Transaction {
     @JoinColumn(name = "category_id", nullable = false)
     private Category category;
 
+    // Solo en ocurrencias generadas: plantilla recurrente de origen y fecha programada
+    @Column(name = "recurring_source_id")
+    @JsonIgnore
+    private UUID recurringSourceId;
+
+    @Column(name = "occurrence_date")
+    @JsonIgnore
+    private LocalDate occurrenceDate;
+
 }
 
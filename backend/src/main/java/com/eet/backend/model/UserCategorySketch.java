@@ -0,0 +1,41 @@
+package com.eet.backend.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+/**
+ * Distribución de las medias mensuales de gasto de un usuario en una categoría de serie, en
+ * la moneda de su país: la misma magnitud que el sketch de {@code CountrySpendingStats}. Cada
+ * cierre de mes le añade un valor y no se separa por periodo, así que cubre todo el histórico.
+ */
+@Entity
+@Table(name = "user_category_sketches",
+        uniqueConstraints = @UniqueConstraint(name = "uk_user_category_sketches",
+                columnNames = {"user_id", "category", "currency"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UserCategorySketch {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    @Column(nullable = false)
+    private String category;
+
+    @Column(nullable = false)
+    private String currency;
+
+    @Column(length = 16384)
+    private byte[] sketch;
+
+    private long sampleSize;
+}
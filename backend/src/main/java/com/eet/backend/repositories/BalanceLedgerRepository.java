@@ -0,0 +1,39 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.dto.stats.CurrencyBalance;
+import com.eet.backend.model.BalanceLedger;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface BalanceLedgerRepository extends JpaRepository<BalanceLedger, UUID>, BalanceLedgerRepositoryCustom {
+
+    List<BalanceLedger> findByUserId(UUID userId);
+
+    // Filas del usuario con SELECT ... FOR UPDATE: los upserts de sus escrituras esperan al commit
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT l FROM BalanceLedger l WHERE l.userId = :userId")
+    List<BalanceLedger> lockByUserId(@Param("userId") UUID userId);
+
+    // Balance por moneda y gasto del mes (del rollup) en una lectura; toda moneda del rollup tiene fila aquí
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.CurrencyBalance(
+                       l.currency, l.income - l.expense, COALESCE(SUM(r.total), 0))
+            FROM BalanceLedger l
+            LEFT JOIN MonthlyRollup r ON r.userId = l.userId AND r.currency = l.currency
+                 AND r.period = :period AND r.type = com.eet.backend.model.TransactionType.EXPENSE
+            WHERE l.userId = :userId
+            GROUP BY l.currency, l.income, l.expense
+            """)
+    List<CurrencyBalance> findCurrencyBalances(@Param("userId") UUID userId, @Param("period") int period);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM BalanceLedger l WHERE l.userId = :userId")
+    int deleteByUserId(@Param("userId") UUID userId);
+}
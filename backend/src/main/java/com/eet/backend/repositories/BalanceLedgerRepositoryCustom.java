@@ -0,0 +1,10 @@
+package com.eet.backend.repositories;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface BalanceLedgerRepositoryCustom {
+
+    /** Suma ingresos/gastos/recuento a la fila (usuario, moneda), creándola si no existe, en una sola sentencia. */
+    void upsertLedger(UUID userId, String currency, BigDecimal income, BigDecimal expense, long count);
+}
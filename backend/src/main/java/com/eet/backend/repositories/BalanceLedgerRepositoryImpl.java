@@ -0,0 +1,35 @@
+package com.eet.backend.repositories;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+class BalanceLedgerRepositoryImpl implements BalanceLedgerRepositoryCustom {
+
+    // Atómico frente a otra primera escritura concurrente de la misma (usuario, moneda)
+    private static final String UPSERT = """
+            INSERT INTO balance_ledger (ledger_id, user_id, currency, income, expense, tx_count)
+            VALUES (?1, ?2, ?3, ?4, ?5, ?6)
+            ON CONFLICT (user_id, currency)
+            DO UPDATE SET income = balance_ledger.income + EXCLUDED.income,
+                          expense = balance_ledger.expense + EXCLUDED.expense,
+                          tx_count = balance_ledger.tx_count + EXCLUDED.tx_count
+            """;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public void upsertLedger(UUID userId, String currency, BigDecimal income, BigDecimal expense, long count) {
+        entityManager.createNativeQuery(UPSERT)
+                .setParameter(1, UUID.randomUUID())
+                .setParameter(2, userId)
+                .setParameter(3, currency)
+                .setParameter(4, income)
+                .setParameter(5, expense)
+                .setParameter(6, count)
+                .executeUpdate();
+    }
+}
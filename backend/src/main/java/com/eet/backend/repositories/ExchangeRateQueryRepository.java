@@ -0,0 +1,112 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.dto.ExchangeRateDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Lecturas de exchange_rates que no necesitan entidades: páginas por keyset sobre
+ * (date, from_currency, to_currency), que es la clave única de la tabla, y la "versión"
+ * de la tabla para ETag/Last-Modified. Las filas solo se insertan (nunca se editan ni
+ * borran), así que la última inserción basta como versión de cualquier rango.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExchangeRateQueryRepository {
+
+    private final JdbcTemplate jdbc;
+
+    // MAX sobre ix_exchange_rates_created_at: lee un extremo del índice, no recorre la tabla
+    public Version version() {
+        return jdbc.queryForObject("SELECT MAX(created_at) FROM exchange_rates",
+                (rs, i) -> {
+                    Timestamp last = rs.getTimestamp(1);
+                    return new Version(last == null ? null : last.toInstant());
+                });
+    }
+
+    /** Hasta {@code limit} filas posteriores al cursor (exclusivo), en orden de la clave. */
+    public List<ExchangeRateDto> page(Filter filter, Cursor after, int limit) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT from_currency, to_currency, rate, date FROM exchange_rates WHERE 1=1");
+        List<Object> args = new ArrayList<>();
+        if (filter.from() != null) {
+            sql.append(" AND date >= ?");
+            args.add(Date.valueOf(filter.from()));
+        }
+        if (filter.to() != null) {
+            sql.append(" AND date <= ?");
+            args.add(Date.valueOf(filter.to()));
+        }
+        if (filter.fromCurrency() != null) {
+            sql.append(" AND from_currency = ?");
+            args.add(filter.fromCurrency());
+        }
+        if (filter.toCurrency() != null) {
+            sql.append(" AND to_currency = ?");
+            args.add(filter.toCurrency());
+        }
+        if (after != null) {
+            sql.append(" AND (date > ? OR (date = ? AND (from_currency > ? OR (from_currency = ? AND to_currency > ?))))");
+            Date d = Date.valueOf(after.date());
+            args.add(d);
+            args.add(d);
+            args.add(after.fromCurrency());
+            args.add(after.fromCurrency());
+            args.add(after.toCurrency());
+        }
+        sql.append(" ORDER BY date, from_currency, to_currency LIMIT ?");
+        args.add(limit);
+
+        return jdbc.query(sql.toString(), (rs, i) -> ExchangeRateDto.builder()
+                .fromCurrency(rs.getString(1))
+                .toCurrency(rs.getString(2))
+                .rate(rs.getBigDecimal(3))
+                .date(rs.getDate(4).toLocalDate())
+                .build(), args.toArray());
+    }
+
+    public record Version(Instant lastInsert) {
+    }
+
+    public record Filter(LocalDate from, LocalDate to, String fromCurrency, String toCurrency) {
+        public Filter {
+            fromCurrency = fromCurrency == null || fromCurrency.isBlank() ? null : fromCurrency.trim().toUpperCase(Locale.ROOT);
+            toCurrency = toCurrency == null || toCurrency.isBlank() ? null : toCurrency.trim().toUpperCase(Locale.ROOT);
+        }
+    }
+
+    /** Cursor opaco para el cliente: "2024-03-15:EUR:USD" (la última fila de la página anterior). */
+    public record Cursor(LocalDate date, String fromCurrency, String toCurrency) {
+
+        public static Cursor of(ExchangeRateDto last) {
+            return new Cursor(last.getDate(), last.getFromCurrency(), last.getToCurrency());
+        }
+
+        public static Cursor parse(String token) {
+            if (token == null || token.isBlank()) return null;
+            String[] parts = token.split(":");
+            if (parts.length != 3) throw new IllegalArgumentException("Cursor no válido: " + token);
+            try {
+                return new Cursor(LocalDate.parse(parts[0]), parts[1].toUpperCase(Locale.ROOT), parts[2].toUpperCase(Locale.ROOT));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Cursor no válido: " + token);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return date + ":" + fromCurrency + ":" + toCurrency;
+        }
+    }
+}
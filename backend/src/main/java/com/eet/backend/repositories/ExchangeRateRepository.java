@@ -3,6 +3,7 @@ package com.eet.backend.repositories;
 import com.eet.backend.model.ExchangeRate;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import java.util.UUID;
@@ -11,5 +12,9 @@ public interface ExchangeRateRepository extends JpaRepository<ExchangeRate, UUID
 
     Optional<ExchangeRate> findByFromCurrencyAndToCurrencyAndDate(String fromCurrency, String toCurrency, LocalDate date);
 
+    List<ExchangeRate> findByFromCurrencyAndDate(String fromCurrency, LocalDate date);
 
+    // Último tipo guardado para el par (servido como "stale" si los proveedores no responden)
+    Optional<ExchangeRate> findFirstByFromCurrencyAndToCurrencyAndDateLessThanEqualOrderByDateDesc(
+            String fromCurrency, String toCurrency, LocalDate date);
 }
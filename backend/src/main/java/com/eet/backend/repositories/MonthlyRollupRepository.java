@@ -0,0 +1,54 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.dto.stats.CategoryCurrencyTotal;
+import com.eet.backend.model.MonthlyRollup;
+import com.eet.backend.model.TransactionType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.UUID;
+
+public interface MonthlyRollupRepository extends JpaRepository<MonthlyRollup, UUID>, MonthlyRollupRepositoryCustom {
+
+    // Mismo contrato que TransactionRepository.sumByTypeCategoryCurrency, pero por meses completos
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.CategoryCurrencyTotal(
+                       r.type, r.categoryId, c.name, c.emoji, r.currency, SUM(r.total), SUM(r.txCount))
+            FROM MonthlyRollup r LEFT JOIN Category c ON c.categoryId = r.categoryId
+            WHERE r.userId = :userId AND r.period BETWEEN :fromPeriod AND :toPeriod
+            GROUP BY r.type, r.categoryId, c.name, c.emoji, r.currency
+            HAVING SUM(r.txCount) > 0
+            """)
+    List<CategoryCurrencyTotal> sumByTypeCategoryCurrency(@Param("userId") UUID userId,
+                                                          @Param("fromPeriod") int fromPeriod,
+                                                          @Param("toPeriod") int toPeriod);
+
+    // Igual, pero separando cada mes: una sola lectura para series de N meses
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.CategoryCurrencyTotal(
+                       r.type, r.categoryId, c.name, c.emoji, r.currency, r.total, r.txCount, r.period)
+            FROM MonthlyRollup r LEFT JOIN Category c ON c.categoryId = r.categoryId
+            WHERE r.userId = :userId AND r.period BETWEEN :fromPeriod AND :toPeriod AND r.txCount > 0
+            """)
+    List<CategoryCurrencyTotal> findMonthlyTotals(@Param("userId") UUID userId,
+                                                  @Param("fromPeriod") int fromPeriod,
+                                                  @Param("toPeriod") int toPeriod);
+
+    @Query("""
+            SELECT r.currency, SUM(r.total) FROM MonthlyRollup r
+            WHERE r.userId = :userId AND r.period = :period AND r.type = :type
+            GROUP BY r.currency
+            """)
+    List<Object[]> sumByCurrency(@Param("userId") UUID userId,
+                                 @Param("period") int period,
+                                 @Param("type") TransactionType type);
+
+    List<MonthlyRollup> findByUserId(UUID userId);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("DELETE FROM MonthlyRollup r WHERE r.userId = :userId")
+    int deleteByUserId(@Param("userId") UUID userId);
+}
@@ -0,0 +1,13 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.model.TransactionType;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public interface MonthlyRollupRepositoryCustom {
+
+    /** Suma {@code amount}/{@code count} al cubo, creándolo si no existe, en una sola sentencia. */
+    void upsertBucket(UUID userId, int period, TransactionType type, UUID categoryId, String currency,
+                      BigDecimal amount, long count);
+}
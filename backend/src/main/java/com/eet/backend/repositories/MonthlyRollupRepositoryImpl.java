@@ -0,0 +1,38 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.model.TransactionType;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+@RequiredArgsConstructor
+class MonthlyRollupRepositoryImpl implements MonthlyRollupRepositoryCustom {
+
+    // Atómico frente a otra primera escritura concurrente del mismo cubo
+    private static final String UPSERT = """
+            INSERT INTO monthly_rollups (rollup_id, user_id, period, type, category_id, currency, total, tx_count)
+            VALUES (?1, ?2, ?3, ?4, ?5, ?6, ?7, ?8)
+            ON CONFLICT (user_id, period, type, category_id, currency)
+            DO UPDATE SET total = monthly_rollups.total + EXCLUDED.total,
+                          tx_count = monthly_rollups.tx_count + EXCLUDED.tx_count
+            """;
+
+    private final EntityManager entityManager;
+
+    @Override
+    public void upsertBucket(UUID userId, int period, TransactionType type, UUID categoryId, String currency,
+                             BigDecimal amount, long count) {
+        entityManager.createNativeQuery(UPSERT)
+                .setParameter(1, UUID.randomUUID())
+                .setParameter(2, userId)
+                .setParameter(3, period)
+                .setParameter(4, type.name())
+                .setParameter(5, categoryId)
+                .setParameter(6, currency)
+                .setParameter(7, amount)
+                .setParameter(8, count)
+                .executeUpdate();
+    }
+}
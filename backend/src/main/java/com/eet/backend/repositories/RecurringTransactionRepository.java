@@ -3,6 +3,8 @@ package com.eet.backend.repositories;
 import com.eet.backend.model.RecurringTransaction;
 import com.eet.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -12,4 +14,14 @@ public interface RecurringTransactionRepository extends JpaRepository<RecurringT
     List<RecurringTransaction> findByActiveTrueAndNextExecutionLessThanEqual(LocalDate date);
     List<RecurringTransaction> findByUserAndActiveTrueAndNextExecutionLessThanEqual(User user, LocalDate date);
 
+    @Query("SELECT DISTINCT r.user FROM RecurringTransaction r WHERE r.active = true AND r.nextExecution <= :date")
+    List<User> findUsersWithDue(@Param("date") LocalDate date);
+
+    // Ocurrencias ya generadas de una plantilla a partir de una fecha (clave de idempotencia)
+    @Query("SELECT t.occurrenceDate FROM Transaction t WHERE t.recurringSourceId = :sourceId AND t.occurrenceDate >= :from")
+    List<LocalDate> findOccurrenceDates(@Param("sourceId") UUID sourceId, @Param("from") LocalDate from);
+
+    // Lock de sesión de PostgreSQL hasta el fin de la transacción, para despliegues con varios nodos
+    @Query(value = "SELECT 1 FROM (SELECT pg_advisory_xact_lock(:key)) l", nativeQuery = true)
+    Integer advisoryXactLock(@Param("key") long key);
 }
@@ -0,0 +1,123 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.model.Transaction;
+import com.eet.backend.model.TransactionType;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Listado de transacciones de un usuario por keyset sobre (date, transaction_id), de la más
+ * reciente a la más antigua. Solo se añaden al WHERE los filtros presentes, así que cada
+ * combinación cae en uno de los índices (user_id, [filtro,] date, transaction_id) de
+ * {@link Transaction} y la página N cuesta lo mismo que la primera.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionQueryRepository {
+
+    private final EntityManager entityManager;
+
+    /** Hasta {@code limit} transacciones posteriores al cursor (exclusivo), con usuario, categoría y viaje cargados. */
+    public List<Transaction> page(UUID userId, Filter filter, Cursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Transaction> query = cb.createQuery(Transaction.class);
+        Root<Transaction> t = query.from(Transaction.class);
+        // Los @ManyToOne son EAGER: sin fetch cada página añadiría un SELECT del usuario
+        t.fetch("user");
+        t.fetch("category", JoinType.LEFT);
+        t.fetch("trip", JoinType.LEFT);
+
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(t.get("user").get("userId"), userId));
+        if (filter.type() != null) {
+            where.add(cb.equal(t.get("type"), filter.type()));
+        }
+        if (filter.categoryId() != null) {
+            where.add(cb.equal(t.get("category").get("categoryId"), filter.categoryId()));
+        }
+        if (filter.tripId() != null) {
+            where.add(cb.equal(t.get("trip").get("tripId"), filter.tripId()));
+        }
+        if (filter.currency() != null) {
+            where.add(cb.equal(t.get("currency"), filter.currency()));
+        }
+        if (filter.from() != null) {
+            where.add(cb.greaterThanOrEqualTo(t.get("date"), filter.from()));
+        }
+        if (filter.to() != null) {
+            where.add(cb.lessThanOrEqualTo(t.get("date"), filter.to()));
+        }
+        if (filter.minAmount() != null) {
+            where.add(cb.greaterThanOrEqualTo(t.get("amount"), filter.minAmount()));
+        }
+        if (filter.maxAmount() != null) {
+            where.add(cb.lessThanOrEqualTo(t.get("amount"), filter.maxAmount()));
+        }
+        if (after != null) {
+            where.add(cb.or(
+                    cb.lessThan(t.get("date"), after.date()),
+                    cb.and(cb.equal(t.get("date"), after.date()),
+                            cb.lessThan(t.get("transactionId"), after.transactionId()))));
+        }
+
+        query.select(t)
+                .where(where.toArray(Predicate[]::new))
+                .orderBy(cb.desc(t.get("date")), cb.desc(t.get("transactionId")));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    public record Filter(TransactionType type, UUID categoryId, UUID tripId, String currency,
+                         LocalDate from, LocalDate to, BigDecimal minAmount, BigDecimal maxAmount) {
+        public Filter {
+            currency = currency == null || currency.isBlank() ? null : currency.trim().toUpperCase(Locale.ROOT);
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("Rango de fechas vacío: " + from + " > " + to);
+            }
+            if (minAmount != null && maxAmount != null && minAmount.compareTo(maxAmount) > 0) {
+                throw new IllegalArgumentException("Rango de importes vacío: " + minAmount + " > " + maxAmount);
+            }
+        }
+
+        public static Filter none() {
+            return new Filter(null, null, null, null, null, null, null, null);
+        }
+    }
+
+    /** Cursor opaco para el cliente: "2024-03-15:&lt;transactionId&gt;" (la última fila de la página anterior). */
+    public record Cursor(LocalDate date, UUID transactionId) {
+
+        public static Cursor of(Transaction last) {
+            return new Cursor(last.getDate(), last.getTransactionId());
+        }
+
+        public static Cursor parse(String token) {
+            if (token == null || token.isBlank()) return null;
+            int sep = token.indexOf(':');
+            if (sep < 0) throw new IllegalArgumentException("Cursor no válido: " + token);
+            try {
+                return new Cursor(LocalDate.parse(token.substring(0, sep)), UUID.fromString(token.substring(sep + 1)));
+            } catch (DateTimeParseException | IllegalArgumentException e) {
+                throw new IllegalArgumentException("Cursor no válido: " + token);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return date + ":" + transactionId;
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package com.eet.backend.repositories;
 
+import com.eet.backend.dto.stats.CategoryCurrencyTotal;
+import com.eet.backend.dto.stats.LedgerTotal;
+import com.eet.backend.dto.stats.RollupBucket;
+import com.eet.backend.dto.stats.TripCategoryCurrencyTotal;
 import com.eet.backend.model.Transaction;
 import com.eet.backend.model.TransactionType;
 import com.eet.backend.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 public interface TransactionRepository extends JpaRepository<Transaction, UUID> {
     List<Transaction> findByUserUserId(UUID userId);
@@ -22,6 +31,22 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
 
     Page<Transaction> findAllByUser(User user, Pageable pageable);
 
+    // Últimas transacciones reales (sin plantillas recurrentes) con la categoría ya cargada
+    @Query("""
+            SELECT t FROM Transaction t JOIN FETCH t.category
+            WHERE t.user.userId = :userId AND TYPE(t) = Transaction
+            ORDER BY t.date DESC
+            """)
+    List<Transaction> findRecentPlain(@Param("userId") UUID userId, Pageable pageable);
+
+    // Recientes del dashboard (plantillas incluidas, como en /recent) con todo lo que pinta el DTO en la misma fila
+    @Query("""
+            SELECT t FROM Transaction t JOIN FETCH t.user LEFT JOIN FETCH t.category LEFT JOIN FETCH t.trip
+            WHERE t.user.userId = :userId
+            ORDER BY t.date DESC
+            """)
+    List<Transaction> findRecentForDashboard(@Param("userId") UUID userId, Pageable pageable);
+
     @Query("SELECT SUM(t.amount) FROM Transaction t WHERE t.user = :user AND t.type = :type")
     Optional<BigDecimal> sumAmountByUserAndType(@Param("user") User user, @Param("type") TransactionType type);
 
@@ -48,4 +73,93 @@ public interface TransactionRepository extends JpaRepository<Transaction, UUID>
     List<Transaction> findByUserIdAndTrip_TripIdAndType(UUID userId, UUID tripId, TransactionType type);
 
     List<Transaction> findByUserAndTypeAndDateBetween(User user, TransactionType transactionType, LocalDate startOfMonth, LocalDate endOfMonth);
+
+    // Gastos del mes que entran en la comparativa por país (usuarios con consentimiento, categorías de
+    // serie, sin viajes ni plantillas), agrupados por usuario. Por cursor de 500 en 500 filas: hay que
+    // cerrar el Stream y hacer detach de cada entidad al consumirla, o el contexto crece igual.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("""
+            SELECT t FROM Transaction t JOIN FETCH t.user u JOIN FETCH t.category c
+            WHERE TYPE(t) = Transaction AND t.type = com.eet.backend.model.TransactionType.EXPENSE
+              AND t.date BETWEEN :start AND :end AND t.trip IS NULL AND c.isDefault = true
+              AND u.consentToDataAnalysis = true AND u.country IN :countries
+            ORDER BY u.userId
+            """)
+    Stream<Transaction> streamCountryExpenses(@Param("start") LocalDate start, @Param("end") LocalDate end,
+                                              @Param("countries") Collection<String> countries);
+
+    // Totales por (tipo, categoría, moneda) en el rango; TYPE(t) = Transaction deja fuera las plantillas recurrentes
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.CategoryCurrencyTotal(
+                       t.type, c.categoryId, c.name, c.emoji, t.currency, SUM(t.amount), COUNT(t))
+            FROM Transaction t LEFT JOIN t.category c
+            WHERE t.user.userId = :userId AND t.date BETWEEN :start AND :end AND TYPE(t) = Transaction
+            GROUP BY t.type, c.categoryId, c.name, c.emoji, t.currency
+            """)
+    List<CategoryCurrencyTotal> sumByTypeCategoryCurrency(@Param("userId") UUID userId,
+                                                          @Param("start") LocalDate start,
+                                                          @Param("end") LocalDate end);
+
+    // Agregado mensual en bruto para reconstruir/comprobar monthly_rollups (sin plantillas recurrentes)
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.RollupBucket(
+                       t.user.userId, YEAR(t.date) * 100 + MONTH(t.date), t.type, t.category.categoryId,
+                       t.currency, SUM(t.amount), COUNT(t))
+            FROM Transaction t
+            WHERE t.user.userId = :userId AND TYPE(t) = Transaction
+            GROUP BY t.user.userId, YEAR(t.date) * 100 + MONTH(t.date), t.type, t.category.categoryId, t.currency
+            """)
+    List<RollupBucket> aggregateMonthly(@Param("userId") UUID userId);
+
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.RollupBucket(
+                       t.user.userId, YEAR(t.date) * 100 + MONTH(t.date), t.type, t.category.categoryId,
+                       t.currency, SUM(t.amount), COUNT(t))
+            FROM Transaction t
+            WHERE TYPE(t) = Transaction
+            GROUP BY t.user.userId, YEAR(t.date) * 100 + MONTH(t.date), t.type, t.category.categoryId, t.currency
+            """)
+    List<RollupBucket> aggregateMonthlyAll();
+
+    @Query("SELECT COUNT(t) FROM Transaction t WHERE TYPE(t) = Transaction")
+    long countPlain();
+
+    // Ingresos y gastos por (usuario, moneda) para reconstruir/conciliar balance_ledger (sin plantillas)
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.LedgerTotal(
+                       t.user.userId, t.currency,
+                       SUM(CASE WHEN t.type = com.eet.backend.model.TransactionType.INCOME THEN t.amount ELSE 0 END),
+                       SUM(CASE WHEN t.type = com.eet.backend.model.TransactionType.EXPENSE THEN t.amount ELSE 0 END),
+                       COUNT(t))
+            FROM Transaction t
+            WHERE t.user.userId = :userId AND TYPE(t) = Transaction
+            GROUP BY t.user.userId, t.currency
+            """)
+    List<LedgerTotal> aggregateLedger(@Param("userId") UUID userId);
+
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.LedgerTotal(
+                       t.user.userId, t.currency,
+                       SUM(CASE WHEN t.type = com.eet.backend.model.TransactionType.INCOME THEN t.amount ELSE 0 END),
+                       SUM(CASE WHEN t.type = com.eet.backend.model.TransactionType.EXPENSE THEN t.amount ELSE 0 END),
+                       COUNT(t))
+            FROM Transaction t
+            WHERE TYPE(t) = Transaction
+            GROUP BY t.user.userId, t.currency
+            """)
+    List<LedgerTotal> aggregateLedgerAll();
+
+    // Gastos de todos los viajes del usuario por (viaje, categoría, moneda) en una sola consulta
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.TripCategoryCurrencyTotal(
+                       tr.tripId, c.categoryId, c.name, t.currency, SUM(t.amount), COUNT(t))
+            FROM Transaction t JOIN t.trip tr LEFT JOIN t.category c
+            WHERE t.user.userId = :userId AND t.type = com.eet.backend.model.TransactionType.EXPENSE
+              AND TYPE(t) = Transaction
+            GROUP BY tr.tripId, c.categoryId, c.name, t.currency
+            """)
+    List<TripCategoryCurrencyTotal> sumTripExpensesByCategoryCurrency(@Param("userId") UUID userId);
 }
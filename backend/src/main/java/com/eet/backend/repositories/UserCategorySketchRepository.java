@@ -0,0 +1,14 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.model.UserCategorySketch;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface UserCategorySketchRepository extends JpaRepository<UserCategorySketch, Long> {
+    Optional<UserCategorySketch> findByUserIdAndCategoryAndCurrency(UUID userId, String category, String currency);
+
+    List<UserCategorySketch> findByUserIdAndCurrency(UUID userId, String currency);
+}
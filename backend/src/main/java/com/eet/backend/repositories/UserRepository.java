@@ -1,11 +1,25 @@
 package com.eet.backend.repositories;
 
+import com.eet.backend.dto.stats.DashboardHeader;
 import com.eet.backend.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
+
+    // Usuario + presupuesto del mes en una sola lectura (sin presupuesto, maxSpending = null)
+    @Query("""
+            SELECT new com.eet.backend.dto.stats.DashboardHeader(u.userId, u.preferredCurrency, b.maxSpending)
+            FROM User u LEFT JOIN Budget b ON b.user = u AND b.month = :month AND b.year = :year
+            WHERE u.email = :email
+            """)
+    List<DashboardHeader> findDashboardHeader(@Param("email") String email,
+                                              @Param("month") int month,
+                                              @Param("year") int year);
 }
@@ -0,0 +1,28 @@
+package com.eet.backend.scheduler;
+
+import com.eet.backend.dto.stats.LedgerCheckDto;
+import com.eet.backend.services.BalanceLedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BalanceLedgerScheduler {
+
+    private final BalanceLedgerService ledgerService;
+
+    // Conciliación nocturna del ledger de balances contra transactions
+    @Scheduled(cron = "${stats.ledger.reconcile-cron:0 30 4 * * *}")
+    public void reconcile() {
+        LedgerCheckDto result = ledgerService.reconcileAll();
+        if (result.isConsistent()) {
+            log.info("Ledger de balances conciliado: {} filas sin deriva", result.getRows());
+        } else {
+            log.warn("Ledger de balances con deriva: {} filas, {} usuarios reconstruidos",
+                    result.getMismatches().size(), result.getRepaired());
+        }
+    }
+}
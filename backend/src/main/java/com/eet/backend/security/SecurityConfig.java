@@ -55,8 +55,8 @@ public class SecurityConfig {
         c.setAllowedOriginPatterns(List.of("https://amelgar1.upv.edu.es","http://localhost:*"));
         c.setAllowCredentials(false); // pon true solo si usas cookies
         c.setAllowedMethods(List.of("GET","POST","PUT","PATCH","DELETE","OPTIONS"));
-        c.setAllowedHeaders(List.of("Authorization","Content-Type","Accept"));
-        c.setExposedHeaders(List.of("Authorization","Location"));
+        c.setAllowedHeaders(List.of("Authorization","Content-Type","Accept","If-None-Match","If-Modified-Since"));
+        c.setExposedHeaders(List.of("Authorization","Location","ETag","Last-Modified","X-Next-Cursor","X-Recurring-Pending"));
         var src = new UrlBasedCorsConfigurationSource();
         src.registerCorsConfiguration("/**", c);
         return src;
@@ -0,0 +1,253 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.stats.LedgerCheckDto;
+import com.eet.backend.dto.stats.LedgerMismatchDto;
+import com.eet.backend.dto.stats.LedgerTotal;
+import com.eet.backend.model.BalanceLedger;
+import com.eet.backend.model.RecurringTransaction;
+import com.eet.backend.model.Transaction;
+import com.eet.backend.model.TransactionType;
+import com.eet.backend.repositories.BalanceLedgerRepository;
+import com.eet.backend.repositories.TransactionRepository;
+import com.eet.backend.services.stats.UserStatsChangedEvent;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * Mantiene balance_ledger: cada alta/baja/edición de una transacción suma o resta su
+ * importe en la fila (usuario, moneda) dentro de la misma transacción de BD. Los balances
+ * del dashboard se leen de aquí; la conciliación compara con el agregado en bruto.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class BalanceLedgerService {
+
+    private final BalanceLedgerRepository ledgerRepository;
+    private final TransactionRepository transactionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${stats.ledger.rebuild-on-startup:true}") boolean rebuildOnStartup = true;
+    @Value("${stats.ledger.reconcile.repair:false}") boolean repairOnReconcile = false;
+
+    public void add(Transaction tx) {
+        apply(tx, 1);
+    }
+
+    public void remove(Transaction tx) {
+        apply(tx, -1);
+    }
+
+    /** Resta un lote (p. ej. las transacciones de un viaje borrado) con un upsert por moneda. */
+    public void removeAll(Collection<? extends Transaction> txs) {
+        Map<Key, Delta> deltas = new HashMap<>();
+        for (Transaction tx : txs) {
+            Key key = keyOf(tx);
+            if (key == null) continue;
+            deltas.computeIfAbsent(key, k -> new Delta()).add(tx, -1);
+        }
+        deltas.forEach(this::addToLedger);
+    }
+
+    private void apply(Transaction tx, int sign) {
+        Key key = keyOf(tx);
+        if (key == null) return;
+        Delta delta = new Delta();
+        delta.add(tx, sign);
+        addToLedger(key, delta);
+    }
+
+    // Upsert atómico en BD: dos primeras transacciones concurrentes en una moneda se suman, no chocan
+    private void addToLedger(Key key, Delta delta) {
+        ledgerRepository.upsertLedger(key.userId(), key.currency(), delta.income, delta.expense, delta.count);
+    }
+
+    // Las plantillas recurrentes no cuentan (mismo criterio que isRecurringTemplate)
+    private static Key keyOf(Transaction tx) {
+        if (tx instanceof RecurringTransaction) return null;
+        if (tx.getUser() == null || tx.getType() == null || tx.getAmount() == null || tx.getCurrency() == null) return null;
+        return new Key(tx.getUser().getUserId(), tx.getCurrency());
+    }
+
+    // ==================== LECTURAS ====================
+
+    /** Una fila por moneda con ingresos y gastos acumulados, sin convertir. */
+    public List<BalanceLedger> entries(UUID userId) {
+        return ledgerRepository.findByUserId(userId);
+    }
+
+    // ==================== RECONSTRUCCIÓN Y CONCILIACIÓN ====================
+
+    /** Borra las filas del usuario y las recalcula desde transactions. */
+    public int rebuild(UUID userId) {
+        ledgerRepository.deleteByUserId(userId);
+        List<BalanceLedger> rows = transactionRepository.aggregateLedger(userId).stream()
+                .map(BalanceLedgerService::toLedger)
+                .toList();
+        ledgerRepository.saveAll(rows);
+        log.info("Ledger de {} reconstruido: {} monedas", userId, rows.size());
+        // También desde la conciliación: lo cacheado del usuario es anterior a la reparación
+        eventPublisher.publishEvent(new UserStatsChangedEvent(userId, "ledger-rebuilt"));
+        return rows.size();
+    }
+
+    public int rebuildAll() {
+        ledgerRepository.deleteAllInBatch();
+        List<BalanceLedger> rows = transactionRepository.aggregateLedgerAll().stream()
+                .map(BalanceLedgerService::toLedger)
+                .toList();
+        ledgerRepository.saveAll(rows);
+        log.info("Ledger reconstruido: {} filas", rows.size());
+        return rows.size();
+    }
+
+    /** Compara las filas del usuario con el agregado en bruto; no modifica nada. */
+    public LedgerCheckDto check(UUID userId) {
+        List<LedgerTotal> expected = transactionRepository.aggregateLedger(userId);
+        List<LedgerMismatchDto> mismatches = compare(expected, ledgerRepository.findByUserId(userId));
+        return LedgerCheckDto.builder()
+                .userId(userId)
+                .rows(expected.size())
+                .consistent(mismatches.isEmpty())
+                .mismatches(mismatches)
+                .build();
+    }
+
+    /**
+     * Conciliación de todos los usuarios con dos lecturas (agregado y ledger completos).
+     * Son dos sentencias en READ COMMITTED, así que una escritura que confirma entre ambas
+     * aparece como deriva: con la reparación activada, cada usuario se vuelve a comprobar
+     * con sus filas bloqueadas y solo se reconstruye si la deriva sigue ahí.
+     */
+    public LedgerCheckDto reconcileAll() {
+        List<LedgerTotal> expected = transactionRepository.aggregateLedgerAll();
+        List<LedgerMismatchDto> mismatches = compare(expected, ledgerRepository.findAll());
+
+        int repaired = 0;
+        if (!mismatches.isEmpty()) {
+            Set<UUID> drifted = new LinkedHashSet<>();
+            mismatches.forEach(m -> drifted.add(m.getUserId()));
+            log.warn("Ledger desfasado: {} filas de {} usuarios", mismatches.size(), drifted.size());
+            if (repairOnReconcile) {
+                for (UUID userId : drifted) {
+                    if (driftConfirmed(userId)) {
+                        rebuild(userId);
+                        repaired++;
+                    } else {
+                        log.info("Deriva de {} descartada al recomprobar: escritura concurrente", userId);
+                    }
+                }
+            }
+        }
+        return LedgerCheckDto.builder()
+                .rows(expected.size())
+                .consistent(mismatches.isEmpty())
+                .repaired(repaired)
+                .mismatches(mismatches)
+                .build();
+    }
+
+    // Primero se bloquea y lee el ledger y después se agrega: lo que confirme entre medias solo
+    // puede ser el alta de una moneda nueva, y en ese caso reconstruir sigue siendo correcto
+    private boolean driftConfirmed(UUID userId) {
+        List<BalanceLedger> locked = ledgerRepository.lockByUserId(userId);
+        return !compare(transactionRepository.aggregateLedger(userId), locked).isEmpty();
+    }
+
+    private static List<LedgerMismatchDto> compare(List<LedgerTotal> aggregated, List<BalanceLedger> ledger) {
+        Map<Key, LedgerTotal> expected = new HashMap<>();
+        for (LedgerTotal t : aggregated) {
+            expected.put(new Key(t.getUserId(), t.getCurrency()), t);
+        }
+
+        List<LedgerMismatchDto> mismatches = new ArrayList<>();
+        Set<Key> seen = new HashSet<>();
+        for (BalanceLedger l : ledger) {
+            Key key = new Key(l.getUserId(), l.getCurrency());
+            seen.add(key);
+            LedgerTotal t = expected.get(key);
+            BigDecimal income = t != null ? t.getIncome() : BigDecimal.ZERO;
+            BigDecimal expense = t != null ? t.getExpense() : BigDecimal.ZERO;
+            long count = t != null ? t.getCount() : 0;
+            if (income.compareTo(l.getIncome()) != 0 || expense.compareTo(l.getExpense()) != 0 || count != l.getTxCount()) {
+                mismatches.add(mismatch(key, income, expense, count, l.getIncome(), l.getExpense(), l.getTxCount()));
+            }
+        }
+        expected.forEach((key, t) -> {
+            if (!seen.contains(key)) {
+                mismatches.add(mismatch(key, t.getIncome(), t.getExpense(), t.getCount(),
+                        BigDecimal.ZERO, BigDecimal.ZERO, 0));
+            }
+        });
+        mismatches.sort(Comparator.comparing((LedgerMismatchDto m) -> m.getUserId().toString())
+                .thenComparing(LedgerMismatchDto::getCurrency));
+        return mismatches;
+    }
+
+    // Primera puesta en marcha: la tabla nace vacía aunque ya haya transacciones
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!rebuildOnStartup) return;
+        try {
+            if (ledgerRepository.count() == 0 && transactionRepository.countPlain() > 0) {
+                rebuildAll();
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudo inicializar el ledger de balances: {}", e.getMessage());
+        }
+    }
+
+    private static BalanceLedger toLedger(LedgerTotal t) {
+        return BalanceLedger.builder()
+                .userId(t.getUserId())
+                .currency(t.getCurrency())
+                .income(t.getIncome())
+                .expense(t.getExpense())
+                .txCount(t.getCount())
+                .build();
+    }
+
+    private static LedgerMismatchDto mismatch(Key key, BigDecimal expectedIncome, BigDecimal expectedExpense,
+                                              long expectedCount, BigDecimal ledgerIncome,
+                                              BigDecimal ledgerExpense, long ledgerCount) {
+        return LedgerMismatchDto.builder()
+                .userId(key.userId())
+                .currency(key.currency())
+                .expectedIncome(expectedIncome)
+                .ledgerIncome(ledgerIncome)
+                .expectedExpense(expectedExpense)
+                .ledgerExpense(ledgerExpense)
+                .expectedCount(expectedCount)
+                .ledgerCount(ledgerCount)
+                .build();
+    }
+
+    private record Key(UUID userId, String currency) {
+    }
+
+    private static final class Delta {
+        BigDecimal income = BigDecimal.ZERO;
+        BigDecimal expense = BigDecimal.ZERO;
+        long count;
+
+        void add(Transaction tx, int sign) {
+            BigDecimal amount = sign < 0 ? tx.getAmount().negate() : tx.getAmount();
+            if (tx.getType() == TransactionType.INCOME) {
+                income = income.add(amount);
+            } else {
+                expense = expense.add(amount);
+            }
+            count += sign;
+        }
+    }
+}
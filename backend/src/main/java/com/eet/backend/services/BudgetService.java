@@ -3,18 +3,16 @@ package com.eet.backend.services;
 import com.eet.backend.dto.BudgetDto;
 import com.eet.backend.dto.BudgetWithSpentDto;
 import com.eet.backend.model.Budget;
-import com.eet.backend.model.RecurringTransaction;
-import com.eet.backend.model.Transaction;
 import com.eet.backend.model.TransactionType;
 import com.eet.backend.model.User;
 import com.eet.backend.repositories.BudgetRepository;
-import com.eet.backend.repositories.TransactionRepository;
+import com.eet.backend.services.stats.UserStatsChangedEvent;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.List;
 import java.util.Optional;
@@ -26,11 +24,8 @@ import java.util.UUID;
 public class BudgetService {
 
     private final BudgetRepository budgetRepository;
-    private final TransactionRepository transactionRepository;
-
-    private static boolean isRecurringTemplate(Transaction tx) {
-        return tx instanceof RecurringTransaction;
-    }
+    private final MonthlyRollupService monthlyRollupService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<Budget> getByUserId(UUID userId) {
         return budgetRepository.findByUserUserId(userId);
@@ -41,11 +36,21 @@ public class BudgetService {
     }
 
     public Budget save(Budget budget) {
-        return budgetRepository.save(budget);
+        return publishChanged(budgetRepository.save(budget));
     }
 
     public void delete(UUID id) {
-        budgetRepository.deleteById(id);
+        budgetRepository.findById(id).ifPresent(budget -> {
+            budgetRepository.delete(budget);
+            publishChanged(budget);
+        });
+    }
+
+    private Budget publishChanged(Budget budget) {
+        if (budget.getUser() != null) {
+            eventPublisher.publishEvent(new UserStatsChangedEvent(budget.getUser().getUserId(), "budget-changed"));
+        }
+        return budget;
     }
 
     public Optional<Budget> getDefaultBudget(UUID userId) {
@@ -57,7 +62,7 @@ public class BudgetService {
                 .map(existing -> {
                     existing.setMaxSpending(maxSpending);
                     existing.setWarningThreshold(warningThreshold);
-                    return budgetRepository.save(existing);
+                    return publishChanged(budgetRepository.save(existing));
                 })
                 .orElseGet(() -> {
                     Budget newBudget = Budget.builder()
@@ -65,7 +70,7 @@ public class BudgetService {
                             .maxSpending(maxSpending)
                             .warningThreshold(warningThreshold)
                             .build();
-                    return budgetRepository.save(newBudget);
+                    return publishChanged(budgetRepository.save(newBudget));
                 });
     }
 
@@ -78,14 +83,10 @@ public class BudgetService {
 
         return budgets.stream().map(b -> {
             YearMonth ym = YearMonth.of(b.getYear(), b.getMonth());
-            LocalDate start = ym.atDay(1);
-            LocalDate end = ym.atEndOfMonth();
-
-            BigDecimal spent = transactionRepository
-                    .findByUserUserIdAndDateBetween(userId, start, end).stream()
-                    .filter(tx -> tx.getType() == TransactionType.EXPENSE)
-                    .filter(tx -> !isRecurringTemplate(tx))
-                    .map(Transaction::getAmount)
+
+            // Suma en bruto de todas las monedas, como antes, pero desde el rollup mensual
+            BigDecimal spent = monthlyRollupService
+                    .totalsByCurrency(userId, ym, TransactionType.EXPENSE).values().stream()
                     .reduce(BigDecimal.ZERO, BigDecimal::add);
 
             return BudgetWithSpentDto.builder()
@@ -110,7 +111,7 @@ public class BudgetService {
         budget.setMaxSpending(dto.getMaxSpending());
         budget.setWarningThreshold(dto.getWarningThreshold());
 
-        return budgetRepository.save(budget);
+        return publishChanged(budgetRepository.save(budget));
     }
 
     public Optional<Budget> getMonthlyBudget(UUID userId, int month, int year) {
@@ -2,14 +2,20 @@ package com.eet.backend.services;
 
 import com.eet.backend.dto.CountryComparisonDto;
 import com.eet.backend.dto.CountryComparisonResponse;
+import com.eet.backend.dto.QuantileBandsDto;
 import com.eet.backend.model.CountrySpendingStats;
+import com.eet.backend.model.Money;
 import com.eet.backend.model.RecurringTransaction;
 import com.eet.backend.model.Transaction;
 import com.eet.backend.model.TransactionType;
 import com.eet.backend.model.User;
+import com.eet.backend.model.UserCategorySketch;
 import com.eet.backend.repositories.CountrySpendingStatsRepository;
 import com.eet.backend.repositories.TransactionRepository;
-import com.eet.backend.repositories.UserRepository;
+import com.eet.backend.repositories.UserCategorySketchRepository;
+import com.eet.backend.services.stats.QuantileSketch;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -17,9 +23,14 @@ import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
@@ -27,8 +38,9 @@ public class CountrySpendingStatsService {
 
     private final CountrySpendingStatsRepository statsRepo;
     private final TransactionRepository transactionRepository;
-    private final UserRepository userRepository;
     private final ExchangeRateService exchangeRateService;
+    private final UserCategorySketchRepository sketchRepo;
+    private final EntityManager entityManager;
 
     private static final Map<String, String> COUNTRY_CURRENCY_MAP = Map.ofEntries(
             Map.entry("ES", "EUR"),
@@ -63,73 +75,145 @@ public class CountrySpendingStatsService {
         return tx instanceof RecurringTransaction;
     }
 
+    // Suma en punto fijo; la media se redondea a BigDecimal una sola vez al final
+    private Money sumConverted(List<Transaction> txs, String currency) {
+        Money total = Money.ZERO;
+        for (Transaction tx : txs) {
+            total = total.plus(exchangeRateService.convert(Money.of(tx.getAmount()), tx.getCurrency(), currency));
+        }
+        return total;
+    }
+
     public void addUserAverage(String country, String category, BigDecimal userAvg) {
-        statsRepo.findByCountryAndCategory(country, category).ifPresentOrElse(
-                existing -> {
-                    int newSampleSize = existing.getSampleSize() + 1;
-                    BigDecimal newAvg = existing.getAverageAmount()
-                            .multiply(BigDecimal.valueOf(existing.getSampleSize()))
-                            .add(userAvg)
-                            .divide(BigDecimal.valueOf(newSampleSize), 2, RoundingMode.HALF_UP);
-
-                    existing.setAverageAmount(newAvg);
-                    existing.setSampleSize(newSampleSize);
-                    statsRepo.save(existing);
-                },
-                () -> {
-                    CountrySpendingStats stat = new CountrySpendingStats();
-                    stat.setCountry(country);
-                    stat.setCategory(category);
-                    stat.setAverageAmount(userAvg.setScale(2, RoundingMode.HALF_UP));
-                    stat.setSampleSize(1);
-                    statsRepo.save(stat);
-                }
-        );
+        addUserAverages(country, category, COUNTRY_CURRENCY_MAP.get(country), List.of(userAvg));
+    }
+
+    // Las medias del mes entran de una vez: media ponderada y un solo merge del sketch por fila
+    public void addUserAverages(String country, String category, String currency, List<BigDecimal> userAvgs) {
+        if (userAvgs.isEmpty()) return;
+        QuantileSketch month = new QuantileSketch();
+        BigDecimal sum = BigDecimal.ZERO;
+        for (BigDecimal avg : userAvgs) {
+            month.add(avg);
+            sum = sum.add(avg);
+        }
+
+        CountrySpendingStats stat = statsRepo.findByCountryAndCategory(country, category).orElseGet(() -> {
+            CountrySpendingStats created = new CountrySpendingStats();
+            created.setCountry(country);
+            created.setCategory(category);
+            created.setCurrency(currency);
+            created.setAverageAmount(BigDecimal.ZERO);
+            return created;
+        });
+        int newSampleSize = stat.getSampleSize() + userAvgs.size();
+        stat.setAverageAmount(stat.getAverageAmount()
+                .multiply(BigDecimal.valueOf(stat.getSampleSize()))
+                .add(sum)
+                .divide(BigDecimal.valueOf(newSampleSize), 2, RoundingMode.HALF_UP));
+        stat.setSampleSize(newSampleSize);
+
+        QuantileSketch sketch = QuantileSketch.fromBytes(stat.getSketch());
+        sketch.merge(month);
+        stat.setSketch(sketch.toBytes());
+        statsRepo.save(stat);
+    }
+
+    // Misma magnitud que el sketch del país: una media mensual del usuario por cierre de mes
+    private void addUserMonthAverage(UUID userId, String category, String currency, BigDecimal monthAverage) {
+        UserCategorySketch row = sketchRepo.findByUserIdAndCategoryAndCurrency(userId, category, currency)
+                .orElseGet(() -> UserCategorySketch.builder()
+                        .userId(userId).category(category).currency(currency).build());
+        QuantileSketch sketch = QuantileSketch.fromBytes(row.getSketch());
+        sketch.add(monthAverage);
+        row.setSketch(sketch.toBytes());
+        row.setSampleSize(sketch.count());
+        sketchRepo.save(row);
     }
 
+    private static QuantileBandsDto bands(byte[] bytes) {
+        if (bytes == null) return null;
+        QuantileSketch sketch = QuantileSketch.fromBytes(bytes);
+        if (sketch.isEmpty()) return null;
+        return new QuantileBandsDto(
+                sketch.quantile(0.10, 2),
+                sketch.quantile(0.25, 2),
+                sketch.quantile(0.50, 2),
+                sketch.quantile(0.75, 2),
+                sketch.quantile(0.90, 2),
+                sketch.count());
+    }
+
+    /**
+     * Cierre de mes: un solo recorrido por cursor de los gastos del mes, ordenados por usuario. Solo se
+     * retienen los acumulados del usuario en curso; cada transacción se suelta del contexto al procesarla.
+     */
+    @Transactional // el Stream del repositorio necesita la transacción abierta mientras se recorre
     public void updateCountrySpendingStats() {
         YearMonth currentMonth = YearMonth.now();
         LocalDate start = currentMonth.atDay(1);
         LocalDate end = currentMonth.atEndOfMonth();
 
-        List<User> users = userRepository.findAll().stream()
-                .filter(u -> Boolean.TRUE.equals(u.getConsentToDataAnalysis()))
-                .filter(u -> u.getCountry() != null && COUNTRY_CURRENCY_MAP.containsKey(u.getCountry()))
-                .toList();
-
-        for (User user : users) {
-            String country = user.getCountry();
-            String countryCurrency = COUNTRY_CURRENCY_MAP.get(country);
-
-            List<Transaction> userTxs = transactionRepository.findByUserAndTypeAndDateBetween(
-                            user, TransactionType.EXPENSE, start, end)
-                    .stream()
-                    .filter(tx -> !isRecurringTemplate(tx))
-                    .filter(tx -> tx.getCategory() != null && tx.getCategory().isDefault())
-                    .filter(tx -> tx.getTrip() == null) // excluye gastos de viaje
-                    .collect(Collectors.toList());
+        // Medias de usuario del mes por (país, categoría); se vuelcan al final, una escritura por fila
+        Map<List<String>, List<BigDecimal>> monthAverages = new HashMap<>();
+        UserMonth current = null;
 
-            if (userTxs.size() < 3) continue; // umbral mínimo
+        try (Stream<Transaction> txs = transactionRepository.streamCountryExpenses(start, end, COUNTRY_CURRENCY_MAP.keySet())) {
+            for (Iterator<Transaction> it = txs.iterator(); it.hasNext(); ) {
+                Transaction tx = it.next();
+                User user = tx.getUser();
+                if (current == null || !current.userId.equals(user.getUserId())) {
+                    if (current != null) close(current, monthAverages);
+                    current = new UserMonth(user.getUserId(), user.getCountry());
+                }
+                // Una conversión por transacción; al cambiar de usuario solo quedan sus medias por categoría
+                String currency = COUNTRY_CURRENCY_MAP.get(current.country);
+                current.add(tx.getCategory().getName(),
+                        exchangeRateService.convert(Money.of(tx.getAmount()), tx.getCurrency(), currency));
+                entityManager.detach(tx);
+            }
+        }
+        if (current != null) close(current, monthAverages);
 
-            Map<String, List<Transaction>> byCategory = userTxs.stream()
-                    .collect(Collectors.groupingBy(tx -> tx.getCategory().getName()));
+        monthAverages.forEach((key, averages) ->
+                addUserAverages(key.get(0), key.get(1), COUNTRY_CURRENCY_MAP.get(key.get(0)), averages));
+    }
 
-            for (Map.Entry<String, List<Transaction>> entry : byCategory.entrySet()) {
-                String category = entry.getKey();
-                List<Transaction> txsInCategory = entry.getValue();
+    private void close(UserMonth user, Map<List<String>, List<BigDecimal>> monthAverages) {
+        if (user.count < 3) return; // umbral mínimo
+        String currency = COUNTRY_CURRENCY_MAP.get(user.country);
+        user.byCategory.forEach((category, acc) -> {
+            BigDecimal userAverage = acc.total.average(acc.count, 2, RoundingMode.HALF_UP);
+            monthAverages.computeIfAbsent(List.of(user.country, category), k -> new ArrayList<>()).add(userAverage);
+            addUserMonthAverage(user.userId, category, currency, userAverage);
+        });
+    }
 
-                BigDecimal totalConverted = txsInCategory.stream()
-                        .map(tx -> exchangeRateService.convert(tx.getAmount(), tx.getCurrency(), countryCurrency))
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+    // Acumulados del mes de un usuario mientras el cursor está en sus filas
+    private static final class UserMonth {
+        private final UUID userId;
+        private final String country;
+        private final Map<String, CategoryMonth> byCategory = new HashMap<>();
+        private int count;
 
-                BigDecimal userAverage = totalConverted
-                        .divide(BigDecimal.valueOf(txsInCategory.size()), 2, RoundingMode.HALF_UP);
+        private UserMonth(UUID userId, String country) {
+            this.userId = userId;
+            this.country = country;
+        }
 
-                addUserAverage(country, category, userAverage);
-            }
+        private void add(String category, Money converted) {
+            CategoryMonth acc = byCategory.computeIfAbsent(category, k -> new CategoryMonth());
+            acc.total = acc.total.plus(converted);
+            acc.count++;
+            count++;
         }
     }
 
+    private static final class CategoryMonth {
+        private Money total = Money.ZERO;
+        private int count;
+    }
+
     public CountryComparisonResponse getComparisonForUser(User user, int year, int month) {
         String country = user.getCountry();
         String currency = COUNTRY_CURRENCY_MAP.get(country);
@@ -157,10 +241,8 @@ public class CountrySpendingStatsService {
                         tx -> tx.getCategory().getName(),
                         Collectors.collectingAndThen(
                                 Collectors.toList(),
-                                txsInCat -> txsInCat.stream()
-                                        .map(tx -> exchangeRateService.convert(tx.getAmount(), tx.getCurrency(), currency))
-                                        .reduce(BigDecimal.ZERO, BigDecimal::add)
-                                        .divide(BigDecimal.valueOf(txsInCat.size()), 2, RoundingMode.HALF_UP)
+                                txsInCat -> sumConverted(txsInCat, currency)
+                                        .average(txsInCat.size(), 2, RoundingMode.HALF_UP)
                         )
                 ));
 
@@ -170,6 +252,13 @@ public class CountrySpendingStatsService {
                         Map.Entry::getValue
                 ));
 
+        Map<String, byte[]> userSketchByCategory = sketchRepo.findByUserIdAndCurrency(user.getUserId(), currency).stream()
+                .collect(Collectors.toMap(
+                        s -> s.getCategory().trim().toUpperCase(),
+                        UserCategorySketch::getSketch,
+                        (a, b) -> a
+                ));
+
         List<CountryComparisonDto> comparisons = statsRepo.findByCountry(country).stream()
                 .map(stat -> {
                     String categoryKey = stat.getCategory().trim().toUpperCase();
@@ -178,7 +267,9 @@ public class CountrySpendingStatsService {
                             stat.getCategory(),
                             userAvg,
                             stat.getAverageAmount(),
-                            currency
+                            currency,
+                            bands(stat.getSketch()),
+                            bands(userSketchByCategory.get(categoryKey))
                     );
                 })
                 .toList();
@@ -0,0 +1,82 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.DashboardDto;
+import com.eet.backend.dto.TransactionDto;
+import com.eet.backend.dto.stats.CurrencyBalance;
+import com.eet.backend.dto.stats.DashboardHeader;
+import com.eet.backend.model.ExchangeRate;
+import com.eet.backend.model.Money;
+import com.eet.backend.model.MonthlyRollup;
+import com.eet.backend.model.Transaction;
+import com.eet.backend.repositories.BalanceLedgerRepository;
+import com.eet.backend.repositories.TransactionRepository;
+import com.eet.backend.repositories.UserRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * GET /api/transactions/dashboard con un plan de lectura fijo: (1) usuario + presupuesto
+ * del mes, (2) balance y gasto del mes por moneda, (3) las 5 recientes con categoría y
+ * viaje. Los tipos de cambio se resuelven una vez por moneda para todo el dashboard.
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class DashboardService {
+
+    /**
+     * Sentencias SQL que puede lanzar {@link #getDashboard}, sin contar los fallos de la caché FX:
+     * cada moneda que no esté en caché añade la consulta a exchange_rates de {@code getRate}.
+     */
+    public static final int QUERY_BUDGET = 3;
+
+    static final int RECENT = 5;
+
+    private final UserRepository userRepository;
+    private final BalanceLedgerRepository ledgerRepository;
+    private final TransactionRepository transactionRepository;
+    private final ExchangeRateService exchangeRateService;
+
+    public DashboardDto getDashboard(String email) {
+        YearMonth month = YearMonth.now();
+        DashboardHeader header = userRepository.findDashboardHeader(email, month.getMonthValue(), month.getYear())
+                .stream().findFirst()
+                .orElseThrow(() -> new RuntimeException("Usuario no encontrado"));
+        String preferred = header.getPreferredCurrency();
+
+        List<CurrencyBalance> balances = ledgerRepository.findCurrencyBalances(header.getUserId(), MonthlyRollup.period(month));
+        List<Transaction> recent = transactionRepository.findRecentForDashboard(header.getUserId(), PageRequest.of(0, RECENT));
+
+        Map<String, ExchangeRate> rates = new HashMap<>();
+        Money balance = Money.ZERO;
+        Money monthExpenses = Money.ZERO;
+        for (CurrencyBalance cb : balances) {
+            BigDecimal rate = rate(rates, cb.getCurrency(), preferred).getRate();
+            balance = balance.plus(Money.of(cb.getBalance()).times(rate));
+            monthExpenses = monthExpenses.plus(Money.of(cb.getMonthExpense()).times(rate));
+        }
+
+        List<TransactionDto> recentDtos = recent.stream()
+                .map(tx -> TransactionDto.from(tx, rate(rates, tx.getCurrency(), preferred), preferred))
+                .toList();
+
+        BigDecimal currentMonthExpenses = monthExpenses.toBigDecimal();
+        BigDecimal maxSpending = header.getMaxSpending();
+        BigDecimal availableBudget = (maxSpending != null) ? maxSpending.subtract(currentMonthExpenses) : null;
+
+        return new DashboardDto(balance.toBigDecimal(), currentMonthExpenses, maxSpending, availableBudget, recentDtos);
+    }
+
+    private ExchangeRate rate(Map<String, ExchangeRate> rates, String from, String to) {
+        return rates.computeIfAbsent(from.toUpperCase(), f -> exchangeRateService.getRate(f, to)
+                .orElseThrow(() -> new RuntimeException("Missing exchange rate for: " + f + " → " + to)));
+    }
+}
@@ -0,0 +1,145 @@
+package com.eet.backend.services;
+
+import com.eet.backend.config.CurrencyConfig;
+import com.eet.backend.dto.FxBackfillResultDto;
+import com.eet.backend.services.fx.CircuitBreaker;
+import com.eet.backend.services.fx.HedgedRateFetcher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Carga histórica de tipos: una petición de serie por moneda base para todo el rango
+ * y escritura en bloque en exchange_rates. Los huecos (fines de semana, festivos) se
+ * rellenan con el último día publicado, así las consultas posteriores no salen a la red.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExchangeRateBackfillService {
+
+    // Las filas ya existentes (unique from/to/date) se respetan tal cual
+    static final String INSERT_SQL =
+            "INSERT INTO exchange_rates (rate_id, from_currency, to_currency, rate, date) " +
+            "VALUES (?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final HedgedRateFetcher fetcher;
+    private final CircuitBreaker breaker;
+    private final JdbcTemplate jdbc;
+    private final CurrencyConfig currencyConfig;
+
+    @Value("${fx.triangulation.enabled:true}") boolean triangulationEnabled;
+    @Value("${fx.triangulation.pivot:EUR}") String pivot;
+    @Value("${fx.backfill.batch-size:500}") int batchSize = 500;
+    @Value("${fx.backfill.max-days:3660}") int maxDays = 3660;
+    // Se pide algo antes del inicio para tener desde qué rellenar si el rango empieza en festivo
+    @Value("${fx.backfill.lookback-days:7}") int lookbackDays = 7;
+
+    /** Con triangulación solo hacen falta las filas del pivote; sin ella, todas las bases. */
+    public List<String> defaultBases() {
+        return triangulationEnabled ? List.of(pivot.toUpperCase(Locale.ROOT)) : currencies();
+    }
+
+    public FxBackfillResultDto backfill(LocalDate from, LocalDate to, Collection<String> bases) {
+        LocalDate today = LocalDate.now();
+        LocalDate end = to.isAfter(today) ? today : to;
+        if (from.isAfter(end)) {
+            throw new IllegalArgumentException("Rango de fechas vacío: " + from + ".." + to);
+        }
+        if (ChronoUnit.DAYS.between(from, end) >= maxDays) {
+            throw new IllegalArgumentException("Rango demasiado largo (máx " + maxDays + " días)");
+        }
+
+        long start = System.currentTimeMillis();
+        List<String> baseList = (bases == null || bases.isEmpty())
+                ? defaultBases()
+                : bases.stream().map(b -> b.trim().toUpperCase(Locale.ROOT)).distinct().toList();
+
+        int published = 0, rows = 0, inserted = 0;
+        for (String base : baseList) {
+            List<String> targets = currencies().stream().filter(c -> !c.equals(base)).toList();
+            if (targets.isEmpty()) continue;
+
+            Map<LocalDate, Map<String, BigDecimal>> series = breaker.call(() ->
+                    fetcher.timeSeries(base, targets, from.minusDays(lookbackDays), end));
+            published += (int) series.keySet().stream().filter(d -> !d.isBefore(from)).count();
+
+            List<Object[]> batch = fillForward(base, targets, series, from, end, today);
+            rows += batch.size();
+            inserted += insert(batch);
+        }
+
+        long elapsed = System.currentTimeMillis() - start;
+        log.info("FX backfill {} {}..{}: {} filas, {} nuevas en {} ms", baseList, from, end, rows, inserted, elapsed);
+        return FxBackfillResultDto.builder()
+                .bases(baseList)
+                .from(from).to(end)
+                .publishedDays(published)
+                .rows(rows)
+                .inserted(inserted)
+                .elapsedMillis(elapsed)
+                .build();
+    }
+
+    /**
+     * Una fila por (día, destino) en [from, end]. Los días sin publicación heredan el último
+     * publicado, salvo hoy: si aún no ha salido el tipo del día no se congela el de ayer.
+     */
+    static List<Object[]> fillForward(String base, List<String> targets,
+                                      Map<LocalDate, Map<String, BigDecimal>> series,
+                                      LocalDate from, LocalDate end, LocalDate today) {
+        List<Object[]> rows = new ArrayList<>();
+        Map<String, BigDecimal> carry = null;
+        for (Map.Entry<LocalDate, Map<String, BigDecimal>> e : series.entrySet()) {
+            if (e.getKey().isBefore(from)) carry = e.getValue();
+        }
+
+        for (LocalDate d = from; !d.isAfter(end); d = d.plusDays(1)) {
+            Map<String, BigDecimal> day = series.get(d);
+            if (day != null) {
+                carry = day;
+            } else if (carry == null || !d.isBefore(today)) {
+                continue;
+            }
+            for (String to : targets) {
+                BigDecimal r = carry.get(to);
+                if (r != null) rows.add(new Object[]{UUID.randomUUID(), base, to, r, Date.valueOf(d)});
+            }
+        }
+        return rows;
+    }
+
+    private int insert(List<Object[]> rows) {
+        if (rows.isEmpty()) return 0;
+        int inserted = 0;
+        for (int[] chunk : jdbc.batchUpdate(INSERT_SQL, rows, batchSize, (ps, row) -> {
+            for (int i = 0; i < row.length; i++) ps.setObject(i + 1, row[i]);
+        })) {
+            for (int c : chunk) {
+                // Con reWriteBatchedInserts el driver puede no informar por fila (SUCCESS_NO_INFO)
+                if (c > 0 || c == Statement.SUCCESS_NO_INFO) inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    private List<String> currencies() {
+        return currencyConfig.getSupportedCurrencies().stream()
+                .map(c -> c.trim().toUpperCase(Locale.ROOT))
+                .toList();
+    }
+}
@@ -2,14 +2,19 @@ package com.eet.backend.services;
 
 import com.eet.backend.model.ExchangeRate;
 import com.eet.backend.repositories.ExchangeRateRepository;
-import com.eet.backend.services.fx.RateProvider;
+import com.eet.backend.services.fx.FxRateCache;
+import com.eet.backend.services.fx.HedgedRateFetcher;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
@@ -17,21 +22,52 @@ import java.util.List;
 public class ExchangeRateScheduler {
 
     private final ExchangeRateRepository repo;
-    private final RateProvider provider; // Frankfurter
+    private final HedgedRateFetcher fetcher; // Frankfurter, con hedge a FreeCurrencyAPI
+    private final FxRateCache rateCache;
+    private final ExchangeRateBackfillService backfillService;
+    private final ExchangeRateService exchangeRateService;
 
     private static final String BASE = "EUR";
+    private static final int RECENT_DAYS = 7;
     private static final List<String> TARGETS = List.of("USD","GBP","JPY","CAD","CHF","MXN","PLN");
 
     // El BCE publica ~16:00 CET. Precarga 16:10 Europa/Madrid, lunes-viernes.
     @Scheduled(cron = "0 10 16 * * MON-FRI", zone = "Europe/Madrid")
     public void preloadDaily() {
         LocalDate today = LocalDate.now();
-        for (String to : TARGETS) {
-            if (to.equals(BASE)) continue;
-            if (repo.findByFromCurrencyAndToCurrencyAndDate(BASE, to, today).isPresent()) continue;
-            var rate = provider.rate(BASE, to, today);
+        Set<String> stored = repo.findByFromCurrencyAndDate(BASE, today).stream()
+                .map(ExchangeRate::getToCurrency)
+                .collect(Collectors.toSet());
+        List<String> missing = TARGETS.stream()
+                .filter(to -> !to.equals(BASE) && !stored.contains(to))
+                .toList();
+        if (missing.isEmpty()) return;
+
+        // Una sola petición por base y día (symbols=USD,GBP,...)
+        Map<String, BigDecimal> rates = fetcher.rates(BASE, missing, today);
+        for (String to : missing) {
+            BigDecimal rate = rates.get(to);
+            if (rate == null) {
+                log.warn("FX sin tasa {} -> {} {}", BASE, to, today);
+                continue;
+            }
             repo.save(ExchangeRate.builder().fromCurrency(BASE).toCurrency(to).rate(rate).date(today).build());
+            rateCache.put(BASE, to, today, rate);
             log.info("FX saved {} -> {} {} {}", BASE, to, rate, today);
         }
+        // Refresca el volcado en disco para que un reinicio arranque con los tipos de hoy
+        exchangeRateService.saveSnapshot();
+    }
+
+    // Tras la precarga: asegura los últimos días (incluidos fines de semana y festivos,
+    // rellenados con el último publicado) con una sola petición de serie
+    @Scheduled(cron = "0 30 16 * * *", zone = "Europe/Madrid")
+    public void backfillRecent() {
+        LocalDate today = LocalDate.now();
+        try {
+            backfillService.backfill(today.minusDays(RECENT_DAYS), today, backfillService.defaultBases());
+        } catch (RuntimeException e) {
+            log.warn("FX backfill reciente fallido: {}", e.getMessage());
+        }
     }
 }
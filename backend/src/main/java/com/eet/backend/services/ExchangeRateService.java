@@ -1,35 +1,151 @@
 package com.eet.backend.services;
 
+import com.eet.backend.dto.CurrencyConversionRequestDto;
+import com.eet.backend.dto.CurrencyConversionResponseDto;
+import com.eet.backend.dto.ExchangeRateDto;
 import com.eet.backend.model.ExchangeRate;
+import com.eet.backend.model.Money;
+import com.eet.backend.repositories.ExchangeRateQueryRepository;
 import com.eet.backend.repositories.ExchangeRateRepository;
-import com.eet.backend.services.fx.RateProvider;
-import jakarta.transaction.Transactional;
+import com.eet.backend.services.fx.CircuitBreaker;
+import com.eet.backend.services.fx.FxRateCache;
+import com.eet.backend.services.fx.FxRateSnapshot;
+import com.eet.backend.services.fx.HedgedRateFetcher;
+import com.eet.backend.services.fx.SingleFlight;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sin @Transactional a nivel de clase: un acierto de caché no debe pedir conexión al pool
 @Service
 @RequiredArgsConstructor
-@Transactional
+@Slf4j
 public class ExchangeRateService {
 
     private final ExchangeRateRepository repo;
-    private final RateProvider primary;                       // Frankfurter
-    private final Optional<RateProvider> freeCurrencyFallback; // FreeCurrencyAPI si está habilitado
+    private final ExchangeRateQueryRepository queries;
+    private final HedgedRateFetcher fetcher; // Frankfurter con cobertura (hedge) a FreeCurrencyAPI
+    private final FxRateCache rateCache;
+    private final CircuitBreaker breaker;   // corta las llamadas a proveedores tras fallos seguidos
+    private final FxRateSnapshot snapshot;  // volcado binario de la caché para arrancar en caliente
 
     private static final int SCALE = 6;
+    private static final int MAX_STALE_ENTRIES = 1024;
+
+    // Fallos concurrentes sobre la misma (from, to, date) comparten una sola carga
+    private final SingleFlight<RateKey, Optional<ExchangeRate>> rateLoads = new SingleFlight<>();
+    // Fila pivote->* de una fecha: se calienta entera con una sola petición al proveedor
+    private final SingleFlight<LocalDate, Map<String, BigDecimal>> pivotLoads = new SingleFlight<>();
+
+    // Triangulación: solo se piden/persisten las patas pivote->X; los cruces se derivan
+    @Value("${fx.triangulation.enabled:true}") boolean triangulationEnabled;
+    @Value("${fx.triangulation.pivot:EUR}") String pivot;
+    @Value("${fx.triangulation.scale:6}") int triangulationScale;
+    @Value("${fx.triangulation.rounding:HALF_EVEN}") RoundingMode triangulationRounding;
+
+    // Stale-while-revalidate: con los proveedores caídos se sirve el último tipo guardado del par,
+    // y no se vuelve a intentar la descarga para esa clave hasta pasados staleRetryMs
+    @Value("${fx.stale.enabled:true}") boolean staleEnabled;
+    @Value("${fx.stale.retry-ms:60000}") long staleRetryMs;
+    private final ConcurrentHashMap<RateKey, StaleRate> staleRates = new ConcurrentHashMap<>();
+
+    // Antes de servir la primera petición: la caché se rellena desde el último volcado
+    @PostConstruct
+    void warmFromSnapshot() {
+        if (!snapshot.isEnabled()) return;
+        long start = System.nanoTime();
+        try {
+            int dates = snapshot.loadInto(rateCache);
+            if (dates > 0) {
+                log.info("Caché FX cargada desde snapshot: {} fechas en {} ms", dates, (System.nanoTime() - start) / 1_000_000);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se pudo leer el snapshot FX, arranque en frío: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void saveSnapshot() {
+        if (!snapshot.isEnabled()) return;
+        try {
+            snapshot.write(rateCache);
+        } catch (IOException | RuntimeException e) {
+            log.warn("No se pudo escribir el snapshot FX: {}", e.getMessage());
+        }
+    }
 
     public BigDecimal convert(BigDecimal amount, String from, String to) {
         if (from.equalsIgnoreCase(to)) return amount;
-        BigDecimal r = getRate(from, to, LocalDate.now())
-                .map(ExchangeRate::getRate)
-                .orElseThrow(() -> new IllegalStateException("No rate " + from + "->" + to));
-        return amount.multiply(r);
+        // Escala fija (la de BD): amount.multiply(rate) sin más iba acumulando decimales
+        return amount.multiply(rateFor(from, to)).setScale(Money.SCALE, RoundingMode.HALF_EVEN);
+    }
+
+    /** Igual que {@link #convert(BigDecimal, String, String)} para los bucles de agregación en punto fijo. */
+    public Money convert(Money amount, String from, String to) {
+        if (from.equalsIgnoreCase(to) || amount.isZero()) return amount;
+        return amount.times(rateFor(from, to));
+    }
+
+    private BigDecimal rateFor(String from, String to) {
+        String f = from.toUpperCase(), t = to.toUpperCase();
+        LocalDate d = LocalDate.now();
+
+        // Camino rápido: lectura directa de la matriz, sin tocar la BD
+        BigDecimal r = rateCache.get(f, t, d);
+        if (r == null) {
+            // La matriz ya se miró (y contó el fallo): se resuelve sin volver a consultarla.
+            // from == to no llega aquí, convert() lo devuelve antes
+            r = resolveMiss(f, t, d)
+                    .map(ExchangeRate::getRate)
+                    .orElseThrow(() -> new IllegalStateException("No rate " + from + "->" + to));
+        }
+        return r;
+    }
+
+    /** Convierte una lista de importes resolviendo cada (from, to, fecha) distinto una sola vez. */
+    public List<CurrencyConversionResponseDto> convertAll(List<CurrencyConversionRequestDto> items) {
+        LocalDate today = LocalDate.now();
+        Map<RateKey, ExchangeRate> resolved = new HashMap<>();
+        List<CurrencyConversionResponseDto> results = new ArrayList<>(items.size());
+
+        for (CurrencyConversionRequestDto item : items) {
+            if (item == null || item.getAmount() == null
+                    || item.getFromCurrency() == null || item.getToCurrency() == null) {
+                throw new IllegalArgumentException("amount, fromCurrency y toCurrency son obligatorios");
+            }
+            RateKey key = new RateKey(item.getFromCurrency().toUpperCase(), item.getToCurrency().toUpperCase(),
+                    item.getDate() == null ? today : item.getDate());
+            ExchangeRate er = resolved.computeIfAbsent(key, k -> getRate(k.from(), k.to(), k.date())
+                    .orElseThrow(() -> new IllegalStateException("No rate " + k.from() + "->" + k.to())));
+
+            results.add(CurrencyConversionResponseDto.builder()
+                    .originalAmount(item.getAmount())
+                    .fromCurrency(key.from())
+                    .toCurrency(key.to())
+                    .convertedAmount(item.getAmount().multiply(er.getRate()).setScale(Money.SCALE, RoundingMode.HALF_EVEN))
+                    .exchangeRate(er.getRate())
+                    .rateDate(er.getDate())
+                    .stale(er.isStale())
+                    .build());
+        }
+        return results;
     }
 
     public Optional<ExchangeRate> getRate(String from, String to) { return getRate(from, to, LocalDate.now()); }
@@ -45,30 +161,188 @@ public class ExchangeRateService {
                     .date(d).build());
         }
 
+        BigDecimal cached = rateCache.get(f, t, d);
+        if (cached != null) {
+            return Optional.of(ExchangeRate.builder()
+                    .fromCurrency(f).toCurrency(t)
+                    .rate(cached)
+                    .date(d).build());
+        }
+        return resolveMiss(f, t, d);
+    }
+
+    // Fallo de la matriz: tipo stale reciente, cruce por el pivote o carga de BD/proveedor
+    private Optional<ExchangeRate> resolveMiss(String f, String t, LocalDate d) {
+        RateKey key = new RateKey(f, t, d);
+        StaleRate recent = staleRates.get(key);
+        if (recent != null) {
+            if (System.currentTimeMillis() < recent.retryAt()) return Optional.of(recent.rate());
+            staleRates.remove(key, recent); // toca revalidar
+        }
+
+        if (triangulationEnabled && !f.equals(pivot.toUpperCase())) {
+            ExchangeRate derived = triangulate(f, t, d);
+            // Un cruce derivado de una pata stale tampoco entra en la matriz
+            if (derived.isStale()) rememberStale(key, derived);
+            else rateCache.put(f, t, d, derived.getRate());
+            return Optional.of(derived);
+        }
+        try {
+            return load(f, t, d);
+        } catch (IllegalStateException e) {
+            if (!staleEnabled) throw e;
+            return Optional.of(serveStale(key, e));
+        }
+    }
+
+    private Optional<ExchangeRate> load(String f, String t, LocalDate d) {
+        if (triangulationEnabled && rateCache.supports(t)) {
+            BigDecimal r = pivotLoads.execute(d, () -> warmPivotRow(d)).get(t);
+            if (r != null) {
+                return Optional.of(ExchangeRate.builder()
+                        .fromCurrency(f).toCurrency(t)
+                        .rate(r)
+                        .date(d).build());
+            }
+        }
+        // Se cachea dentro de la carga para que quien llegue justo después ya acierte
+        return rateLoads.execute(new RateKey(f, t, d), () -> {
+            Optional<ExchangeRate> rate = loadOrFetch(f, t, d);
+            rate.ifPresent(er -> rateCache.put(f, t, d, er.getRate()));
+            return rate;
+        });
+    }
+
+    private Optional<ExchangeRate> loadOrFetch(String f, String t, LocalDate d) {
         return repo.findByFromCurrencyAndToCurrencyAndDate(f,t,d)
-                .or(() -> {
-                    BigDecimal r = fetchWithFallback(f,t,d);
-                    ExchangeRate saved = repo.save(ExchangeRate.builder()
-                            .fromCurrency(f).toCurrency(t).rate(r).date(d).build());
-                    return Optional.of(saved);
-                });
-    }
-
-    private BigDecimal fetchWithFallback(String from, String to, LocalDate date) {
-        try { return primary.rate(from, to, date); }
-        catch (Exception e) {
-            return freeCurrencyFallback
-                    .map(p -> p.rate(from, to, date))
-                    .orElseThrow(() -> new IllegalStateException("Fuentes FX caídas: " + e.getMessage(), e));
+                .or(() -> saveRate(f, t, breaker.call(() -> fetcher.rate(f,t,d)), d));
+    }
+
+    private ExchangeRate serveStale(RateKey key, IllegalStateException cause) {
+        ExchangeRate last = repo.findFirstByFromCurrencyAndToCurrencyAndDateLessThanEqualOrderByDateDesc(
+                        key.from(), key.to(), key.date())
+                .orElseThrow(() -> cause);
+        ExchangeRate stale = ExchangeRate.builder()
+                .fromCurrency(last.getFromCurrency()).toCurrency(last.getToCurrency())
+                .rate(last.getRate())
+                .date(last.getDate())
+                .stale(true).build();
+        log.warn("Proveedores FX sin respuesta ({}); sirviendo {}->{} del {}",
+                cause.getMessage(), key.from(), key.to(), last.getDate());
+        rememberStale(key, stale);
+        return stale;
+    }
+
+    private void rememberStale(RateKey key, ExchangeRate stale) {
+        long now = System.currentTimeMillis();
+        if (staleRates.size() > MAX_STALE_ENTRIES) staleRates.values().removeIf(sr -> sr.retryAt() <= now);
+        staleRates.put(key, new StaleRate(stale, now + staleRetryMs));
+    }
+
+    // Lo que falte en BD de pivote->* para la fecha se pide en UNA llamada (symbols=USD,GBP,...)
+    private Map<String, BigDecimal> warmPivotRow(LocalDate d) {
+        String p = pivot.toUpperCase();
+        Map<String, BigDecimal> row = new HashMap<>();
+        repo.findByFromCurrencyAndDate(p, d).forEach(er -> row.put(er.getToCurrency(), er.getRate()));
+
+        List<String> missing = rateCache.getCurrencies().stream()
+                .filter(c -> !c.equals(p) && !row.containsKey(c))
+                .toList();
+        if (!missing.isEmpty()) {
+            Map<String, BigDecimal> fetched;
+            try {
+                fetched = breaker.call(() -> fetcher.rates(p, missing, d));
+            } catch (IllegalStateException e) {
+                // Fila parcial: lo que falte acabará en el tipo stale de cada par
+                log.warn("No se pudo completar la fila {} del {}: {}", p, d, e.getMessage());
+                fetched = Map.of();
+            }
+            for (String to : missing) {
+                BigDecimal r = fetched.get(to);
+                if (r != null) saveRate(p, to, r, d).ifPresent(er -> row.put(to, er.getRate()));
+            }
         }
+        row.forEach((to, r) -> rateCache.put(p, to, d, r));
+        return row;
+    }
+
+    private Optional<ExchangeRate> saveRate(String f, String t, BigDecimal r, LocalDate d) {
+        try {
+            return Optional.of(repo.save(ExchangeRate.builder()
+                    .fromCurrency(f).toCurrency(t).rate(r).date(d).build()));
+        } catch (DataIntegrityViolationException e) {
+            // Otra instancia la guardó antes (unique from/to/date): nos quedamos con la suya
+            return repo.findByFromCurrencyAndToCurrencyAndDate(f,t,d);
+        }
+    }
+
+    // f->t = (pivote->t) / (pivote->f). El resultado no se persiste, solo se cachea.
+    private ExchangeRate triangulate(String f, String t, LocalDate d) {
+        String p = pivot.toUpperCase();
+        ExchangeRate pivotToFrom = pivotLeg(p, f, d);
+        ExchangeRate pivotToTo = t.equals(p) ? null : pivotLeg(p, t, d);
+        if (pivotToFrom.getRate().signum() == 0) {
+            throw new IllegalStateException("Tipo pivote nulo " + p + "->" + f);
+        }
+        BigDecimal numerator = pivotToTo == null ? BigDecimal.ONE : pivotToTo.getRate();
+        BigDecimal r = numerator.divide(pivotToFrom.getRate(), triangulationScale, triangulationRounding);
+        return ExchangeRate.builder()
+                .fromCurrency(f).toCurrency(t)
+                .rate(r)
+                .date(d)
+                .stale(pivotToFrom.isStale() || (pivotToTo != null && pivotToTo.isStale()))
+                .build();
+    }
+
+    private ExchangeRate pivotLeg(String p, String to, LocalDate d) {
+        return getRate(p, to, d)
+                .orElseThrow(() -> new IllegalStateException("No rate " + p + "->" + to));
     }
 
-    public List<ExchangeRate> getAll() {
-        return repo.findAll();
+    public FxRateCache.Stats getCacheStats() {
+        return rateCache.stats();
+    }
+
+    public SingleFlight.Stats getFetchStats() {
+        return rateLoads.stats();
+    }
+
+    public SingleFlight.Stats getPivotFetchStats() {
+        return pivotLoads.stats();
+    }
+
+    public HedgedRateFetcher.Stats getHedgeStats() {
+        return fetcher.stats();
+    }
+
+    public CircuitBreaker.Stats getBreakerStats() {
+        return breaker.stats();
+    }
+
+    public int getStaleRateCount() {
+        return staleRates.size();
+    }
+
+    public ExchangeRateQueryRepository.Version getRatesVersion() {
+        return queries.version();
+    }
+
+    /** Página por keyset; se pide una fila de más para saber si hay siguiente página. */
+    public RatePage getRatesPage(ExchangeRateQueryRepository.Filter filter, String cursor, int limit) {
+        List<ExchangeRateDto> rows = queries.page(filter, ExchangeRateQueryRepository.Cursor.parse(cursor), limit + 1);
+        if (rows.size() <= limit) return new RatePage(rows, null);
+        List<ExchangeRateDto> page = rows.subList(0, limit);
+        return new RatePage(page, ExchangeRateQueryRepository.Cursor.of(page.get(limit - 1)).toString());
     }
 
     public Set<String> getSupportedCurrencies() {
         // Puedes delegar a Frankfurter /currencies si quieres. Aquí fija un set.
         return Set.of("EUR","USD","GBP","JPY","CAD","CHF","MXN","PLN");
     }
+
+    private record RateKey(String from, String to, LocalDate date) {}
+
+    public record RatePage(List<ExchangeRateDto> rates, String nextCursor) {}
+
+    private record StaleRate(ExchangeRate rate, long retryAt) {}
 }
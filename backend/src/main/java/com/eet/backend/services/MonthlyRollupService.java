@@ -0,0 +1,213 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.stats.CategoryCurrencyTotal;
+import com.eet.backend.dto.stats.RollupBucket;
+import com.eet.backend.dto.stats.RollupCheckDto;
+import com.eet.backend.dto.stats.RollupMismatchDto;
+import com.eet.backend.model.MonthlyRollup;
+import com.eet.backend.model.RecurringTransaction;
+import com.eet.backend.model.Transaction;
+import com.eet.backend.model.TransactionType;
+import com.eet.backend.repositories.MonthlyRollupRepository;
+import com.eet.backend.repositories.TransactionRepository;
+import com.eet.backend.services.stats.UserStatsChangedEvent;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Mantiene monthly_rollups: cada alta/baja/edición de una transacción suma o resta su
+ * importe en el cubo (usuario, mes, tipo, categoría, moneda) dentro de la misma
+ * transacción de BD. Las estadísticas leen de aquí en lugar de recorrer transactions.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@Transactional
+public class MonthlyRollupService {
+
+    private final MonthlyRollupRepository rollupRepository;
+    private final TransactionRepository transactionRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${stats.rollups.rebuild-on-startup:true}") boolean rebuildOnStartup = true;
+
+    public void add(Transaction tx) {
+        apply(tx, 1);
+    }
+
+    public void remove(Transaction tx) {
+        apply(tx, -1);
+    }
+
+    /** Resta un lote (p. ej. las transacciones de un viaje borrado) con un upsert por cubo. */
+    public void removeAll(Collection<? extends Transaction> txs) {
+        Map<Key, BigDecimal> totals = new HashMap<>();
+        Map<Key, Long> counts = new HashMap<>();
+        for (Transaction tx : txs) {
+            Key key = keyOf(tx);
+            if (key == null) continue;
+            totals.merge(key, tx.getAmount(), BigDecimal::add);
+            counts.merge(key, 1L, Long::sum);
+        }
+        totals.forEach((key, total) -> addToBucket(key, total.negate(), -counts.get(key)));
+    }
+
+    private void apply(Transaction tx, int sign) {
+        Key key = keyOf(tx);
+        if (key == null) return;
+        addToBucket(key, sign < 0 ? tx.getAmount().negate() : tx.getAmount(), sign);
+    }
+
+    // Upsert atómico en BD: dos primeras escrituras concurrentes al mismo cubo se suman, no chocan
+    private void addToBucket(Key key, BigDecimal amount, long count) {
+        rollupRepository.upsertBucket(key.userId(), key.period(), key.type(),
+                key.categoryId(), key.currency(), amount, count);
+    }
+
+    // Las plantillas recurrentes no cuentan (mismo criterio que isRecurringTemplate)
+    private static Key keyOf(Transaction tx) {
+        if (tx instanceof RecurringTransaction) return null;
+        if (tx.getUser() == null || tx.getDate() == null || tx.getType() == null
+                || tx.getCategory() == null || tx.getAmount() == null) return null;
+        return new Key(tx.getUser().getUserId(), MonthlyRollup.period(tx.getDate()), tx.getType(),
+                tx.getCategory().getCategoryId(), tx.getCurrency());
+    }
+
+    // ==================== LECTURAS ====================
+
+    /** Totales por (tipo, categoría, moneda) de los meses [from, to], ambos incluidos. */
+    public List<CategoryCurrencyTotal> totals(UUID userId, YearMonth from, YearMonth to) {
+        return rollupRepository.sumByTypeCategoryCurrency(userId, MonthlyRollup.period(from), MonthlyRollup.period(to));
+    }
+
+    /** Lo mismo que {@link #totals} pero repartido por mes, con una única consulta. */
+    public Map<YearMonth, List<CategoryCurrencyTotal>> totalsByMonth(UUID userId, YearMonth from, YearMonth to) {
+        Map<YearMonth, List<CategoryCurrencyTotal>> byMonth = new HashMap<>();
+        for (CategoryCurrencyTotal row : rollupRepository.findMonthlyTotals(
+                userId, MonthlyRollup.period(from), MonthlyRollup.period(to))) {
+            YearMonth ym = YearMonth.of(row.getPeriod() / 100, row.getPeriod() % 100);
+            byMonth.computeIfAbsent(ym, k -> new ArrayList<>()).add(row);
+        }
+        return byMonth;
+    }
+
+    /** Suma por moneda de un tipo en un mes, sin convertir. */
+    public Map<String, BigDecimal> totalsByCurrency(UUID userId, YearMonth month, TransactionType type) {
+        Map<String, BigDecimal> result = new HashMap<>();
+        for (Object[] row : rollupRepository.sumByCurrency(userId, MonthlyRollup.period(month), type)) {
+            result.put((String) row[0], (BigDecimal) row[1]);
+        }
+        return result;
+    }
+
+    // ==================== RECONSTRUCCIÓN Y COMPROBACIÓN ====================
+
+    /** Borra los cubos del usuario y los recalcula desde transactions. */
+    public int rebuild(UUID userId) {
+        rollupRepository.deleteByUserId(userId);
+        List<MonthlyRollup> rows = transactionRepository.aggregateMonthly(userId).stream()
+                .map(MonthlyRollupService::toRollup)
+                .toList();
+        rollupRepository.saveAll(rows);
+        log.info("Rollups de {} reconstruidos: {} cubos", userId, rows.size());
+        // Las estadísticas cacheadas se calcularon con los cubos viejos
+        eventPublisher.publishEvent(new UserStatsChangedEvent(userId, "rollups-rebuilt"));
+        return rows.size();
+    }
+
+    public int rebuildAll() {
+        rollupRepository.deleteAllInBatch();
+        List<MonthlyRollup> rows = transactionRepository.aggregateMonthlyAll().stream()
+                .map(MonthlyRollupService::toRollup)
+                .toList();
+        rollupRepository.saveAll(rows);
+        log.info("Rollups reconstruidos: {} cubos", rows.size());
+        return rows.size();
+    }
+
+    /** Compara los cubos guardados con el agregado en bruto; no modifica nada. */
+    public RollupCheckDto check(UUID userId) {
+        Map<Key, RollupBucket> expected = new HashMap<>();
+        for (RollupBucket b : transactionRepository.aggregateMonthly(userId)) {
+            expected.put(new Key(b.getUserId(), b.getPeriod(), b.getType(), b.getCategoryId(), b.getCurrency()), b);
+        }
+
+        List<RollupMismatchDto> mismatches = new ArrayList<>();
+        Set<Key> seen = new HashSet<>();
+        for (MonthlyRollup r : rollupRepository.findByUserId(userId)) {
+            Key key = new Key(r.getUserId(), r.getPeriod(), r.getType(), r.getCategoryId(), r.getCurrency());
+            seen.add(key);
+            RollupBucket b = expected.get(key);
+            BigDecimal expectedTotal = b != null ? b.getTotal() : BigDecimal.ZERO;
+            long expectedCount = b != null ? b.getCount() : 0;
+            if (expectedTotal.compareTo(r.getTotal()) != 0 || expectedCount != r.getTxCount()) {
+                mismatches.add(mismatch(key, expectedTotal, expectedCount, r.getTotal(), r.getTxCount()));
+            }
+        }
+        expected.forEach((key, b) -> {
+            if (!seen.contains(key)) {
+                mismatches.add(mismatch(key, b.getTotal(), b.getCount(), BigDecimal.ZERO, 0));
+            }
+        });
+        mismatches.sort(Comparator.comparingInt(RollupMismatchDto::getPeriod));
+
+        return RollupCheckDto.builder()
+                .userId(userId)
+                .buckets(expected.size())
+                .consistent(mismatches.isEmpty())
+                .mismatches(mismatches)
+                .build();
+    }
+
+    // Primera puesta en marcha: la tabla nace vacía aunque ya haya transacciones
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfEmpty() {
+        if (!rebuildOnStartup) return;
+        try {
+            if (rollupRepository.count() == 0 && transactionRepository.countPlain() > 0) {
+                rebuildAll();
+            }
+        } catch (RuntimeException e) {
+            log.warn("No se pudieron inicializar los rollups mensuales: {}", e.getMessage());
+        }
+    }
+
+    private static MonthlyRollup toRollup(RollupBucket b) {
+        return MonthlyRollup.builder()
+                .userId(b.getUserId())
+                .period(b.getPeriod())
+                .type(b.getType())
+                .categoryId(b.getCategoryId())
+                .currency(b.getCurrency())
+                .total(b.getTotal())
+                .txCount(b.getCount())
+                .build();
+    }
+
+    private static RollupMismatchDto mismatch(Key key, BigDecimal expectedTotal, long expectedCount,
+                                              BigDecimal rollupTotal, long rollupCount) {
+        return RollupMismatchDto.builder()
+                .period(key.period())
+                .type(key.type())
+                .categoryId(key.categoryId())
+                .currency(key.currency())
+                .expectedTotal(expectedTotal)
+                .rollupTotal(rollupTotal)
+                .expectedCount(expectedCount)
+                .rollupCount(rollupCount)
+                .build();
+    }
+
+    private record Key(UUID userId, int period, TransactionType type, UUID categoryId, String currency) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.eet.backend.services;
+
+import com.eet.backend.model.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Catch-up de recurrentes fuera del camino de las lecturas: GET /api/transactions solo lo
+ * encola (una vez por usuario y día) y responde enseguida; el hilo del pool crea las
+ * ocurrencias atrasadas. Mientras tanto {@link #isPending} permite avisar al cliente.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class RecurringCatchUpService {
+
+    private final RecurringTransactionService recurringTransactionService;
+
+    @Value("${recurring.catch-up.threads:2}") int threads = 2;
+    @Value("${recurring.catch-up.queue-capacity:500}") int queueCapacity = 500;
+
+    // Último día en que se encoló el catch-up de cada usuario; se vacía al cambiar de día
+    private final ConcurrentHashMap<UUID, LocalDate> triggered = new ConcurrentHashMap<>();
+    private final Set<UUID> pending = ConcurrentHashMap.newKeySet();
+    private volatile LocalDate day = LocalDate.now();
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger n = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "recurring-catch-up-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Encola el catch-up del usuario si no se ha hecho hoy. Devuelve true si hay uno
+     * pendiente (recién encolado o todavía en curso), false si ya está al día.
+     */
+    public boolean requestCatchUp(User user) {
+        UUID userId = user.getUserId();
+        LocalDate today = LocalDate.now();
+        if (!today.equals(day)) {
+            day = today;
+            triggered.clear();
+        }
+        if (triggered.putIfAbsent(userId, today) != null) {
+            return pending.contains(userId);
+        }
+
+        pending.add(userId);
+        try {
+            executor.execute(() -> run(user));
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Cola llena: se suelta la marca para que lo intente la siguiente lectura
+            pending.remove(userId);
+            triggered.remove(userId, today);
+            log.warn("Catch-up de recurrentes de {} descartado: cola llena ({})", userId, queueCapacity);
+            return false;
+        }
+    }
+
+    public boolean isPending(UUID userId) {
+        return pending.contains(userId);
+    }
+
+    private void run(User user) {
+        try {
+            int created = recurringTransactionService.processDueTransactionsForUser(user);
+            if (created > 0) {
+                log.info("Catch-up de recurrentes de {}: {} transacciones creadas", user.getUserId(), created);
+            }
+        } catch (RuntimeException e) {
+            // Se reintentará en la siguiente lectura (o en el job de las 03:00)
+            triggered.remove(user.getUserId());
+            log.warn("Catch-up de recurrentes de {} fallido: {}", user.getUserId(), e.getMessage());
+        } finally {
+            pending.remove(user.getUserId());
+        }
+    }
+}
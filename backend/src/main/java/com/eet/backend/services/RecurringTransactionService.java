@@ -8,13 +8,20 @@ import com.eet.backend.repositories.RecurringTransactionRepository;
 import com.eet.backend.repositories.TripRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 @Transactional
@@ -27,6 +34,12 @@ public class RecurringTransactionService {
     private final CategoryRepository categoryRepository;
     private final TripRepository tripRepository;
 
+    private final TransactionTemplate transactionTemplate;
+    private final UserLockStripes userLocks;
+
+    // Además del lock local, pg_advisory_xact_lock por usuario (solo PostgreSQL; para varios nodos)
+    @Value("${recurring.lock.advisory:false}") boolean advisoryLock;
+
     public List<RecurringTransaction> getAll() {
         return recurringTransactionRepository.findAll();
     }
@@ -43,45 +56,20 @@ public class RecurringTransactionService {
         recurringTransactionRepository.deleteById(id);
     }
 
-    @Transactional
+    /**
+     * Job diario: cada usuario con recurrentes vencidas se procesa en su propia transacción
+     * y bajo su lock, así que puede solaparse con los catch-up de GET /api/transactions.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public int processDueTransactions() {
         LocalDate today = LocalDate.now();
-        List<RecurringTransaction> due =
-                recurringTransactionRepository.findByActiveTrueAndNextExecutionLessThanEqual(today);
-
         int created = 0;
-
-        for (RecurringTransaction rt : due) {
-            // Crea todas las ocurrencias pendientes hasta hoy
-            while (rt.isActive()
-                    && !isFinished(rt)
-                    && !rt.getNextExecution().isAfter(today)) {
-
-                Transaction newTx = Transaction.builder()
-                        .type(rt.getType())
-                        .amount(rt.getAmount())
-                        .currency(rt.getCurrency())
-                        .date(rt.getNextExecution()) // 👈 FECHA CORRECTA
-                        .description(rt.getDescription())
-                        .user(rt.getUser())
-                        .trip(rt.getTrip())
-                        .category(rt.getCategory())
-                        .build();
-
-                transactionService.save(newTx);
-                created++;
-
-                // Avanza estado
-                rt.setExecutedOccurrences(
-                        (rt.getExecutedOccurrences() == null ? 0 : rt.getExecutedOccurrences()) + 1
-                );
-                rt.setNextExecution(nextDate(rt.getNextExecution(), rt.getRecurrencePattern()));
-
-                if (isFinished(rt)) {
-                    rt.setActive(false);
-                }
+        for (User user : recurringTransactionRepository.findUsersWithDue(today)) {
+            try {
+                created += processDueTransactionsForUser(user);
+            } catch (RuntimeException e) {
+                log.warn("Recurrentes de {} sin procesar: {}", user.getUserId(), e.getMessage());
             }
-            recurringTransactionRepository.save(rt);
         }
         return created;
     }
@@ -163,38 +151,45 @@ public class RecurringTransactionService {
     }
 
     private void processOneRecurring(RecurringTransaction rt) {
-        LocalDate today = LocalDate.now();
         if (rt.getExecutedOccurrences() == null) rt.setExecutedOccurrences(0);
         if (rt.getNextExecution() == null) rt.setNextExecution(calcNextExecution(rt));
+        catchUp(rt, LocalDate.now());
+        recurringTransactionRepository.save(rt);
+    }
 
+    /**
+     * Crea las ocurrencias pendientes hasta {@code today}, fechadas en su ejecución programada.
+     * Las fechas que ya tienen ocurrencia (clave plantilla + fecha) se saltan pero hacen avanzar
+     * el estado, de modo que repetir el proceso no duplica nada.
+     */
+    private int catchUp(RecurringTransaction rt, LocalDate today) {
+        Set<LocalDate> generated = new HashSet<>(
+                recurringTransactionRepository.findOccurrenceDates(rt.getTransactionId(), rt.getNextExecution()));
+        int created = 0;
         while (rt.isActive() && !isFinished(rt) && !rt.getNextExecution().isAfter(today)) {
-            Transaction newTx = Transaction.builder()
-                    .type(rt.getType())
-                    .amount(rt.getAmount())
-                    .currency(rt.getCurrency())
-                    .date(rt.getNextExecution())
-                    .description(rt.getDescription())
-                    .user(rt.getUser())
-                    .trip(rt.getTrip())
-                    .category(rt.getCategory())
-                    .build();
-
-            transactionService.save(newTx);
+            LocalDate occurrence = rt.getNextExecution();
+            if (!generated.contains(occurrence)) {
+                transactionService.save(Transaction.builder()
+                        .type(rt.getType())
+                        .amount(rt.getAmount())
+                        .currency(rt.getCurrency())
+                        .date(occurrence)
+                        .description(rt.getDescription())
+                        .user(rt.getUser())
+                        .trip(rt.getTrip())
+                        .category(rt.getCategory())
+                        .recurringSourceId(rt.getTransactionId())
+                        .occurrenceDate(occurrence)
+                        .build());
+                created++;
+            }
 
             rt.setExecutedOccurrences(rt.getExecutedOccurrences() + 1);
-            rt.setNextExecution(nextDate(rt.getNextExecution(), rt.getRecurrencePattern()));
+            rt.setNextExecution(nextDate(occurrence, rt.getRecurrencePattern()));
 
             if (isFinished(rt)) rt.setActive(false);
         }
-        recurringTransactionRepository.save(rt);
-    }
-    private LocalDate getNextExecutionDate(LocalDate current, RecurrencePattern pattern) {
-        return switch (pattern) {
-            case DAILY -> current.plusDays(1);
-            case WEEKLY -> current.plusWeeks(1);
-            case MONTHLY -> current.plusMonths(1);
-            case YEARLY -> current.plusYears(1);
-        };
+        return created;
     }
 
     private LocalDate calcNextExecution(RecurringTransaction e) {
@@ -202,12 +197,7 @@ public class RecurringTransactionService {
         LocalDate base = e.getRecurrenceStartDate() != null ? e.getRecurrenceStartDate() : e.getDate();
         if (base.isAfter(LocalDate.now())) return base;
 
-        return switch (e.getRecurrencePattern()) {
-            case DAILY -> LocalDate.now().plusDays(1);
-            case WEEKLY -> LocalDate.now().plusWeeks(1);
-            case MONTHLY -> LocalDate.now().plusMonths(1);
-            case YEARLY -> LocalDate.now().plusYears(1);
-        };
+        return nextDate(LocalDate.now(), e.getRecurrencePattern());
     }
 
     public Optional<RecurringTransaction> updateFromDto(UUID id, RecurringTransactionUpdateDTO dto, User user) {
@@ -246,9 +236,26 @@ public class RecurringTransactionService {
     }
 
 
-    // RecurringTransactionService
-    @Transactional
+    /**
+     * Catch-up de un usuario. El lock por usuario envuelve la transacción entera (hasta el
+     * commit), así que una segunda llamada concurrente ve ya el nextExecution avanzado. Si otro
+     * nodo generó las mismas ocurrencias, la UNIQUE (plantilla, fecha) hace fallar esta pasada.
+     */
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public int processDueTransactionsForUser(User user) {
+        try {
+            return userLocks.withLock(user.getUserId(), () -> transactionTemplate.execute(status -> processLocked(user)));
+        } catch (DataIntegrityViolationException e) {
+            log.info("Recurrentes de {} ya generadas por otro proceso", user.getUserId());
+            return 0;
+        }
+    }
+
+    private int processLocked(User user) {
+        if (advisoryLock) {
+            UUID id = user.getUserId();
+            recurringTransactionRepository.advisoryXactLock(id.getMostSignificantBits() ^ id.getLeastSignificantBits());
+        }
         LocalDate today = LocalDate.now();
 
         // Trae solo las recurrentes del usuario que están vencidas o al día de hoy y activas
@@ -256,7 +263,6 @@ public class RecurringTransactionService {
                 .findByUserAndActiveTrueAndNextExecutionLessThanEqual(user, today);
 
         int created = 0;
-
         for (RecurringTransaction rt : due) {
             // Normaliza fechas nulas por si acaso
             if (rt.getNextExecution() == null) {
@@ -265,40 +271,11 @@ public class RecurringTransactionService {
             if (rt.getExecutedOccurrences() == null) {
                 rt.setExecutedOccurrences(0);
             }
-
-            // Crea TODAS las ocurrencias pendientes hasta hoy (catch-up)
-            while (rt.isActive()
-                    && !isFinished(rt)
-                    && !rt.getNextExecution().isAfter(today)) {
-
-                // Crear transacción NORMAL fechada en la ejecución programada
-                Transaction newTx = Transaction.builder()
-                        .type(rt.getType())
-                        .amount(rt.getAmount())
-                        .currency(rt.getCurrency())
-                        .date(rt.getNextExecution()) // ← fecha correcta
-                        .description(rt.getDescription())
-                        .user(rt.getUser())          // o 'user' (equivalen)
-                        .trip(rt.getTrip())
-                        .category(rt.getCategory())
-                        .build();
-
-                transactionService.save(newTx);
-                created++;
-
-                // Avanza estado de la recurrente
-                rt.setExecutedOccurrences(rt.getExecutedOccurrences() + 1);
-                rt.setNextExecution(nextDate(rt.getNextExecution(), rt.getRecurrencePattern()));
-
-                if (isFinished(rt)) {
-                    rt.setActive(false);
-                }
-            }
+            created += catchUp(rt, today);
 
             // Guarda cambios de la recurrente (nextExecution/occurrences/active)
             recurringTransactionRepository.save(rt);
         }
-
         return created;
     }
 
@@ -3,15 +3,16 @@ package com.eet.backend.services;
 import com.eet.backend.dto.stats.*;
 import com.eet.backend.model.*;
 import com.eet.backend.repositories.*;
+import com.eet.backend.services.stats.CategoryIndex;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.time.LocalDate;
 import java.time.YearMonth;
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,332 +25,359 @@ public class StatsService {
     private final UserRepository userRepository;
     private final TripRepository tripRepository;
     private final ExchangeRateService exchangeRateService;
+    private final MonthlyRollupService monthlyRollupService;
 
-    // Excluye plantillas de transacciones recurrentes de todos los cálculos
-    private static boolean isRecurringTemplate(Transaction tx) {
-        return tx instanceof RecurringTransaction;
+    private Money toPreferred(Money amount, String currency, String preferredCurrency) {
+        return currency.equals(preferredCurrency)
+                ? amount
+                : exchangeRateService.convert(amount, currency, preferredCurrency);
     }
 
-    public MonthlySummaryDto getMonthlySummary(UUID userId, Integer month, Integer year) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
+    private Summarizer summarizer(String preferredCurrency) {
+        return new Summarizer(preferredCurrency);
+    }
 
-        String preferredCurrency = user.getPreferredCurrency();
+    /**
+     * Estado de una petición: cada fila se convierte una sola vez aunque la usen varias
+     * vistas (p. ej. en el bundle) y las categorías se numeran con un {@link CategoryIndex}
+     * para sumar en arrays en lugar de mapas por etiqueta.
+     */
+    private final class Summarizer {
+        final String preferredCurrency;
+        final CategoryIndex categories = new CategoryIndex();
+        final Map<CategoryCurrencyTotal, Money> converted = new IdentityHashMap<>();
+
+        Summarizer(String preferredCurrency) {
+            this.preferredCurrency = preferredCurrency;
+        }
 
-        YearMonth target = (month != null && year != null)
-                ? YearMonth.of(year, month)
-                : YearMonth.now();
+        long convert(CategoryCurrencyTotal g) {
+            return converted.computeIfAbsent(g, r -> toPreferred(Money.of(r.getTotal()), r.getCurrency(), preferredCurrency))
+                    .minor();
+        }
 
-        LocalDate start = target.atDay(1);
-        LocalDate end = target.atEndOfMonth();
+        // Los totales llegan agrupados por (tipo, categoría, moneda): una conversión por grupo, no por transacción
+        Totals totals(List<CategoryCurrencyTotal> groups) {
+            int[] index = new int[groups.size()];
+            for (int i = 0; i < index.length; i++) {
+                CategoryCurrencyTotal g = groups.get(i);
+                index[i] = categories.indexOf(g.getCategoryId(), g.getCategoryName(), g.getCategoryEmoji());
+            }
 
-        List<Transaction> transactions = transactionRepository.findByUserAndDateBetween(user, start, end)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
+            Totals totals = new Totals(categories);
+            for (int i = 0; i < index.length; i++) {
+                CategoryCurrencyTotal g = groups.get(i);
+                long amount = convert(g);
+                int c = index[i];
+
+                if (g.getType() == TransactionType.INCOME) {
+                    totals.income = Math.addExact(totals.income, amount);
+                    totals.incomeByCategory[c] = Math.addExact(totals.incomeByCategory[c], amount);
+                    totals.hasIncome[c] = true;
+                } else if (g.getType() == TransactionType.EXPENSE) {
+                    totals.expense = Math.addExact(totals.expense, amount);
+                    totals.expenseByCategory[c] = Math.addExact(totals.expenseByCategory[c], amount);
+                    totals.hasExpense[c] = true;
+                }
+            }
+            return totals;
+        }
+    }
 
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpense = BigDecimal.ZERO;
-        Map<String, BigDecimal> expensesByCategory = new HashMap<>();
+    // Sumas en diezmilésimas (escala de Money); a BigDecimal y etiquetas solo al montar el DTO
+    private static final class Totals {
+        final CategoryIndex categories;
+        long income;
+        long expense;
+        final long[] incomeByCategory;
+        final long[] expenseByCategory;
+        final boolean[] hasIncome;
+        final boolean[] hasExpense;
+
+        Totals(CategoryIndex categories) {
+            int n = categories.size();
+            this.categories = categories;
+            this.incomeByCategory = new long[n];
+            this.expenseByCategory = new long[n];
+            this.hasIncome = new boolean[n];
+            this.hasExpense = new boolean[n];
+        }
 
-        for (Transaction tx : transactions) {
-            BigDecimal originalAmount = tx.getAmount();
-            String txCurrency = tx.getCurrency();
+        BigDecimal income() {
+            return BigDecimal.valueOf(income, Money.SCALE);
+        }
 
-            BigDecimal convertedAmount = txCurrency.equals(preferredCurrency)
-                    ? originalAmount
-                    : exchangeRateService.convert(originalAmount, txCurrency, preferredCurrency);
+        BigDecimal expense() {
+            return BigDecimal.valueOf(expense, Money.SCALE);
+        }
 
-            if (tx.getType() == TransactionType.INCOME) {
-                totalIncome = totalIncome.add(convertedAmount);
-            } else {
-                totalExpense = totalExpense.add(convertedAmount);
-                String key = (tx.getCategory().getEmoji() != null ? tx.getCategory().getEmoji() + " " : "")
-                        + tx.getCategory().getName();
-                expensesByCategory.merge(key, convertedAmount, BigDecimal::add);
-            }
+        BigDecimal balance() {
+            return BigDecimal.valueOf(Math.subtractExact(income, expense), Money.SCALE);
         }
 
-        Optional<Budget> optionalBudget =
-                budgetRepository.findByUserAndMonthAndYear(user, target.getMonthValue(), target.getYear());
-        BigDecimal monthlyBudget = optionalBudget.map(Budget::getMaxSpending).orElse(null);
-        BigDecimal percentUsed = (monthlyBudget != null && monthlyBudget.compareTo(BigDecimal.ZERO) > 0)
-                ? totalExpense.multiply(BigDecimal.valueOf(100))
-                .divide(monthlyBudget, 2, RoundingMode.HALF_UP)
-                : null;
+        Map<String, BigDecimal> incomeByCategory() {
+            return categories.toMap(incomeByCategory, hasIncome, categories::name);
+        }
 
-        return MonthlySummaryDto.builder()
-                .totalIncome(totalIncome)
-                .totalExpense(totalExpense)
-                .balance(totalIncome.subtract(totalExpense))
-                .monthlyBudget(monthlyBudget)
-                .budgetUsedPercent(percentUsed)
-                .expensesByCategory(expensesByCategory)
-                .convertedCurrency(preferredCurrency)
-                .build();
+        Map<String, BigDecimal> expenseByCategory() {
+            return categories.toMap(expenseByCategory, hasExpense, categories::name);
+        }
+
+        Map<String, BigDecimal> expenseByCategoryLabel() {
+            return categories.toMap(expenseByCategory, hasExpense, categories::label);
+        }
     }
 
-    public List<MonthlyEvolutionEntryDto> getMonthlyEvolution(UUID userId, int monthsBack) {
-        User user = userRepository.findById(userId)
+    private User getUser(UUID userId) {
+        return userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
+    }
 
-        String preferredCurrency = user.getPreferredCurrency();
-        LocalDate now = LocalDate.now();
-        LocalDate startDate = now.minusMonths(monthsBack - 1).withDayOfMonth(1);
+    private static YearMonth targetMonth(Integer month, Integer year) {
+        return (month != null && year != null)
+                ? YearMonth.of(year, month)
+                : YearMonth.now();
+    }
 
-        List<Transaction> transactions = transactionRepository.findByUserAndDateAfter(user, startDate)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
+    private static List<CategoryCurrencyTotal> monthsOf(Map<YearMonth, List<CategoryCurrencyTotal>> byMonth,
+                                                        YearMonth from, YearMonth to) {
+        List<CategoryCurrencyTotal> rows = new ArrayList<>();
+        for (YearMonth ym = from; !ym.isAfter(to); ym = ym.plusMonths(1)) {
+            rows.addAll(byMonth.getOrDefault(ym, List.of()));
+        }
+        return rows;
+    }
 
-        Map<YearMonth, List<Transaction>> grouped = transactions.stream()
-                .collect(Collectors.groupingBy(tx -> YearMonth.from(tx.getDate())));
+    public MonthlySummaryDto getMonthlySummary(UUID userId, Integer month, Integer year) {
+        User user = getUser(userId);
+        YearMonth target = targetMonth(month, year);
 
-        List<MonthlyEvolutionEntryDto> result = new ArrayList<>();
+        return monthlySummary(user, target, monthlyRollupService.totals(userId, target, target),
+                summarizer(user.getPreferredCurrency()));
+    }
 
-        for (int i = 0; i < monthsBack; i++) {
-            YearMonth ym = YearMonth.now().minusMonths(monthsBack - 1 - i);
-            List<Transaction> monthTxs = grouped.getOrDefault(ym, List.of());
+    public List<MonthlyEvolutionEntryDto> getMonthlyEvolution(UUID userId, int monthsBack) {
+        User user = getUser(userId);
+        YearMonth current = YearMonth.now();
 
-            BigDecimal income = BigDecimal.ZERO;
-            BigDecimal expense = BigDecimal.ZERO;
+        // Una sola lectura para toda la ventana, repartida por mes
+        Map<YearMonth, List<CategoryCurrencyTotal>> byMonth =
+                monthlyRollupService.totalsByMonth(userId, current.minusMonths(monthsBack - 1), current);
 
-            for (Transaction tx : monthTxs) {
-                BigDecimal originalAmount = tx.getAmount();
-                String txCurrency = tx.getCurrency();
+        return monthlyEvolution(byMonth, current, monthsBack, summarizer(user.getPreferredCurrency()));
+    }
 
-                BigDecimal convertedAmount = txCurrency.equals(preferredCurrency)
-                        ? originalAmount
-                        : exchangeRateService.convert(originalAmount, txCurrency, preferredCurrency);
+    public IncomeVsExpenseDto getIncomeVsExpense(UUID userId, int month, int year) {
+        User user = getUser(userId);
+        YearMonth target = YearMonth.of(year, month);
 
-                if (tx.getType() == TransactionType.INCOME) {
-                    income = income.add(convertedAmount);
-                } else if (tx.getType() == TransactionType.EXPENSE) {
-                    expense = expense.add(convertedAmount);
-                }
-            }
+        return incomeVsExpense(monthlyRollupService.totals(userId, target, target),
+                summarizer(user.getPreferredCurrency()));
+    }
 
-            result.add(MonthlyEvolutionEntryDto.builder()
-                    .month(ym.toString()) // YYYY-MM
-                    .income(income)
-                    .expense(expense)
-                    .balance(income.subtract(expense))
-                    .build());
-        }
+    public List<MonthlyComparisonDto> getMonthlyComparison(UUID userId, int monthsBack) {
+        User user = getUser(userId);
+        YearMonth current = YearMonth.now();
 
-        return result;
+        Map<YearMonth, List<CategoryCurrencyTotal>> byMonth =
+                monthlyRollupService.totalsByMonth(userId, current.minusMonths(monthsBack - 1), current);
+
+        return monthlyComparison(byMonth, current, monthsBack, summarizer(user.getPreferredCurrency()));
     }
 
-    public IncomeVsExpenseDto getIncomeVsExpense(UUID userId, int month, int year) {
-        User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
+    public List<TripSpendingDto> getTripSpending(UUID userId) {
+        User user = getUser(userId);
         String preferredCurrency = user.getPreferredCurrency();
 
-        LocalDate start = LocalDate.of(year, month, 1);
-        LocalDate end = start.withDayOfMonth(start.lengthOfMonth());
+        List<TripSpendingDto> result = tripSpending(userId, trip -> preferredCurrency);
 
-        List<Transaction> transactions = transactionRepository.findByUserUserIdAndDateBetween(userId, start, end)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
+        result.sort((a, b) -> b.getTotalSpent().compareTo(a.getTotalSpent()));
+        return result;
+    }
 
-        Map<String, BigDecimal> incomeByCategory = new HashMap<>();
-        Map<String, BigDecimal> expenseByCategory = new HashMap<>();
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpense = BigDecimal.ZERO;
+    public AnnualSummaryDto getAnnualSummary(UUID userId, int year) {
+        User user = getUser(userId);
 
-        for (Transaction tx : transactions) {
-            BigDecimal originalAmount = tx.getAmount();
-            String txCurrency = tx.getCurrency();
+        return annualSummary(year, monthlyRollupService.totals(userId, YearMonth.of(year, 1), YearMonth.of(year, 12)),
+                user.getPreferredCurrency(), summarizer(user.getPreferredCurrency()));
+    }
 
-            BigDecimal convertedAmount = txCurrency.equals(preferredCurrency)
-                    ? originalAmount
-                    : exchangeRateService.convert(originalAmount, txCurrency, preferredCurrency);
+    /**
+     * Las seis vistas de la página de estadísticas de una vez: el usuario se carga una vez,
+     * se lee del rollup el rango que cubre todas (un solo SELECT) y cada fila se convierte
+     * una sola vez aunque aparezca en varias vistas.
+     */
+    public StatsBundleDto getBundle(UUID userId, Integer month, Integer year,
+                                    int evolutionMonths, int comparisonMonths) {
+        User user = getUser(userId);
+        String preferredCurrency = user.getPreferredCurrency();
+        YearMonth target = targetMonth(month, year);
+        YearMonth current = YearMonth.now();
+        int annualYear = target.getYear();
+
+        YearMonth from = Collections.min(List.of(target, YearMonth.of(annualYear, 1),
+                current.minusMonths(Math.max(evolutionMonths, comparisonMonths) - 1)));
+        YearMonth to = Collections.max(List.of(target, YearMonth.of(annualYear, 12), current));
+        Map<YearMonth, List<CategoryCurrencyTotal>> byMonth = monthlyRollupService.totalsByMonth(userId, from, to);
+
+        Summarizer summarizer = summarizer(preferredCurrency);
+        List<CategoryCurrencyTotal> targetRows = byMonth.getOrDefault(target, List.of());
+
+        return StatsBundleDto.builder()
+                .monthlySummary(monthlySummary(user, target, targetRows, summarizer))
+                .monthlyEvolution(monthlyEvolution(byMonth, current, evolutionMonths, summarizer))
+                .incomeVsExpense(incomeVsExpense(targetRows, summarizer))
+                .monthlyComparison(monthlyComparison(byMonth, current, comparisonMonths, summarizer))
+                .annualSummary(annualSummary(annualYear,
+                        monthsOf(byMonth, YearMonth.of(annualYear, 1), YearMonth.of(annualYear, 12)),
+                        preferredCurrency, summarizer))
+                .tripSpending(getTripSpendingByUser(userId))
+                .build();
+    }
 
-            String categoryName = tx.getCategory() != null ? tx.getCategory().getName() : "Uncategorized";
+    // ==================== CONSTRUCCIÓN DE VISTAS ====================
 
-            if (tx.getType() == TransactionType.INCOME) {
-                incomeByCategory.merge(categoryName, convertedAmount, BigDecimal::add);
-                totalIncome = totalIncome.add(convertedAmount);
-            } else if (tx.getType() == TransactionType.EXPENSE) {
-                expenseByCategory.merge(categoryName, convertedAmount, BigDecimal::add);
-                totalExpense = totalExpense.add(convertedAmount);
-            }
-        }
+    private MonthlySummaryDto monthlySummary(User user, YearMonth target, List<CategoryCurrencyTotal> rows,
+                                             Summarizer summarizer) {
+        Totals totals = summarizer.totals(rows);
+        BigDecimal totalIncome = totals.income();
+        BigDecimal totalExpense = totals.expense();
+        Map<String, BigDecimal> expensesByCategory = totals.expenseByCategoryLabel();
 
-        return IncomeVsExpenseDto.builder()
+        Optional<Budget> optionalBudget =
+                budgetRepository.findByUserAndMonthAndYear(user, target.getMonthValue(), target.getYear());
+        BigDecimal monthlyBudget = optionalBudget.map(Budget::getMaxSpending).orElse(null);
+        BigDecimal percentUsed = (monthlyBudget != null && monthlyBudget.compareTo(BigDecimal.ZERO) > 0)
+                ? totalExpense.multiply(BigDecimal.valueOf(100))
+                .divide(monthlyBudget, 2, RoundingMode.HALF_UP)
+                : null;
+
+        return MonthlySummaryDto.builder()
                 .totalIncome(totalIncome)
                 .totalExpense(totalExpense)
-                .incomeByCategory(incomeByCategory)
-                .expenseByCategory(expenseByCategory)
+                .balance(totalIncome.subtract(totalExpense))
+                .monthlyBudget(monthlyBudget)
+                .budgetUsedPercent(percentUsed)
+                .expensesByCategory(expensesByCategory)
+                .convertedCurrency(user.getPreferredCurrency())
                 .build();
     }
 
-    public List<MonthlyComparisonDto> getMonthlyComparison(UUID userId, int monthsBack) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        String preferredCurrency = user.getPreferredCurrency();
-
-        LocalDate now = LocalDate.now();
-        List<MonthlyComparisonDto> results = new ArrayList<>();
+    private static List<MonthlyEvolutionEntryDto> monthlyEvolution(Map<YearMonth, List<CategoryCurrencyTotal>> byMonth,
+                                                                   YearMonth current, int monthsBack,
+                                                                   Summarizer summarizer) {
+        YearMonth first = current.minusMonths(monthsBack - 1);
+        List<MonthlyEvolutionEntryDto> result = new ArrayList<>();
 
         for (int i = 0; i < monthsBack; i++) {
-            LocalDate target = now.minusMonths(i);
-            int month = target.getMonthValue();
-            int year = target.getYear();
-            LocalDate start = LocalDate.of(year, month, 1);
-            LocalDate end = start.withDayOfMonth(start.lengthOfMonth());
-
-            List<Transaction> transactions = transactionRepository.findByUserUserIdAndDateBetween(userId, start, end)
-                    .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
-
-            BigDecimal totalIncome = BigDecimal.ZERO;
-            BigDecimal totalExpense = BigDecimal.ZERO;
-            Map<String, BigDecimal> incomeByCategory = new HashMap<>();
-            Map<String, BigDecimal> expenseByCategory = new HashMap<>();
-
-            for (Transaction tx : transactions) {
-                BigDecimal originalAmount = tx.getAmount();
-                String txCurrency = tx.getCurrency();
-
-                BigDecimal convertedAmount = txCurrency.equals(preferredCurrency)
-                        ? originalAmount
-                        : exchangeRateService.convert(originalAmount, txCurrency, preferredCurrency);
-
-                String category = tx.getCategory() != null ? tx.getCategory().getName() : "Uncategorized";
-
-                if (tx.getType() == TransactionType.INCOME) {
-                    totalIncome = totalIncome.add(convertedAmount);
-                    incomeByCategory.merge(category, convertedAmount, BigDecimal::add);
-                } else if (tx.getType() == TransactionType.EXPENSE) {
-                    totalExpense = totalExpense.add(convertedAmount);
-                    expenseByCategory.merge(category, convertedAmount, BigDecimal::add);
-                }
-            }
+            YearMonth ym = first.plusMonths(i);
+            Totals totals = summarizer.totals(byMonth.getOrDefault(ym, List.of()));
 
-            results.add(MonthlyComparisonDto.builder()
-                    .month(month)
-                    .year(year)
-                    .totalIncome(totalIncome)
-                    .totalExpense(totalExpense)
-                    .incomeByCategory(incomeByCategory)
-                    .expenseByCategory(expenseByCategory)
+            result.add(MonthlyEvolutionEntryDto.builder()
+                    .month(ym.toString()) // YYYY-MM
+                    .income(totals.income())
+                    .expense(totals.expense())
+                    .balance(totals.balance())
                     .build());
         }
 
-        results.sort(Comparator.comparing((MonthlyComparisonDto dto) -> dto.getYear() * 100 + dto.getMonth()));
-        return results;
+        return result;
     }
 
-    public List<TripSpendingDto> getTripSpending(UUID userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("User not found"));
-        String preferredCurrency = user.getPreferredCurrency();
+    private static IncomeVsExpenseDto incomeVsExpense(List<CategoryCurrencyTotal> rows,
+                                                      Summarizer summarizer) {
+        Totals totals = summarizer.totals(rows);
 
-        List<Trip> trips = tripRepository.findByUserUserId(userId);
-        List<TripSpendingDto> result = new ArrayList<>();
-
-        for (Trip trip : trips) {
-            List<Transaction> txs = transactionRepository.findByTrip_TripId(trip.getTripId())
-                    .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
-
-            BigDecimal total = BigDecimal.ZERO;
-            Map<String, BigDecimal> byCategory = new HashMap<>();
-
-            for (Transaction tx : txs) {
-                if (tx.getType() == TransactionType.EXPENSE) {
-                    BigDecimal originalAmount = tx.getAmount();
-                    String currency = tx.getCurrency();
+        return IncomeVsExpenseDto.builder()
+                .totalIncome(totals.income())
+                .totalExpense(totals.expense())
+                .incomeByCategory(totals.incomeByCategory())
+                .expenseByCategory(totals.expenseByCategory())
+                .build();
+    }
 
-                    BigDecimal convertedAmount = currency.equals(preferredCurrency)
-                            ? originalAmount
-                            : exchangeRateService.convert(originalAmount, currency, preferredCurrency);
+    private static List<MonthlyComparisonDto> monthlyComparison(Map<YearMonth, List<CategoryCurrencyTotal>> byMonth,
+                                                                YearMonth current, int monthsBack,
+                                                                Summarizer summarizer) {
+        List<MonthlyComparisonDto> results = new ArrayList<>();
 
-                    total = total.add(convertedAmount);
-                    String category = tx.getCategory() != null ? tx.getCategory().getName() : "Uncategorized";
-                    byCategory.merge(category, convertedAmount, BigDecimal::add);
-                }
-            }
+        for (int i = 0; i < monthsBack; i++) {
+            YearMonth target = current.minusMonths(i);
+            Totals totals = summarizer.totals(byMonth.getOrDefault(target, List.of()));
 
-            result.add(TripSpendingDto.builder()
-                    .tripId(trip.getTripId())
-                    .name(trip.getName())
-                    .startDate(trip.getStartDate())
-                    .endDate(trip.getEndDate())
-                    .currency(preferredCurrency)
-                    .totalSpent(total)
-                    .expenseByCategory(byCategory)
+            results.add(MonthlyComparisonDto.builder()
+                    .month(target.getMonthValue())
+                    .year(target.getYear())
+                    .totalIncome(totals.income())
+                    .totalExpense(totals.expense())
+                    .incomeByCategory(totals.incomeByCategory())
+                    .expenseByCategory(totals.expenseByCategory())
                     .build());
         }
 
-        result.sort((a, b) -> b.getTotalSpent().compareTo(a.getTotalSpent()));
-        return result;
+        results.sort(Comparator.comparing((MonthlyComparisonDto dto) -> dto.getYear() * 100 + dto.getMonth()));
+        return results;
     }
 
-    public AnnualSummaryDto getAnnualSummary(UUID userId, int year) {
-        LocalDate start = LocalDate.of(year, 1, 1);
-        LocalDate end = LocalDate.of(year, 12, 31);
-        User user = userRepository.findById(userId).orElseThrow(() -> new RuntimeException("User not found"));
-        String preferredCurrency = user.getPreferredCurrency();
-
-        List<Transaction> txs = transactionRepository.findByUserUserIdAndDateBetween(userId, start, end)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
-
-        BigDecimal totalIncome = BigDecimal.ZERO;
-        BigDecimal totalExpense = BigDecimal.ZERO;
-        Map<String, BigDecimal> incomeByCategory = new HashMap<>();
-        Map<String, BigDecimal> expenseByCategory = new HashMap<>();
-
-        for (Transaction tx : txs) {
-            BigDecimal originalAmount = tx.getAmount();
-            String txCurrency = tx.getCurrency();
-
-            BigDecimal convertedAmount = txCurrency.equals(preferredCurrency)
-                    ? originalAmount
-                    : exchangeRateService.convert(originalAmount, txCurrency, preferredCurrency);
-
-            String category = tx.getCategory() != null ? tx.getCategory().getName() : "Uncategorized";
-
-            if (tx.getType() == TransactionType.INCOME) {
-                totalIncome = totalIncome.add(convertedAmount);
-                incomeByCategory.merge(category, convertedAmount, BigDecimal::add);
-            } else if (tx.getType() == TransactionType.EXPENSE) {
-                totalExpense = totalExpense.add(convertedAmount);
-                expenseByCategory.merge(category, convertedAmount, BigDecimal::add);
-            }
-        }
+    private static AnnualSummaryDto annualSummary(int year, List<CategoryCurrencyTotal> rows, String preferredCurrency,
+                                                  Summarizer summarizer) {
+        Totals totals = summarizer.totals(rows);
 
         return AnnualSummaryDto.builder()
                 .year(year)
-                .totalIncome(totalIncome)
-                .totalExpense(totalExpense)
-                .totalSaving(totalIncome.subtract(totalExpense))
-                .incomeByCategory(incomeByCategory)
-                .expenseByCategory(expenseByCategory)
+                .totalIncome(totals.income())
+                .totalExpense(totals.expense())
+                .totalSaving(totals.balance())
+                .incomeByCategory(totals.incomeByCategory())
+                .expenseByCategory(totals.expenseByCategory())
                 .convertedCurrency(preferredCurrency)
                 .build();
     }
 
     public List<TripSpendingDto> getTripSpendingByUser(UUID userId) {
-        List<Trip> trips = tripRepository.findByUserUserId(userId);
+        // Cada viaje en su propia moneda (si no tiene, se dejan los importes tal cual)
+        return tripSpending(userId, Trip::getCurrency);
+    }
 
-        return trips.stream().map(trip -> {
-            List<Transaction> expenses = transactionRepository
-                    .findByUserIdAndTrip_TripIdAndType(userId, trip.getTripId(), TransactionType.EXPENSE)
-                    .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
+    // Viajes + una consulta agrupada por (viaje, categoría, moneda): coste fijo sea cual sea el nº de viajes
+    private List<TripSpendingDto> tripSpending(UUID userId, Function<Trip, String> targetCurrency) {
+        List<Trip> trips = tripRepository.findByUserUserId(userId);
+        Map<UUID, List<TripCategoryCurrencyTotal>> groupsByTrip = transactionRepository
+                .sumTripExpensesByCategoryCurrency(userId).stream()
+                .collect(Collectors.groupingBy(TripCategoryCurrencyTotal::getTripId));
 
-            BigDecimal totalSpent = expenses.stream()
-                    .map(Transaction::getAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        CategoryIndex categories = new CategoryIndex();
+        List<TripSpendingDto> result = new ArrayList<>();
+        for (Trip trip : trips) {
+            String currency = targetCurrency.apply(trip);
+            List<TripCategoryCurrencyTotal> groups = groupsByTrip.getOrDefault(trip.getTripId(), List.of());
+            int[] index = new int[groups.size()];
+            for (int i = 0; i < index.length; i++) {
+                index[i] = categories.indexOf(groups.get(i).getCategoryId(), groups.get(i).getCategoryName(), null);
+            }
 
-            Map<String, BigDecimal> expenseByCategory = expenses.stream()
-                    .collect(Collectors.groupingBy(
-                            tx -> tx.getCategory().getName(),
-                            Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-                    ));
+            long total = 0;
+            long[] byCategory = new long[categories.size()];
+            boolean[] present = new boolean[categories.size()];
+            for (int i = 0; i < index.length; i++) {
+                TripCategoryCurrencyTotal g = groups.get(i);
+                Money amount = Money.of(g.getTotal());
+                long converted = (currency != null ? toPreferred(amount, g.getCurrency(), currency) : amount).minor();
+                total = Math.addExact(total, converted);
+                byCategory[index[i]] = Math.addExact(byCategory[index[i]], converted);
+                present[index[i]] = true;
+            }
 
-            return TripSpendingDto.builder()
+            result.add(TripSpendingDto.builder()
                     .tripId(trip.getTripId())
                     .name(trip.getName())
                     .startDate(trip.getStartDate())
                     .endDate(trip.getEndDate())
-                    .currency(trip.getCurrency())
-                    .totalSpent(totalSpent)
-                    .expenseByCategory(expenseByCategory)
-                    .build();
-        }).collect(Collectors.toList());
+                    .currency(currency)
+                    .totalSpent(BigDecimal.valueOf(total, Money.SCALE))
+                    .expenseByCategory(categories.toMap(byCategory, present, categories::name))
+                    .build());
+        }
+        return result;
     }
 }
@@ -6,19 +6,22 @@ import com.eet.backend.dto.SummaryDto;
 import com.eet.backend.dto.TransactionDto;
 import com.eet.backend.model.*;
 import com.eet.backend.repositories.BudgetRepository;
+import com.eet.backend.repositories.TransactionQueryRepository;
 import com.eet.backend.repositories.TransactionRepository;
 import com.eet.backend.repositories.TripRepository;
+import com.eet.backend.services.stats.UserStatsChangedEvent;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDate;
 import java.time.YearMonth;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,34 +32,52 @@ import java.util.UUID;
 public class TransactionService {
 
     private final TransactionRepository transactionRepository;
+    private final TransactionQueryRepository transactionQueryRepository;
     private final BudgetRepository budgetRepository;
     private final TripRepository tripRepository;
     private final ExchangeRateService exchangeRateService;
+    private final MonthlyRollupService monthlyRollupService;
+    private final BalanceLedgerService balanceLedgerService;
+    private final ApplicationEventPublisher eventPublisher;
 
     // Excluir plantillas de recurrentes en cálculos de resúmenes/balances
     private static boolean isRecurringTemplate(Transaction tx) {
         return tx instanceof RecurringTransaction;
     }
 
-    public DashboardDto getDashboard(User user) {
-        List<Transaction> transactions = transactionRepository.findByUser(user)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
+    // Balance sin convertir desde el ledger: una fila por moneda
+    private Money rawBalance(UUID userId) {
+        Money balance = Money.ZERO;
+        for (BalanceLedger entry : balanceLedgerService.entries(userId)) {
+            balance = balance.plus(Money.of(entry.net()));
+        }
+        return balance;
+    }
 
-        BigDecimal balance = BigDecimal.ZERO;
-        BigDecimal currentMonthExpenses = BigDecimal.ZERO;
-        YearMonth currentMonth = YearMonth.now();
+    // Balance en la moneda preferida: una conversión por moneda, no por transacción
+    private Money convertedBalance(User user) {
+        Money balance = Money.ZERO;
+        for (BalanceLedger entry : balanceLedgerService.entries(user.getUserId())) {
+            balance = balance.plus(exchangeRateService.convert(
+                    Money.of(entry.net()), entry.getCurrency(), user.getPreferredCurrency()));
+        }
+        return balance;
+    }
 
-        for (Transaction tx : transactions) {
-            BigDecimal amount = tx.getAmount();
-            if (tx.getType() == TransactionType.INCOME) {
-                balance = balance.add(amount);
-            } else if (tx.getType() == TransactionType.EXPENSE) {
-                balance = balance.subtract(amount);
-                if (YearMonth.from(tx.getDate()).equals(currentMonth)) {
-                    currentMonthExpenses = currentMonthExpenses.add(amount);
-                }
-            }
+    // Gasto del mes en curso sin convertir, desde el rollup mensual
+    private Money rawCurrentMonthExpenses(UUID userId) {
+        Money total = Money.ZERO;
+        for (BigDecimal amount : monthlyRollupService.totalsByCurrency(
+                userId, YearMonth.now(), TransactionType.EXPENSE).values()) {
+            total = total.plus(Money.of(amount));
         }
+        return total;
+    }
+
+    public DashboardDto getDashboard(User user) {
+        YearMonth currentMonth = YearMonth.now();
+        BigDecimal balance = rawBalance(user.getUserId()).toBigDecimal();
+        BigDecimal currentMonthExpenses = rawCurrentMonthExpenses(user.getUserId()).toBigDecimal();
 
         Budget budget = budgetRepository
                 .findByUserAndMonthAndYear(user, currentMonth.getMonthValue(), currentMonth.getYear())
@@ -93,78 +114,61 @@ public class TransactionService {
         return transactionRepository.findByUserUserId(userId);
     }
 
+    /** Página por keyset; se pide una fila de más para saber si hay siguiente página. */
+    public TransactionPage getPage(UUID userId, TransactionQueryRepository.Filter filter, String cursor, int limit) {
+        List<Transaction> rows = transactionQueryRepository.page(
+                userId, filter, TransactionQueryRepository.Cursor.parse(cursor), limit + 1);
+        if (rows.size() <= limit) return new TransactionPage(rows, null);
+        List<Transaction> page = rows.subList(0, limit);
+        return new TransactionPage(page, TransactionQueryRepository.Cursor.of(page.get(limit - 1)).toString());
+    }
+
     public Optional<Transaction> getById(UUID id) {
         return transactionRepository.findById(id);
     }
 
+    // Solo altas: una edición tiene que restar los valores antiguos de rollups y ledger, y eso lo hace update()
     public Transaction save(Transaction transaction) {
+        if (transaction.getTransactionId() != null) {
+            throw new IllegalArgumentException("save() solo crea transacciones; usa update() para editar " + transaction.getTransactionId());
+        }
         if (transaction.getTrip() != null && transaction.getTrip().getTripId() != null) {
             UUID tripId = transaction.getTrip().getTripId();
             Trip trip = tripRepository.findById(tripId)
                     .orElseThrow(() -> new RuntimeException("Trip not found: " + tripId));
             transaction.setTrip(trip);
         }
-        return transactionRepository.save(transaction);
+        Transaction saved = transactionRepository.save(transaction);
+        monthlyRollupService.add(saved);
+        balanceLedgerService.add(saved);
+        publishChanged(saved, "transaction-saved");
+        return saved;
     }
 
     public void delete(UUID id) {
-        transactionRepository.deleteById(id);
+        transactionRepository.findById(id).ifPresent(tx -> {
+            monthlyRollupService.remove(tx);
+            balanceLedgerService.remove(tx);
+            transactionRepository.delete(tx);
+            publishChanged(tx, "transaction-deleted");
+        });
     }
 
-    public DashboardSummaryDto getDashboardSummary(UUID userId) {
-        List<Transaction> allTransactions = transactionRepository.findByUserUserId(userId)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
-
-        BigDecimal income = allTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.INCOME)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal expenses = allTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalBalance = income.subtract(expenses);
-
-        YearMonth now = YearMonth.now();
-        BigDecimal currentMonthExpenses = allTransactions.stream()
-                .filter(t -> t.getType() == TransactionType.EXPENSE)
-                .filter(t -> {
-                    LocalDate date = t.getDate();
-                    return date.getYear() == now.getYear() && date.getMonth() == now.getMonth();
-                })
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        List<Transaction> recentTransactions = allTransactions.stream()
-                .sorted((a, b) -> b.getDate().compareTo(a.getDate()))
-                .limit(5)
-                .toList();
+    private void publishChanged(Transaction tx, String reason) {
+        if (tx.getUser() != null) {
+            eventPublisher.publishEvent(new UserStatsChangedEvent(tx.getUser().getUserId(), reason));
+        }
+    }
 
-        return new DashboardSummaryDto(totalBalance, currentMonthExpenses, recentTransactions);
+    public DashboardSummaryDto getDashboardSummary(UUID userId) {
+        List<Transaction> recentTransactions = transactionRepository.findRecentPlain(userId, PageRequest.of(0, 5));
+        return new DashboardSummaryDto(rawBalance(userId).toBigDecimal(),
+                rawCurrentMonthExpenses(userId).toBigDecimal(), recentTransactions);
     }
 
     public SummaryDto getSummary(User user) {
-        List<Transaction> transactions = transactionRepository.findByUser(user)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
-
-        YearMonth currentMonth = YearMonth.now();
-        BigDecimal balance = BigDecimal.ZERO;
-        BigDecimal monthlyExpenses = BigDecimal.ZERO;
-
-        for (Transaction tx : transactions) {
-            BigDecimal converted = exchangeRateService.convert(tx.getAmount(), tx.getCurrency(), user.getPreferredCurrency());
-            if (tx.getType() == TransactionType.INCOME) {
-                balance = balance.add(converted);
-            } else {
-                balance = balance.subtract(converted);
-                if (YearMonth.from(tx.getDate()).equals(currentMonth)) {
-                    monthlyExpenses = monthlyExpenses.add(converted);
-                }
-            }
-        }
-        return new SummaryDto(balance, monthlyExpenses, user.getPreferredCurrency());
+        return new SummaryDto(convertedBalance(user).toBigDecimal(), getCurrentMonthExpenses(user),
+                user.getPreferredCurrency());
     }
 
     public List<Transaction> getRecentByUser(User user, int limit) {
@@ -174,53 +178,30 @@ public class TransactionService {
     }
 
     public BigDecimal getBalance(User user) {
-        List<Transaction> transactions = transactionRepository.findByUser(user)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
-
-        return transactions.stream()
-                .map(tx -> {
-                    BigDecimal converted = exchangeRateService.convert(
-                            tx.getAmount(), tx.getCurrency(), user.getPreferredCurrency()
-                    );
-                    return tx.getType() == TransactionType.INCOME ? converted : converted.negate();
-                })
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return convertedBalance(user).toBigDecimal();
     }
 
     public BigDecimal getCurrentMonthExpenses(User user) {
-        LocalDate now = LocalDate.now();
-        LocalDate startOfMonth = now.withDayOfMonth(1);
-        LocalDate endOfMonth = now.withDayOfMonth(now.lengthOfMonth());
-
-        List<Transaction> expenses = transactionRepository.findByUserAndTypeAndDateBetween(
-                        user, TransactionType.EXPENSE, startOfMonth, endOfMonth)
-                .stream().filter(tx -> !isRecurringTemplate(tx)).toList();
-
-        return expenses.stream()
-                .map(tx -> exchangeRateService.convert(
-                        tx.getAmount(), tx.getCurrency(), user.getPreferredCurrency()
-                ))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
-    // TransactionService
-    public int processDueRecurringTransactions() {
-        throw new UnsupportedOperationException("Use RecurringTransactionService.processDueTransactions()");
-    }
-
-    private LocalDate getNextExecutionDate(LocalDate current, RecurrencePattern pattern) {
-        return switch (pattern) {
-            case DAILY -> current.plusDays(1);
-            case WEEKLY -> current.plusWeeks(1);
-            case MONTHLY -> current.plusMonths(1);
-            case YEARLY -> current.plusYears(1);
-        };
+        // Del rollup mensual: una suma por moneda y una conversión por moneda
+        Map<String, BigDecimal> byCurrency = monthlyRollupService.totalsByCurrency(
+                user.getUserId(), YearMonth.now(), TransactionType.EXPENSE);
+
+        Money total = Money.ZERO;
+        for (Map.Entry<String, BigDecimal> e : byCurrency.entrySet()) {
+            total = total.plus(exchangeRateService.convert(
+                    Money.of(e.getValue()), e.getKey(), user.getPreferredCurrency()
+            ));
+        }
+        return total.toBigDecimal();
     }
 
     public Optional<Transaction> update(UUID id, Transaction updated, User user) {
         return transactionRepository.findById(id)
                 .filter(tx -> tx.getUser().getUserId().equals(user.getUserId()))
                 .map(existing -> {
+                    // Se resta con los valores antiguos y se suma con los nuevos: puede cambiar de cubo
+                    monthlyRollupService.remove(existing);
+                    balanceLedgerService.remove(existing);
                     existing.setAmount(updated.getAmount());
                     existing.setCurrency(updated.getCurrency());
                     existing.setDate(updated.getDate());
@@ -235,11 +216,17 @@ public class TransactionService {
                     } else {
                         existing.setTrip(null);
                     }
-                    return transactionRepository.save(existing);
+                    Transaction saved = transactionRepository.save(existing);
+                    monthlyRollupService.add(saved);
+                    balanceLedgerService.add(saved);
+                    publishChanged(saved, "transaction-updated");
+                    return saved;
                 });
     }
 
     public List<Transaction> getByTripId(UUID tripId) {
         return transactionRepository.findByTrip_TripId(tripId);
     }
+
+    public record TransactionPage(List<Transaction> transactions, String nextCursor) {}
 }
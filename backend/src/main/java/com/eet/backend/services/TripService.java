@@ -6,8 +6,10 @@ import com.eet.backend.model.Tag;
 import com.eet.backend.model.Trip;
 import com.eet.backend.model.User;
 import com.eet.backend.repositories.TripRepository;
+import com.eet.backend.services.stats.UserStatsChangedEvent;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -21,6 +23,9 @@ public class TripService {
 
     private final TripRepository tripRepository;
     private final TagService tagService;
+    private final MonthlyRollupService monthlyRollupService;
+    private final BalanceLedgerService balanceLedgerService;
+    private final ApplicationEventPublisher eventPublisher;
 
     public List<Trip> getByUserId(UUID userId) {
         return tripRepository.findByUserUserId(userId); // tags precargados
@@ -35,11 +40,28 @@ public class TripService {
     }
 
     public Trip save(Trip trip) {
-        return tripRepository.save(trip);
+        Trip saved = tripRepository.save(trip);
+        publishChanged(saved, "trip-saved");
+        return saved;
     }
 
     public void delete(UUID id) {
-        tripRepository.deleteById(id);
+        // El borrado en cascada no pasa por TransactionService: se descuentan aquí del rollup y del ledger
+        tripRepository.findWithTransactions(id).ifPresent(trip -> {
+            if (trip.getTransactions() != null) {
+                monthlyRollupService.removeAll(trip.getTransactions());
+                balanceLedgerService.removeAll(trip.getTransactions());
+            }
+            tripRepository.delete(trip);
+            publishChanged(trip, "trip-deleted");
+        });
+    }
+
+    // El gasto por viaje sale en /api/stats/trip-spending
+    private void publishChanged(Trip trip, String reason) {
+        if (trip.getUser() != null) {
+            eventPublisher.publishEvent(new UserStatsChangedEvent(trip.getUser().getUserId(), reason));
+        }
     }
 
     public TripDto toDto(Trip trip) {
@@ -0,0 +1,36 @@
+package com.eet.backend.services;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Locks por usuario repartidos en un número fijo de franjas: dos tareas del mismo usuario se
+ * serializan, las de usuarios distintos casi nunca comparten franja. Solo cubre este nodo;
+ * entre nodos lo garantiza el lock de BD y la unicidad (plantilla, fecha) de las ocurrencias.
+ */
+@Component
+public class UserLockStripes {
+
+    private final ReentrantLock[] stripes;
+
+    public UserLockStripes(@Value("${recurring.lock.stripes:64}") int stripes) {
+        this.stripes = new ReentrantLock[Math.max(1, stripes)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(UUID userId, Supplier<T> work) {
+        ReentrantLock lock = stripes[Math.floorMod(userId.hashCode(), stripes.length)];
+        lock.lock();
+        try {
+            return work.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -3,8 +3,10 @@ package com.eet.backend.services;
 import com.eet.backend.dto.UserResponse;
 import com.eet.backend.model.User;
 import com.eet.backend.repositories.UserRepository;
+import com.eet.backend.services.stats.UserStatsChangedEvent;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
@@ -18,6 +20,7 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Optional<User> getByEmail(String email) {
         return userRepository.findByEmail(email);
@@ -76,7 +79,10 @@ public class UserService {
         user.setPreferredCurrency(currency);
         user.setLanguage(language);
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        // Todas las estadísticas cacheadas están en la moneda anterior
+        eventPublisher.publishEvent(new UserStatsChangedEvent(userId, "preferences-changed"));
+        return saved;
     }
 
 
@@ -0,0 +1,101 @@
+package com.eet.backend.services.fx;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Cortocircuito para los proveedores FX: tras {@code failureThreshold} fallos seguidos
+ * se abre y rechaza llamadas durante {@code openMillis}; después deja pasar una sola
+ * prueba (HALF_OPEN) que lo cierra si va bien o lo vuelve a abrir si falla.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder opens = new LongAdder();
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this(failureThreshold, openMillis, System::currentTimeMillis);
+    }
+
+    CircuitBreaker(int failureThreshold, long openMillis, LongSupplier clock) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /** Ejecuta la llamada si el circuito lo permite; si está abierto falla sin tocar la red. */
+    public <T> T call(Supplier<T> action) {
+        if (!tryAcquire()) {
+            throw new IllegalStateException("Fuentes FX caídas: circuito abierto");
+        }
+        try {
+            T value = action.get();
+            onSuccess();
+            return value;
+        } catch (RuntimeException e) {
+            onFailure();
+            throw e;
+        }
+    }
+
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAt < openMillis) {
+                rejected.increment();
+                return false;
+            }
+            state = State.HALF_OPEN;
+            trialInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialInFlight) {
+                rejected.increment();
+                return false;
+            }
+            trialInFlight = true;
+        }
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialInFlight = false;
+        state = State.CLOSED;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) opens.increment();
+            state = State.OPEN;
+            openedAt = clock.getAsLong();
+        }
+    }
+
+    public synchronized State state() {
+        // Refleja la transición por tiempo aunque nadie haya llamado todavía
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) return State.HALF_OPEN;
+        return state;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(state(), consecutiveFailures, opens.sum(), rejected.sum(), failureThreshold, openMillis);
+    }
+
+    public record Stats(State state, int consecutiveFailures, long opens, long rejected,
+                        int failureThreshold, long openMillis) {
+    }
+}
@@ -1,24 +1,96 @@
 package com.eet.backend.services.fx;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Component
+@Primary // proveedor principal; FreeCurrencyAPI se inyecta explícitamente como fallback
+@RequiredArgsConstructor
 public class FrankfurterProvider implements RateProvider {
-    private static final String BASE = "https://api.frankfurter.dev/v1";
-    private final RestTemplate rest = new RestTemplate();
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    @Value("${fx.frankfurter.base-url:https://api.frankfurter.dev/v1}") String baseUrl;
+    @Value("${fx.http.request-timeout-ms:2000}") long requestTimeoutMs = 2000;
+    @Value("${fx.backfill.budget-ms:30000}") long seriesTimeoutMs = 30_000;
+
+    @Override
+    public String name() {
+        return "Frankfurter";
+    }
 
     @Override
-    public BigDecimal rate(String from, String to, LocalDate date) {
+    public CompletableFuture<Map<String, BigDecimal>> ratesAsync(String base, Collection<String> targets, LocalDate date) {
         String path = (date == null) ? "/latest" : "/" + date;
-        String url = BASE + path + "?base=" + from.toUpperCase() + "&symbols=" + to.toUpperCase();
-        Map<?,?> json = rest.getForObject(url, Map.class);
-        Map<String,Object> rates = (Map<String,Object>) json.get("rates");
-        if (rates == null || !rates.containsKey(to.toUpperCase()))
-            throw new IllegalStateException("Frankfurter sin tasa " + from + "->" + to);
-        return new BigDecimal(rates.get(to.toUpperCase()).toString());
+        String symbols = targets.stream().map(String::toUpperCase).collect(Collectors.joining(","));
+        HttpRequest req = HttpRequest.newBuilder(URI.create(baseUrl + path + "?base=" + base.toUpperCase() + "&symbols=" + symbols))
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .GET()
+                .build();
+
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofString())
+                .thenApply(res -> parse(base, res));
+    }
+
+    // Endpoint de series: /2024-01-01..2024-12-31 -> {"rates":{"2024-01-02":{"USD":1.09},...}} (sin fines de semana)
+    @Override
+    public CompletableFuture<Map<LocalDate, Map<String, BigDecimal>>> timeSeriesAsync(
+            String base, Collection<String> targets, LocalDate start, LocalDate end) {
+        String symbols = targets.stream().map(String::toUpperCase).collect(Collectors.joining(","));
+        HttpRequest req = HttpRequest.newBuilder(URI.create(baseUrl + "/" + start + ".." + end
+                        + "?base=" + base.toUpperCase() + "&symbols=" + symbols))
+                .timeout(Duration.ofMillis(seriesTimeoutMs))
+                .GET()
+                .build();
+
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofString())
+                .thenApply(res -> {
+                    Map<LocalDate, Map<String, BigDecimal>> series = new TreeMap<>();
+                    ratesNode(base, res).properties().forEach(day ->
+                            series.put(LocalDate.parse(day.getKey()), toMap(day.getValue())));
+                    return series;
+                });
+    }
+
+    private Map<String, BigDecimal> parse(String base, HttpResponse<String> res) {
+        return toMap(ratesNode(base, res));
+    }
+
+    private JsonNode ratesNode(String base, HttpResponse<String> res) {
+        if (res.statusCode() != 200) throw new IllegalStateException("Frankfurter HTTP " + res.statusCode());
+        JsonNode rates;
+        try {
+            rates = mapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS).readTree(res.body()).get("rates");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (rates == null) throw new IllegalStateException("Frankfurter sin tasas para " + base);
+        return rates;
+    }
+
+    private static Map<String, BigDecimal> toMap(JsonNode rates) {
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        rates.properties().forEach(e -> result.put(e.getKey(), e.getValue().decimalValue()));
+        return result;
     }
 }
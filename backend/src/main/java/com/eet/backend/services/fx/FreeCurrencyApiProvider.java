@@ -1,43 +1,79 @@
 package com.eet.backend.services.fx;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
-import org.springframework.http.*;
 import org.springframework.stereotype.Component;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 
 @Component
 @ConditionalOnProperty(name="fx.freecurrency.enabled", havingValue="true")
+@RequiredArgsConstructor
 public class FreeCurrencyApiProvider implements RateProvider {
-    private final RestTemplate rest = new RestTemplate();
+    private final HttpClient http;
+    private final ObjectMapper mapper;
     @Value("${fx.freecurrency.key}") String apiKey;
+    @Value("${fx.freecurrency.base-url:https://api.freecurrencyapi.com/v1}") String baseUrl;
+    @Value("${fx.http.request-timeout-ms:2000}") long requestTimeoutMs = 2000;
 
     @Override
-    public BigDecimal rate(String from, String to, LocalDate date) {
+    public String name() {
+        return "FreeCurrencyAPI";
+    }
+
+    @Override
+    public CompletableFuture<Map<String, BigDecimal>> ratesAsync(String base, Collection<String> targets, LocalDate date) {
         String ep = (date == null) ? "/latest" : "/historical";
-        var uri = UriComponentsBuilder.fromHttpUrl("https://api.freecurrencyapi.com/v1" + ep)
-                .queryParam("base_currency", from.toUpperCase())
-                .queryParam("currencies", to.toUpperCase())
-                .queryParamIfPresent("date", (date == null) ? java.util.Optional.empty() : java.util.Optional.of(date.toString()))
+        var uri = UriComponentsBuilder.fromHttpUrl(baseUrl + ep)
+                .queryParam("base_currency", base.toUpperCase())
+                .queryParam("currencies", targets.stream().map(String::toUpperCase).collect(Collectors.joining(",")))
+                .queryParamIfPresent("date", (date == null) ? Optional.empty() : Optional.of(date.toString()))
                 .build().toUri();
 
-        HttpHeaders h = new HttpHeaders(); h.set("apikey", apiKey);
-        Map<?,?> res = rest.exchange(uri, HttpMethod.GET, new HttpEntity<>(h), Map.class).getBody();
-        Map<String,Object> data = (Map<String,Object>) res.get("data");
-
-        if (date == null) {
-            Object v = data.get(to.toUpperCase());
-            if (v == null) throw new IllegalStateException("FreeCurrencyAPI sin tasa latest");
-            return new BigDecimal(v.toString());
-        } else {
-            Map<String,Object> byDate = (Map<String,Object>) data.get(date.toString());
-            if (byDate == null || !byDate.containsKey(to.toUpperCase()))
-                throw new IllegalStateException("FreeCurrencyAPI sin tasa histórica " + date);
-            return new BigDecimal(byDate.get(to.toUpperCase()).toString());
+        HttpRequest req = HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofMillis(requestTimeoutMs))
+                .header("apikey", apiKey)
+                .GET()
+                .build();
+
+        return http.sendAsync(req, HttpResponse.BodyHandlers.ofString())
+                .thenApply(res -> parse(base, date, res));
+    }
+
+    private Map<String, BigDecimal> parse(String base, LocalDate date, HttpResponse<String> res) {
+        if (res.statusCode() != 200) throw new IllegalStateException("FreeCurrencyAPI HTTP " + res.statusCode());
+        JsonNode data;
+        try {
+            data = mapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS).readTree(res.body()).get("data");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
+        if (data == null) throw new IllegalStateException("FreeCurrencyAPI sin datos para " + base);
+
+        // latest: {"data":{"USD":1.08}} · historical: {"data":{"2024-01-02":{"USD":1.08}}}
+        JsonNode values = (date == null) ? data : data.get(date.toString());
+        if (values == null) throw new IllegalStateException("FreeCurrencyAPI sin tasa histórica " + date);
+
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        values.properties().forEach(e -> result.put(e.getKey(), e.getValue().decimalValue()));
+        return result;
     }
 }
@@ -0,0 +1,162 @@
+package com.eet.backend.services.fx;
+
+import com.eet.backend.config.CurrencyConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caché de tipos de cambio en memoria: una matriz densa de doubles por fecha,
+ * indexada por el ordinal de la moneda en {@code app.supported-currencies}.
+ * Una celda a NaN significa "tipo todavía no cargado".
+ */
+@Component
+public class FxRateCache {
+
+    private static final int SCALE = 6;
+
+    private final List<String> currencies;
+    private final Map<String, Integer> ordinals;
+    private final int n;
+    private final int maxDates;
+
+    private final ConcurrentHashMap<LocalDate, Matrix> matrices = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public FxRateCache(CurrencyConfig currencyConfig,
+                       @Value("${fx.cache.max-dates:370}") int maxDates) {
+        this(currencyConfig.getSupportedCurrencies(), maxDates);
+    }
+
+    public FxRateCache(List<String> supportedCurrencies, int maxDates) {
+        this.currencies = supportedCurrencies.stream()
+                .map(c -> c.trim().toUpperCase(Locale.ROOT))
+                .toList();
+        this.ordinals = new HashMap<>();
+        for (int i = 0; i < currencies.size(); i++) ordinals.put(currencies.get(i), i);
+        this.n = currencies.size();
+        this.maxDates = Math.max(1, maxDates);
+    }
+
+    /** Devuelve el tipo cacheado o {@code null} si no está (cuenta como fallo). */
+    public BigDecimal get(String from, String to, LocalDate date) {
+        double r = lookup(from, to, date);
+        return Double.isNaN(r) ? null : BigDecimal.valueOf(r).setScale(SCALE, RoundingMode.HALF_UP);
+    }
+
+    /** Lectura primitiva: NaN si no está cacheado. */
+    public double lookup(String from, String to, LocalDate date) {
+        Integer i = ordinals.get(from), j = ordinals.get(to);
+        Matrix m = (i == null || j == null) ? null : matrices.get(date);
+        double r = (m == null) ? Double.NaN : m.rates[i * n + j];
+        if (Double.isNaN(r)) {
+            misses.increment();
+        } else {
+            hits.increment();
+            m.lastAccess = System.nanoTime();
+        }
+        return r;
+    }
+
+    public void put(String from, String to, LocalDate date, BigDecimal rate) {
+        Integer i = ordinals.get(from), j = ordinals.get(to);
+        if (i == null || j == null || rate == null) return; // moneda fuera de la matriz: no se cachea
+
+        Matrix m = matrices.get(date);
+        if (m == null) {
+            m = matrices.computeIfAbsent(date, d -> new Matrix(n));
+            evictIfNeeded(date);
+        }
+        m.rates[i * n + j] = rate.doubleValue();
+        m.lastAccess = System.nanoTime();
+    }
+
+    /**
+     * Carga una matriz completa (n*n, mismo orden que {@link #getCurrencies()}).
+     * Las celdas NaN no pisan lo que ya hubiera cacheado para esa fecha.
+     */
+    public void load(LocalDate date, double[] rates) {
+        if (rates.length != n * n) throw new IllegalArgumentException("Matriz de " + rates.length + " celdas, se esperaban " + n * n);
+        Matrix m = matrices.get(date);
+        if (m == null) {
+            m = matrices.computeIfAbsent(date, d -> new Matrix(n));
+            evictIfNeeded(date);
+        }
+        for (int k = 0; k < rates.length; k++) {
+            if (!Double.isNaN(rates[k])) m.rates[k] = rates[k];
+        }
+    }
+
+    /** Copia de las matrices por fecha (ascendente), p. ej. para volcarlas a disco. */
+    public Map<LocalDate, double[]> export() {
+        Map<LocalDate, double[]> copy = new TreeMap<>();
+        matrices.forEach((d, m) -> copy.put(d, m.rates.clone()));
+        return copy;
+    }
+
+    public boolean supports(String currency) {
+        return currency != null && ordinals.containsKey(currency);
+    }
+
+    public List<String> getCurrencies() {
+        return currencies;
+    }
+
+    public void clear() {
+        matrices.clear();
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), matrices.size(), maxDates);
+    }
+
+    // Retención acotada: al superar maxDates se expulsa la fecha menos usada recientemente
+    private void evictIfNeeded(LocalDate justAdded) {
+        while (matrices.size() > maxDates) {
+            LocalDate victim = null;
+            long oldest = Long.MAX_VALUE;
+            for (Map.Entry<LocalDate, Matrix> e : matrices.entrySet()) {
+                if (e.getKey().equals(justAdded)) continue;
+                if (e.getValue().lastAccess < oldest) {
+                    oldest = e.getValue().lastAccess;
+                    victim = e.getKey();
+                }
+            }
+            if (victim == null || matrices.remove(victim) == null) return;
+            evictions.increment();
+        }
+    }
+
+    private static final class Matrix {
+        final double[] rates;
+        volatile long lastAccess = System.nanoTime();
+
+        Matrix(int n) {
+            rates = new double[n * n];
+            Arrays.fill(rates, Double.NaN);
+        }
+    }
+
+    public record Stats(long hits, long misses, long evictions, int cachedDates, int maxDates) {
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.eet.backend.services.fx;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Volcado binario de {@link FxRateCache} para arrancar con la caché caliente.
+ *
+ * <pre>
+ * cabecera: magic "FXS1" | versión | n monedas | nº fechas | n códigos ISO (4 bytes, ASCII)
+ * registro: epochDay (long) | n*n doubles en orden from*n+to (NaN = sin tipo)
+ * </pre>
+ * Todos los registros miden lo mismo, así que se leen directamente del fichero mapeado.
+ */
+@Component
+@Slf4j
+public class FxRateSnapshot {
+
+    private static final int MAGIC = 0x46585331; // "FXS1"
+    private static final int VERSION = 1;
+    private static final int CODE_BYTES = 4;
+
+    private final Path path;
+
+    public FxRateSnapshot(@Value("${fx.snapshot.path:}") String path) {
+        this.path = (path == null || path.isBlank()) ? null : Path.of(path);
+    }
+
+    public boolean isEnabled() {
+        return path != null;
+    }
+
+    /** Carga el fichero en la caché; devuelve cuántas fechas se han leído (0 si no hay o no vale). */
+    public int loadInto(FxRateCache cache) throws IOException {
+        if (path == null || !Files.isRegularFile(path)) return 0;
+
+        try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.remaining() < 16 || buf.getInt() != MAGIC || buf.getInt() != VERSION) {
+                log.warn("Snapshot FX {} con formato desconocido, se ignora", path);
+                return 0;
+            }
+            int n = buf.getInt();
+            int dates = buf.getInt();
+            long expected = 16L + (long) n * CODE_BYTES + (long) dates * recordBytes(n);
+            if (n <= 0 || dates < 0 || expected != ch.size()) {
+                log.warn("Snapshot FX {} truncado o corrupto, se ignora", path);
+                return 0;
+            }
+
+            // Índice del fichero -> índice en la caché (la lista de monedas puede haber cambiado)
+            List<String> current = cache.getCurrencies();
+            int[] target = new int[n];
+            byte[] code = new byte[CODE_BYTES];
+            for (int i = 0; i < n; i++) {
+                buf.get(code);
+                target[i] = current.indexOf(new String(code, StandardCharsets.US_ASCII).trim());
+            }
+
+            int m = current.size();
+            double[] fileRow = new double[n * n];
+            for (int k = 0; k < dates; k++) {
+                LocalDate date = LocalDate.ofEpochDay(buf.getLong());
+                buf.asDoubleBuffer().get(fileRow);
+                buf.position(buf.position() + n * n * Double.BYTES);
+
+                double[] rates = new double[m * m];
+                Arrays.fill(rates, Double.NaN);
+                for (int i = 0; i < n; i++) {
+                    if (target[i] < 0) continue;
+                    for (int j = 0; j < n; j++) {
+                        if (target[j] >= 0) rates[target[i] * m + target[j]] = fileRow[i * n + j];
+                    }
+                }
+                cache.load(date, rates);
+            }
+            return dates;
+        }
+    }
+
+    /** Escribe la caché completa en un temporal y lo renombra: nunca queda un fichero a medias. */
+    public int write(FxRateCache cache) throws IOException {
+        if (path == null) return 0;
+
+        List<String> codes = cache.getCurrencies();
+        int n = codes.size();
+        Map<LocalDate, double[]> matrices = cache.export();
+
+        ByteBuffer buf = ByteBuffer.allocate(Math.toIntExact(16L + (long) n * CODE_BYTES + (long) matrices.size() * recordBytes(n)));
+        buf.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(matrices.size());
+        for (String c : codes) {
+            buf.put(Arrays.copyOf((c + "    ").getBytes(StandardCharsets.US_ASCII), CODE_BYTES));
+        }
+        matrices.forEach((date, rates) -> {
+            buf.putLong(date.toEpochDay());
+            buf.asDoubleBuffer().put(rates);
+            buf.position(buf.position() + rates.length * Double.BYTES);
+        });
+        buf.flip();
+
+        Path dir = path.toAbsolutePath().getParent();
+        if (dir != null) Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                while (buf.hasRemaining()) ch.write(buf);
+                ch.force(false);
+            }
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        return matrices.size();
+    }
+
+    private static long recordBytes(int n) {
+        return Long.BYTES + (long) n * n * Double.BYTES;
+    }
+}
@@ -0,0 +1,149 @@
+package com.eet.backend.services.fx;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Pide al proveedor principal y, si no ha contestado tras {@code fx.hedge.delay-ms}
+ * (o ya ha fallado), lanza la misma petición al fallback. Gana la primera respuesta
+ * correcta y todo queda acotado por {@code fx.request.budget-ms}.
+ */
+@Component
+public class HedgedRateFetcher {
+
+    private final RateProvider primary;
+    private final Optional<? extends RateProvider> fallback;
+    private final long hedgeDelayMs;
+    private final long budgetMs;
+
+    // Las series son peticiones pesadas: no se duplican con hedge y tienen su propio presupuesto
+    @Value("${fx.backfill.budget-ms:30000}") long seriesBudgetMs = 30_000;
+
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder hedges = new LongAdder();
+    private final LongAdder fallbackWins = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    public HedgedRateFetcher(RateProvider primary,
+                             Optional<FreeCurrencyApiProvider> fallback,
+                             @Value("${fx.hedge.delay-ms:300}") long hedgeDelayMs,
+                             @Value("${fx.request.budget-ms:2500}") long budgetMs) {
+        this.primary = primary;
+        this.fallback = fallback;
+        this.hedgeDelayMs = hedgeDelayMs;
+        this.budgetMs = budgetMs;
+    }
+
+    public BigDecimal rate(String from, String to, LocalDate date) {
+        BigDecimal r = rates(from, List.of(to), date).get(to.toUpperCase());
+        if (r == null) throw new IllegalStateException("Fuentes FX sin tasa " + from + "->" + to);
+        return r;
+    }
+
+    public Map<String, BigDecimal> rates(String base, Collection<String> targets, LocalDate date) {
+        try {
+            return fetch(p -> p.ratesAsync(base, targets, date)).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) timeouts.increment();
+            throw new IllegalStateException("Fuentes FX caídas: " + cause.getMessage(), cause);
+        }
+    }
+
+    /** Serie diaria de un rango; el fallback solo entra si el principal falla. */
+    public Map<LocalDate, Map<String, BigDecimal>> timeSeries(String base, Collection<String> targets,
+                                                             LocalDate start, LocalDate end) {
+        requests.increment();
+        CompletableFuture<Map<LocalDate, Map<String, BigDecimal>>> series = primary.timeSeriesAsync(base, targets, start, end);
+        if (fallback.isPresent()) {
+            series = series.exceptionallyCompose(e -> {
+                hedges.increment();
+                return fallback.get().timeSeriesAsync(base, targets, start, end)
+                        .thenApply(r -> { fallbackWins.increment(); return r; });
+            });
+        }
+        try {
+            return series.orTimeout(seriesBudgetMs, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof TimeoutException) timeouts.increment();
+            throw new IllegalStateException("Fuentes FX caídas: " + cause.getMessage(), cause);
+        }
+    }
+
+    public <T> CompletableFuture<T> fetch(Function<RateProvider, CompletableFuture<T>> call) {
+        requests.increment();
+        Race<T> race = new Race<>(call);
+        race.launch(primary);
+        if (fallback.isPresent()) {
+            CompletableFuture.delayedExecutor(hedgeDelayMs, TimeUnit.MILLISECONDS).execute(race::hedge);
+        }
+        return race.result.orTimeout(budgetMs, TimeUnit.MILLISECONDS);
+    }
+
+    public Stats stats() {
+        return new Stats(requests.sum(), hedges.sum(), fallbackWins.sum(), timeouts.sum(), hedgeDelayMs, budgetMs);
+    }
+
+    private final class Race<T> {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final Function<RateProvider, CompletableFuture<T>> call;
+        int launched;
+        int failed;
+        boolean hedged;
+
+        Race(Function<RateProvider, CompletableFuture<T>> call) {
+            this.call = call;
+        }
+
+        synchronized void launch(RateProvider provider) {
+            launched++;
+            CompletableFuture<T> attempt;
+            try {
+                attempt = call.apply(provider);
+            } catch (RuntimeException e) {
+                attempt = CompletableFuture.failedFuture(e);
+            }
+            attempt.whenComplete((v, e) -> {
+                if (e == null) {
+                    if (result.complete(v) && provider != primary) fallbackWins.increment();
+                } else {
+                    onFailure(e);
+                }
+            });
+        }
+
+        // Dispara el fallback una sola vez: por tiempo o porque el principal ya falló
+        synchronized boolean hedge() {
+            if (hedged || result.isDone() || fallback.isEmpty()) return false;
+            hedged = true;
+            hedges.increment();
+            launch(fallback.get());
+            return true;
+        }
+
+        synchronized void onFailure(Throwable e) {
+            failed++;
+            if (!hedge() && failed == launched) {
+                result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        }
+    }
+
+    public record Stats(long requests, long hedges, long fallbackWins, long timeouts,
+                        long hedgeDelayMs, long budgetMs) {
+    }
+}
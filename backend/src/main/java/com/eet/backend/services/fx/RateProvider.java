@@ -1,8 +1,51 @@
 package com.eet.backend.services.fx;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public interface RateProvider {
-    BigDecimal rate(String from, String to, LocalDate date);
+
+    String name();
+
+    /** Tipos base->X para todos los destinos pedidos, en una sola petición no bloqueante. */
+    CompletableFuture<Map<String, BigDecimal>> ratesAsync(String base, Collection<String> targets, LocalDate date);
+
+    default Map<String, BigDecimal> rates(String base, Collection<String> targets, LocalDate date) {
+        try {
+            return ratesAsync(base, targets, date).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    default BigDecimal rate(String from, String to, LocalDate date) {
+        BigDecimal r = rates(from, List.of(to), date).get(to.toUpperCase());
+        if (r == null) throw new IllegalStateException(name() + " sin tasa " + from + "->" + to);
+        return r;
+    }
+
+    /**
+     * Serie diaria base->X entre start y end (ambos incluidos), solo con días publicados.
+     * Por defecto se pide día hábil a día hábil, en serie; quien tenga endpoint de series lo sobrescribe.
+     */
+    default CompletableFuture<Map<LocalDate, Map<String, BigDecimal>>> timeSeriesAsync(
+            String base, Collection<String> targets, LocalDate start, LocalDate end) {
+        Map<LocalDate, Map<String, BigDecimal>> series = new TreeMap<>();
+        CompletableFuture<Void> chain = CompletableFuture.completedFuture(null);
+        for (LocalDate d = start; !d.isAfter(end); d = d.plusDays(1)) {
+            if (d.getDayOfWeek() == DayOfWeek.SATURDAY || d.getDayOfWeek() == DayOfWeek.SUNDAY) continue;
+            LocalDate day = d;
+            chain = chain.thenCompose(v -> ratesAsync(base, targets, day))
+                    .thenAccept(r -> series.put(day, r));
+        }
+        return chain.thenApply(v -> series);
+    }
 }
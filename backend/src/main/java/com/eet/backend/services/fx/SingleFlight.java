@@ -0,0 +1,74 @@
+package com.eet.backend.services.fx;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa llamadas concurrentes por clave: el primero que llega ejecuta la carga
+ * y el resto espera a ese mismo resultado (o a su excepción).
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0L);
+
+    public V execute(K key, Supplier<V> loader) {
+        CompletableFuture<V> mine = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        executions.increment();
+        long start = System.nanoTime();
+        try {
+            V value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            failures.increment();
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    public Stats stats() {
+        long n = executions.sum();
+        return new Stats(
+                n,
+                coalesced.sum(),
+                failures.sum(),
+                inFlight.size(),
+                n == 0 ? 0.0 : totalNanos.sum() / 1e6 / n,
+                maxNanos.get() / 1e6
+        );
+    }
+
+    public record Stats(long executions, long coalescedWaiters, long failures, int inFlight,
+                        double avgFetchMillis, double maxFetchMillis) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.eet.backend.services.stats;
+
+import com.eet.backend.model.Money;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Diccionario de categorías de una petición: categoryId -> índice denso (0..n-1) para
+ * acumular en arrays de {@code long}. Nombre y emoji se guardan una vez; las etiquetas
+ * solo se construyen al volcar los totales al DTO.
+ */
+public final class CategoryIndex {
+
+    public static final String UNCATEGORIZED = "Uncategorized";
+
+    private final Map<UUID, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<String> emojis = new ArrayList<>();
+    private int uncategorized = -1;
+
+    public int indexOf(UUID categoryId, String name, String emoji) {
+        if (categoryId == null) {
+            if (uncategorized < 0) uncategorized = add(null, null);
+            return uncategorized;
+        }
+        Integer index = ids.get(categoryId);
+        if (index == null) {
+            index = add(name, emoji);
+            ids.put(categoryId, index);
+        }
+        return index;
+    }
+
+    private int add(String name, String emoji) {
+        names.add(name);
+        emojis.add(emoji);
+        return names.size() - 1;
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public String name(int index) {
+        String name = names.get(index);
+        return name != null ? name : UNCATEGORIZED;
+    }
+
+    public String label(int index) {
+        String emoji = emojis.get(index);
+        return emoji != null ? emoji + " " + name(index) : name(index);
+    }
+
+    /**
+     * Sumas en diezmilésimas -> mapa etiqueta/importe. Solo entran los índices marcados;
+     * dos categorías con la misma etiqueta se suman, como hacía el merge por nombre.
+     */
+    public Map<String, BigDecimal> toMap(long[] sums, boolean[] present, IntFunction<String> label) {
+        Map<String, BigDecimal> result = new HashMap<>();
+        for (int i = 0; i < sums.length; i++) {
+            if (present[i]) {
+                result.merge(label.apply(i), BigDecimal.valueOf(sums[i], Money.SCALE), BigDecimal::add);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,212 @@
+package com.eet.backend.services.stats;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * t-digest "merging": resume una distribución en como mucho ~compresión centroides
+ * (media, peso), con más resolución en las colas. Dos sketches se fusionan sin perder
+ * nada respecto a haber añadido todos los valores en uno, así que se pueden ir acumulando
+ * mes a mes sin releer transacciones. Serializado ocupa unos pocos KB.
+ */
+public final class QuantileSketch {
+
+    public static final double DEFAULT_COMPRESSION = 100;
+
+    private static final int MAGIC = 0x54444731; // "TDG1"
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private int centroids;
+    private double totalWeight;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    // Valores aún sin fusionar: se ordenan y se comprimen en bloque al llenarse
+    private final double[] buffer;
+    private int buffered;
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public QuantileSketch(double compression) {
+        if (compression < 10) throw new IllegalArgumentException("Compresión demasiado baja: " + compression);
+        this.compression = compression;
+        int capacity = (int) Math.ceil(2 * compression) + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.buffer = new double[capacity * 5];
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Valor no válido: " + value);
+        }
+        if (buffered == buffer.length) compress();
+        buffer[buffered++] = value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    public void add(BigDecimal value) {
+        add(value.doubleValue());
+    }
+
+    /** Fusiona otro sketch en este; el otro no se modifica. */
+    public void merge(QuantileSketch other) {
+        other.compress();
+        if (other.centroids == 0) return;
+        compress();
+        int n = centroids + other.centroids;
+        double[] m = Arrays.copyOf(means, n);
+        double[] w = Arrays.copyOf(weights, n);
+        System.arraycopy(other.means, 0, m, centroids, other.centroids);
+        System.arraycopy(other.weights, 0, w, centroids, other.centroids);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        collapse(m, w, n);
+    }
+
+    public long count() {
+        return Math.round(totalWeight) + buffered;
+    }
+
+    public boolean isEmpty() {
+        return count() == 0;
+    }
+
+    /** Cuantil {@code q} en [0, 1] interpolando entre centroides; NaN si está vacío. */
+    public double quantile(double q) {
+        if (q < 0 || q > 1) throw new IllegalArgumentException("Cuantil fuera de [0, 1]: " + q);
+        compress();
+        if (centroids == 0) return Double.NaN;
+        if (centroids == 1) return means[0];
+
+        double index = q * totalWeight;
+        if (index <= weights[0] / 2) {
+            return min + (means[0] - min) * (index / (weights[0] / 2));
+        }
+        // Cada centroide se sitúa en la mitad de su peso acumulado
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double gap = (weights[i] + weights[i + 1]) / 2;
+            if (index <= cumulative + gap) {
+                double t = (index - cumulative) / gap;
+                return means[i] + (means[i + 1] - means[i]) * t;
+            }
+            cumulative += gap;
+        }
+        double tail = weights[centroids - 1] / 2;
+        double t = Math.min(1, (index - cumulative) / tail);
+        return means[centroids - 1] + (max - means[centroids - 1]) * t;
+    }
+
+    /** Cuantil redondeado a {@code scale} decimales, o null si no hay datos. */
+    public BigDecimal quantile(double q, int scale) {
+        if (isEmpty()) return null;
+        return BigDecimal.valueOf(quantile(q)).setScale(scale, RoundingMode.HALF_UP);
+    }
+
+    public byte[] toBytes() {
+        compress();
+        ByteBuffer out = ByteBuffer.allocate(4 + 4 * Double.BYTES + Integer.BYTES + centroids * 2 * Double.BYTES);
+        out.putInt(MAGIC).putDouble(compression).putDouble(totalWeight).putDouble(min).putDouble(max).putInt(centroids);
+        for (int i = 0; i < centroids; i++) {
+            out.putDouble(means[i]).putDouble(weights[i]);
+        }
+        return out.array();
+    }
+
+    /** Lee un sketch de {@link #toBytes()}; null o vacío da un sketch vacío. */
+    public static QuantileSketch fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) return new QuantileSketch();
+        try {
+            ByteBuffer in = ByteBuffer.wrap(bytes);
+            if (in.getInt() != MAGIC) throw new IllegalArgumentException("Sketch con formato desconocido");
+            QuantileSketch sketch = new QuantileSketch(in.getDouble());
+            sketch.totalWeight = in.getDouble();
+            sketch.min = in.getDouble();
+            sketch.max = in.getDouble();
+            int n = in.getInt();
+            if (n < 0 || n * 2L * Double.BYTES != in.remaining()) {
+                throw new IllegalArgumentException("Sketch corrupto: " + n + " centroides");
+            }
+            if (n > sketch.means.length) {
+                sketch.means = new double[n];
+                sketch.weights = new double[n];
+            }
+            for (int i = 0; i < n; i++) {
+                sketch.means[i] = in.getDouble();
+                sketch.weights[i] = in.getDouble();
+            }
+            sketch.centroids = n;
+            return sketch;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Sketch truncado", e);
+        }
+    }
+
+    private void compress() {
+        if (buffered == 0) return;
+        int n = centroids + buffered;
+        double[] m = Arrays.copyOf(means, n);
+        double[] w = Arrays.copyOf(weights, n);
+        for (int i = 0; i < buffered; i++) {
+            m[centroids + i] = buffer[i];
+            w[centroids + i] = 1;
+        }
+        buffered = 0;
+        collapse(m, w, n);
+    }
+
+    // Ordena por media y fusiona vecinos mientras el centroide no supere una unidad de k
+    private void collapse(double[] m, double[] w, int n) {
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Double.compare(m[a], m[b]));
+
+        double total = 0;
+        for (int i = 0; i < n; i++) total += w[i];
+
+        int out = 0;
+        double curMean = m[order[0]];
+        double curWeight = w[order[0]];
+        double before = 0;
+        for (int k = 1; k < n; k++) {
+            int i = order[k];
+            double proposed = curWeight + w[i];
+            if (scale(Math.min(1, (before + proposed) / total)) - scale(before / total) <= 1) {
+                curMean += (m[i] - curMean) * w[i] / proposed;
+                curWeight = proposed;
+            } else {
+                out = emit(out, curMean, curWeight);
+                before += curWeight;
+                curMean = m[i];
+                curWeight = w[i];
+            }
+        }
+        out = emit(out, curMean, curWeight);
+        centroids = out;
+        totalWeight = total;
+    }
+
+    private int emit(int out, double mean, double weight) {
+        if (out == means.length) {
+            means = Arrays.copyOf(means, out * 2);
+            weights = Arrays.copyOf(weights, out * 2);
+        }
+        means[out] = mean;
+        weights[out] = weight;
+        return out + 1;
+    }
+
+    // k1 de Dunning: centroides pequeños en las colas, grandes en el centro
+    private double scale(double q) {
+        return compression / (2 * Math.PI) * Math.asin(2 * q - 1);
+    }
+}
@@ -0,0 +1,139 @@
+package com.eet.backend.services.stats;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Caché de resultados de /api/stats por (usuario, endpoint, parámetros, moneda preferida,
+ * fecha de tipos). Acotada por peso (bytes del JSON que se va a servir) con expulsión LRU.
+ * Se invalida por usuario con {@link UserStatsChangedEvent} al confirmar la transacción.
+ */
+@Component
+@Slf4j
+public class StatsCache {
+
+    private static final int DEFAULT_WEIGHT = 1024;
+
+    private final ObjectMapper objectMapper;
+    private final long maxBytes;
+
+    // Orden de acceso: el primero es el menos usado recientemente
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // Se incrementa en cada invalidación; un cálculo empezado antes no se guarda
+    private final Map<UUID, Long> generations = new HashMap<>();
+    private long weight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    public StatsCache(ObjectMapper objectMapper,
+                      @Value("${stats.cache.max-bytes:8388608}") long maxBytes) {
+        this.objectMapper = objectMapper;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Resultado cacheado para el usuario o, si no está, lo calcula con {@code loader}.
+     * La moneda preferida la pone quien llama (sin consultar la BD en cada acierto); sin ella no se cachea.
+     */
+    public <T> T get(UUID userId, String preferredCurrency, String endpoint, String params, Supplier<T> loader) {
+        if (maxBytes <= 0 || preferredCurrency == null) return loader.get();
+        // Las conversiones usan el tipo del día: al cambiar de día la clave cambia
+        return get(new Key(userId, endpoint, params, preferredCurrency, LocalDate.now()), loader);
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(Key key, Supplier<T> loader) {
+        long generation;
+        synchronized (this) {
+            Entry cached = entries.get(key);
+            if (cached != null) {
+                hits++;
+                return (T) cached.value();
+            }
+            misses++;
+            generation = generations.getOrDefault(key.userId(), 0L);
+        }
+
+        T value = loader.get();
+        int w = weigh(value);
+
+        synchronized (this) {
+            if (generations.getOrDefault(key.userId(), 0L) != generation || w > maxBytes) {
+                return value;
+            }
+            Entry previous = entries.put(key, new Entry(value, w));
+            if (previous != null) weight -= previous.weight();
+            weight += w;
+            evict();
+        }
+        return value;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onUserStatsChanged(UserStatsChangedEvent event) {
+        invalidate(event.userId());
+    }
+
+    public synchronized int invalidate(UUID userId) {
+        if (userId == null) return 0;
+        generations.merge(userId, 1L, Long::sum);
+        int removed = 0;
+        for (Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().userId().equals(userId)) {
+                weight -= e.getValue().weight();
+                it.remove();
+                removed++;
+            }
+        }
+        invalidations++;
+        return removed;
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(entries.size(), weight, maxBytes, hits, misses, evictions, invalidations);
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (weight > maxBytes && it.hasNext()) {
+            weight -= it.next().weight();
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private int weigh(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value).length;
+        } catch (JsonProcessingException e) {
+            log.debug("No se pudo medir el resultado de stats: {}", e.getMessage());
+            return DEFAULT_WEIGHT;
+        }
+    }
+
+    record Key(UUID userId, String endpoint, String params, String preferredCurrency, LocalDate rateDate) {
+    }
+
+    private record Entry(Object value, int weight) {
+    }
+
+    public record Stats(int entries, long weightBytes, long maxBytes, long hits, long misses,
+                        long evictions, long invalidations) {
+    }
+}
@@ -0,0 +1,10 @@
+package com.eet.backend.services.stats;
+
+import java.util.UUID;
+
+/**
+ * Se publica cuando cambia algo que entra en las estadísticas de un usuario
+ * (transacciones, presupuestos, viajes o moneda preferida).
+ */
+public record UserStatsChangedEvent(UUID userId, String reason) {
+}
@@ -0,0 +1,61 @@
+-- Cambios de esquema para PostgreSQL (la app arranca con ddl-auto=none: aplicar a mano).
+
+-- Rollups mensuales de estadísticas (MonthlyRollup). Se rellenan solos al arrancar si están vacíos.
+CREATE TABLE IF NOT EXISTS monthly_rollups (
+    rollup_id   UUID PRIMARY KEY,
+    user_id     UUID           NOT NULL,
+    period      INTEGER        NOT NULL,
+    type        VARCHAR(255)   NOT NULL,
+    category_id UUID           NOT NULL,
+    currency    VARCHAR(255)   NOT NULL,
+    total       NUMERIC(19, 4) NOT NULL,
+    tx_count    BIGINT         NOT NULL,
+    CONSTRAINT uk_monthly_rollups_bucket UNIQUE (user_id, period, type, category_id, currency)
+);
+
+-- Sketches de cuantiles (t-digest) para la comparativa por país: mediana, p90 y bandas.
+ALTER TABLE country_spending_stats ADD COLUMN IF NOT EXISTS sketch BYTEA;
+
+CREATE TABLE IF NOT EXISTS user_category_sketches (
+    id          BIGSERIAL PRIMARY KEY,
+    user_id     UUID         NOT NULL,
+    category    VARCHAR(255) NOT NULL,
+    currency    VARCHAR(255) NOT NULL,
+    sketch      BYTEA,
+    sample_size BIGINT       NOT NULL,
+    CONSTRAINT uk_user_category_sketches UNIQUE (user_id, category, currency)
+);
+-- Una sola vez: los sketches de usuario pasan de importes sueltos a medias mensuales (como los del país).
+-- Los antiguos no se pueden convertir; se vacían y se rellenan en los siguientes cierres de mes.
+TRUNCATE user_category_sketches;
+
+-- Ledger de balances (BalanceLedger): ingresos y gastos por usuario y moneda. Se rellena solo al arrancar si está vacío.
+CREATE TABLE IF NOT EXISTS balance_ledger (
+    ledger_id UUID PRIMARY KEY,
+    user_id   UUID           NOT NULL,
+    currency  VARCHAR(255)   NOT NULL,
+    income    NUMERIC(19, 4) NOT NULL,
+    expense   NUMERIC(19, 4) NOT NULL,
+    tx_count  BIGINT         NOT NULL,
+    CONSTRAINT uk_balance_ledger_user_currency UNIQUE (user_id, currency)
+);
+
+-- Listado de transacciones por keyset (date, transaction_id) con filtros: un índice por filtro de igualdad.
+-- Rango de fechas e importes se resuelven sobre el de (user_id, date, transaction_id).
+CREATE INDEX IF NOT EXISTS ix_transactions_user_date ON transactions (user_id, date, transaction_id);
+CREATE INDEX IF NOT EXISTS ix_transactions_user_type_date ON transactions (user_id, type, date, transaction_id);
+CREATE INDEX IF NOT EXISTS ix_transactions_user_category_date ON transactions (user_id, category_id, date, transaction_id);
+CREATE INDEX IF NOT EXISTS ix_transactions_user_trip_date ON transactions (user_id, trip_id, date, transaction_id);
+CREATE INDEX IF NOT EXISTS ix_transactions_user_currency_date ON transactions (user_id, currency, date, transaction_id);
+
+-- Idempotencia de las recurrentes: cada ocurrencia generada guarda su plantilla y fecha programada.
+-- Las filas previas quedan a NULL (no chocan con la UNIQUE).
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS recurring_source_id UUID;
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS occurrence_date DATE;
+ALTER TABLE transactions DROP CONSTRAINT IF EXISTS uk_transactions_recurring_occurrence;
+ALTER TABLE transactions ADD CONSTRAINT uk_transactions_recurring_occurrence UNIQUE (recurring_source_id, occurrence_date);
+
+-- Versión de exchange_rates para ETag/Last-Modified del histórico: momento de inserción de cada fila
+-- (las filas no se editan). MAX(created_at) se resuelve con el índice. Las filas previas quedan con la fecha de la migración.
+ALTER TABLE exchange_rates ADD COLUMN IF NOT EXISTS created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+CREATE INDEX IF NOT EXISTS ix_exchange_rates_created_at ON exchange_rates (created_at);
@@ -0,0 +1,135 @@
+package com.eet.backend.controllers;
+
+import com.eet.backend.repositories.ExchangeRateQueryRepository;
+import com.eet.backend.repositories.ExchangeRateRepository;
+import com.eet.backend.services.ExchangeRateBackfillService;
+import com.eet.backend.services.ExchangeRateService;
+import com.eet.backend.services.fx.CircuitBreaker;
+import com.eet.backend.services.fx.FxRateCache;
+import com.eet.backend.services.fx.FxRateSnapshot;
+import com.eet.backend.services.fx.HedgedRateFetcher;
+import com.eet.backend.services.fx.RateProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class ExchangeRateControllerBatchTest {
+
+    private static final List<String> PAIRS = List.of("USD", "GBP", "CHF", "PLN");
+    private static final int ITEMS = 400;
+
+    private FxRateCache cache;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        cache = new FxRateCache(List.of("EUR", "USD", "GBP", "CHF", "PLN"), 10);
+        LocalDate today = LocalDate.now();
+        cache.put("EUR", "USD", today, new BigDecimal("1.09"));
+        cache.put("EUR", "GBP", today, new BigDecimal("0.85"));
+        cache.put("EUR", "CHF", today, new BigDecimal("0.96"));
+        cache.put("EUR", "PLN", today, new BigDecimal("4.31"));
+
+        // Tipos ya en caché: se mide solo el coste HTTP/JSON y de resolución, sin red ni BD
+        ExchangeRateService service = new ExchangeRateService(mock(ExchangeRateRepository.class), mock(ExchangeRateQueryRepository.class),
+                new HedgedRateFetcher(mock(RateProvider.class), Optional.empty(), 300, 2_500),
+                cache, new CircuitBreaker(3, 30_000), new FxRateSnapshot(""));
+        ReflectionTestUtils.setField(service, "triangulationEnabled", true);
+        ReflectionTestUtils.setField(service, "pivot", "EUR");
+        ReflectionTestUtils.setField(service, "triangulationScale", 6);
+        ReflectionTestUtils.setField(service, "triangulationRounding", RoundingMode.HALF_EVEN);
+
+        mvc = MockMvcBuilders.standaloneSetup(
+                new ExchangeRateController(service, mock(ExchangeRateBackfillService.class), new ObjectMapper())).build();
+    }
+
+    private static String item(int i) {
+        return "{\"amount\":" + (10 + i) + ",\"fromCurrency\":\"eur\",\"toCurrency\":\"" + PAIRS.get(i % PAIRS.size()) + "\"}";
+    }
+
+    @Test
+    void batch_resolvesEachDistinctPairOnce() throws Exception {
+        long lookupsBefore = cache.stats().hits() + cache.stats().misses();
+
+        mvc.perform(post("/api/exchange-rates/convert/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + item(0) + "," + item(1) + "," + item(4) + "," + item(5) + "]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0].toCurrency").value("USD"))
+                .andExpect(jsonPath("$[0].convertedAmount").value(10.9))
+                .andExpect(jsonPath("$[2].exchangeRate").value(1.09))
+                .andExpect(jsonPath("$[3].fromCurrency").value("EUR"));
+
+        assertEquals(2, cache.stats().hits() + cache.stats().misses() - lookupsBefore);
+    }
+
+    @Test
+    void batch_rejectsIncompleteItems() throws Exception {
+        mvc.perform(post("/api/exchange-rates/convert/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"amount\":5,\"fromCurrency\":\"EUR\"}]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void single_usesTheFixedMoneyScale_andRejectsIncompleteItems() throws Exception {
+        String body = mvc.perform(post("/api/exchange-rates/convert").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":10.123456,\"fromCurrency\":\"EUR\",\"toCurrency\":\"USD\"}"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertTrue(body.contains("\"convertedAmount\":11.0346"), body); // 11.03456704 -> 4 decimales, HALF_EVEN
+
+        mvc.perform(post("/api/exchange-rates/convert").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"amount\":5,\"fromCurrency\":\"EUR\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void batch_vsSingleItemEndpoint_resolvesPairsOnceInsteadOfPerItem() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < ITEMS; i++) body.append(i == 0 ? "" : ",").append(item(i));
+        String batch = body.append("]").toString();
+
+        long before = lookups();
+        for (int i = 0; i < ITEMS; i++) single(i);
+        long singleLookups = lookups() - before;
+
+        before = lookups();
+        batch(batch);
+        long batchLookups = lookups() - before;
+
+        assertEquals(ITEMS, singleLookups, "una resolución de tipo por petición");
+        assertEquals(PAIRS.size(), batchLookups, "una resolución por par distinto");
+    }
+
+    private long lookups() {
+        return cache.stats().hits() + cache.stats().misses();
+    }
+
+    private void single(int i) throws Exception {
+        mvc.perform(post("/api/exchange-rates/convert").contentType(MediaType.APPLICATION_JSON).content(item(i)))
+                .andExpect(status().isOk());
+    }
+
+    private void batch(String body) throws Exception {
+        mvc.perform(post("/api/exchange-rates/convert/batch").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk());
+    }
+}
@@ -0,0 +1,135 @@
+package com.eet.backend.controllers;
+
+import com.eet.backend.repositories.ExchangeRateQueryRepository;
+import com.eet.backend.repositories.ExchangeRateRepository;
+import com.eet.backend.services.ExchangeRateBackfillService;
+import com.eet.backend.services.ExchangeRateService;
+import com.eet.backend.services.fx.CircuitBreaker;
+import com.eet.backend.services.fx.FxRateCache;
+import com.eet.backend.services.fx.FxRateSnapshot;
+import com.eet.backend.services.fx.HedgedRateFetcher;
+import com.eet.backend.services.fx.RateProvider;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class ExchangeRateControllerRatesTest {
+
+    private JdbcTemplate jdbc;
+    private ExchangeRateBackfillService backfill;
+    private ExchangeRateController controller;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:rates" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE", "sa", ""));
+        jdbc.execute("CREATE TABLE exchange_rates (rate_id UUID PRIMARY KEY, from_currency VARCHAR(3) NOT NULL, "
+                + "to_currency VARCHAR(3) NOT NULL, rate NUMERIC(19,6) NOT NULL, date DATE NOT NULL, "
+                + "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL, UNIQUE (from_currency, to_currency, date))");
+        for (String day : List.of("2024-03-13", "2024-03-14", "2024-03-15")) {
+            for (String to : List.of("GBP", "USD")) {
+                jdbc.update("INSERT INTO exchange_rates (rate_id, from_currency, to_currency, rate, date) VALUES (RANDOM_UUID(), 'EUR', ?, 1.1, DATE '" + day + "')", to);
+            }
+        }
+
+        ExchangeRateService service = new ExchangeRateService(mock(ExchangeRateRepository.class),
+                new ExchangeRateQueryRepository(jdbc),
+                new HedgedRateFetcher(mock(RateProvider.class), Optional.empty(), 300, 2_500),
+                new FxRateCache(List.of("EUR", "USD", "GBP"), 10), new CircuitBreaker(3, 30_000), new FxRateSnapshot(""));
+        backfill = mock(ExchangeRateBackfillService.class);
+        controller = new ExchangeRateController(service, backfill, new ObjectMapper());
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    private MvcResult stream(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult started = mvc.perform(request).andExpect(request().asyncStarted()).andReturn();
+        return mvc.perform(asyncDispatch(started)).andExpect(status().isOk()).andReturn();
+    }
+
+    @Test
+    void keysetPages_walkTheFilteredRangeInKeyOrder() throws Exception {
+        MvcResult first = stream(get("/api/exchange-rates").param("from", "2024-03-14").param("limit", "3"));
+        assertEquals("2024-03-15:EUR:GBP", first.getResponse().getHeader("X-Next-Cursor"));
+        assertEquals("[{\"fromCurrency\":\"EUR\",\"toCurrency\":\"GBP\",\"rate\":1.100000,\"date\":\"2024-03-14\"},"
+                        + "{\"fromCurrency\":\"EUR\",\"toCurrency\":\"USD\",\"rate\":1.100000,\"date\":\"2024-03-14\"},"
+                        + "{\"fromCurrency\":\"EUR\",\"toCurrency\":\"GBP\",\"rate\":1.100000,\"date\":\"2024-03-15\"}]",
+                first.getResponse().getContentAsString());
+
+        MvcResult second = stream(get("/api/exchange-rates").param("from", "2024-03-14").param("limit", "3")
+                .param("cursor", "2024-03-15:EUR:GBP"));
+        assertNull(second.getResponse().getHeader("X-Next-Cursor"));
+        assertTrue(second.getResponse().getContentAsString().contains("\"toCurrency\":\"USD\",\"rate\":1.100000,\"date\":\"2024-03-15\""));
+
+        MvcResult usd = stream(get("/api/exchange-rates").param("toCurrency", "usd"));
+        assertEquals(3, usd.getResponse().getContentAsString().split("USD").length - 1);
+    }
+
+    @Test
+    void unchangedTable_answers304_untilNewRatesArrive() throws Exception {
+        MvcResult full = stream(get("/api/exchange-rates"));
+        String etag = full.getResponse().getHeader("ETag");
+        assertNotNull(etag);
+        assertNotNull(full.getResponse().getHeader("Last-Modified"));
+
+        mvc.perform(get("/api/exchange-rates").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        // Un hueco rellenado en el pasado no mueve la fecha máxima, pero sí la versión
+        jdbc.update("INSERT INTO exchange_rates (rate_id, from_currency, to_currency, rate, date) "
+                + "VALUES (RANDOM_UUID(), 'EUR', 'JPY', 160, DATE '2024-03-14')");
+        stream(get("/api/exchange-rates").header("If-None-Match", etag));
+    }
+
+    @Test
+    void etag_dependsOnFilterCursorAndLimit() throws Exception {
+        String all = stream(get("/api/exchange-rates")).getResponse().getHeader("ETag");
+        String usd = stream(get("/api/exchange-rates").param("toCurrency", "USD")).getResponse().getHeader("ETag");
+        String small = stream(get("/api/exchange-rates").param("limit", "2")).getResponse().getHeader("ETag");
+        String next = stream(get("/api/exchange-rates").param("limit", "2").param("cursor", "2024-03-13:EUR:USD"))
+                .getResponse().getHeader("ETag");
+        assertEquals(4, Set.of(all, usd, small, next).size());
+
+        // Otra página con el ETag de la primera no es un 304
+        stream(get("/api/exchange-rates").param("toCurrency", "USD").header("If-None-Match", all));
+        mvc.perform(get("/api/exchange-rates").param("toCurrency", "usd").header("If-None-Match", usd))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void malformedCursor_isBadRequest() throws Exception {
+        mvc.perform(get("/api/exchange-rates").param("cursor", "ayer"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void backfill_isHiddenUnlessEnabled() throws Exception {
+        mvc.perform(post("/api/exchange-rates/backfill").param("from", "2024-01-01").param("to", "2024-01-31"))
+                .andExpect(status().isNotFound());
+        verifyNoInteractions(backfill);
+
+        controller.backfillEndpointEnabled = true;
+        mvc.perform(post("/api/exchange-rates/backfill").param("from", "2024-01-01").param("to", "2024-01-31"))
+                .andExpect(status().isOk());
+        verify(backfill).backfill(any(), any(), any());
+    }
+}
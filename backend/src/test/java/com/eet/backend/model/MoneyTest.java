@@ -0,0 +1,90 @@
+package com.eet.backend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MoneyTest {
+
+    @Test
+    void of_roundsHalfEvenToFourDecimals() {
+        assertEquals("1.2346", Money.of(new BigDecimal("1.23455")).toString());
+        assertEquals("1.2344", Money.of(new BigDecimal("1.23445")).toString());
+        assertEquals("-1.2344", Money.of(new BigDecimal("-1.23445")).toString());
+        assertEquals(Money.ZERO, Money.of(null));
+        assertEquals(4, Money.of(new BigDecimal("10")).toBigDecimal().scale());
+    }
+
+    @Test
+    void times_matchesBigDecimalHalfEven() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong() % 10_000_000_000L, 4);
+            BigDecimal rate = BigDecimal.valueOf(random.nextInt(50_000_000), random.nextInt(9));
+            BigDecimal expected = amount.multiply(rate).setScale(Money.SCALE, RoundingMode.HALF_EVEN);
+
+            assertEquals(0, expected.compareTo(Money.of(amount).times(rate).toBigDecimal()),
+                    () -> amount + " x " + rate);
+        }
+    }
+
+    @Test
+    void times_fallsBackWhenTheLongProductOverflows() {
+        Money big = Money.of(new BigDecimal("900000000000000"));
+        BigDecimal rate = new BigDecimal("0.0000123456789");
+        assertEquals(0, new BigDecimal("900000000000000").multiply(rate).setScale(4, RoundingMode.HALF_EVEN)
+                .compareTo(big.times(rate).toBigDecimal()));
+    }
+
+    @Test
+    void additionIsExact_andOverflowFails() {
+        Money a = Money.of(new BigDecimal("0.1"));
+        Money sum = Money.ZERO;
+        for (int i = 0; i < 10; i++) sum = sum.plus(a);
+        assertEquals(Money.of(BigDecimal.ONE), sum);
+        assertEquals("-0.9000", sum.minus(Money.of(new BigDecimal("1.9"))).toString());
+
+        assertThrows(ArithmeticException.class, () -> Money.ofMinor(Long.MAX_VALUE).plus(Money.ofMinor(1)));
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("1e16")));
+    }
+
+    @Test
+    void average_roundsOnceAtTheBoundary() {
+        Money total = Money.of(new BigDecimal("10.0000"));
+        assertEquals(new BigDecimal("3.33"), total.average(3, 2, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * El bucle de agregación (convertir y sumar) da lo mismo que con BigDecimal redondeando en
+     * cada paso, y el total sale siempre con escala 4 en lugar de crecer con cada multiplicación.
+     */
+    @Test
+    void aggregationLoop_matchesBigDecimal_withFixedScale() {
+        int n = 200_000;
+        BigDecimal[] amounts = new BigDecimal[n];
+        Random random = new Random(7);
+        for (int i = 0; i < n; i++) amounts[i] = BigDecimal.valueOf(random.nextInt(10_000_000), 2).setScale(4);
+        BigDecimal rate = new BigDecimal("1.087650");
+
+        BigDecimal money = sumMoney(amounts, rate);
+        assertEquals(0, sumBigDecimal(amounts, rate).compareTo(money));
+        assertEquals(Money.SCALE, money.scale());
+    }
+
+    // Lo que hacían los bucles: convert devolvía amount.multiply(rate) y se sumaba con add
+    private static BigDecimal sumBigDecimal(BigDecimal[] amounts, BigDecimal rate) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (BigDecimal a : amounts) total = total.add(a.multiply(rate).setScale(Money.SCALE, RoundingMode.HALF_EVEN));
+        return total;
+    }
+
+    private static BigDecimal sumMoney(BigDecimal[] amounts, BigDecimal rate) {
+        Money total = Money.ZERO;
+        for (BigDecimal a : amounts) total = total.plus(Money.of(a).times(rate));
+        return total.toBigDecimal();
+    }
+}
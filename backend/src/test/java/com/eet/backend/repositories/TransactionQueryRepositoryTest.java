@@ -0,0 +1,146 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.TransactionQueryRepository.Cursor;
+import com.eet.backend.repositories.TransactionQueryRepository.Filter;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Paginación por keyset: las páginas encadenadas por cursor recorren todo una sola vez y en
+ * orden, los filtros se aplican en servidor y la página N lanza las mismas sentencias que la 1.
+ */
+@H2JpaTest
+class TransactionQueryRepositoryTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    @Autowired private TestEntityManager em;
+
+    private TransactionQueryRepository repository;
+    private Statistics statistics;
+    private User user;
+    private Category food;
+    private Category salary;
+    private Trip rome;
+    private final List<Transaction> all = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = new TransactionQueryRepository(em.getEntityManager());
+        statistics = em.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        user = em.persist(Entities.user("page@test.com"));
+        User other = em.persist(Entities.user("other@test.com"));
+        food = em.persist(Entities.category(user, "Food", "🍕"));
+        salary = em.persist(Entities.category(user, "Salary"));
+        rome = em.persist(Trip.builder().name("Rome").destination("IT").user(user).currency("EUR")
+                .startDate(DAY).endDate(DAY.plusDays(5)).build());
+
+        // Varias transacciones por día para que el desempate por transactionId importe
+        for (int i = 0; i < 120; i++) {
+            boolean income = i % 5 == 0;
+            all.add(em.persist(Transaction.builder().user(user)
+                    .category(income ? salary : food)
+                    .type(income ? TransactionType.INCOME : TransactionType.EXPENSE)
+                    .amount(new BigDecimal(i + 1)).currency(i % 3 == 0 ? "USD" : "EUR")
+                    .date(DAY.minusDays(i / 4)).trip(i < 10 ? rome : null)
+                    .description("tx " + i).build()));
+        }
+        Category otherFood = em.persist(Entities.category(other, "Food"));
+        em.persist(Transaction.builder().user(other).category(otherFood).type(TransactionType.EXPENSE)
+                .amount(BigDecimal.TEN).currency("EUR").date(DAY).build());
+        em.flush();
+        em.clear();
+    }
+
+    private List<Transaction> drain(Filter filter, int limit) {
+        List<Transaction> seen = new ArrayList<>();
+        Cursor cursor = null;
+        while (true) {
+            List<Transaction> page = repository.page(user.getUserId(), filter, cursor, limit);
+            seen.addAll(page);
+            if (page.size() < limit) return seen;
+            cursor = Cursor.parse(Cursor.of(page.get(page.size() - 1)).toString());
+        }
+    }
+
+    private static List<UUID> expectedIds(List<Transaction> txs) {
+        // La BD ordena los UUID byte a byte (como su texto), no con el compareTo con signo de Java
+        return txs.stream()
+                .sorted(Comparator.comparing(Transaction::getDate)
+                        .thenComparing((Transaction t) -> t.getTransactionId().toString()).reversed())
+                .map(Transaction::getTransactionId)
+                .toList();
+    }
+
+    @Test
+    void chainedPages_coverEverythingOnce_inOrder() {
+        List<Transaction> seen = drain(Filter.none(), 7);
+
+        assertEquals(expectedIds(all), seen.stream().map(Transaction::getTransactionId).toList());
+        assertEquals("Rome", seen.stream().filter(t -> t.getTrip() != null).findFirst().orElseThrow().getTrip().getName());
+    }
+
+    @Test
+    void filters_areAppliedServerSide() {
+        Filter filter = new Filter(TransactionType.EXPENSE, food.getCategoryId(), null, " usd ",
+                DAY.minusDays(20), DAY.minusDays(2), new BigDecimal("10"), new BigDecimal("80"));
+        List<Transaction> expected = all.stream()
+                .filter(t -> t.getType() == TransactionType.EXPENSE && t.getCurrency().equals("USD"))
+                .filter(t -> !t.getDate().isBefore(DAY.minusDays(20)) && !t.getDate().isAfter(DAY.minusDays(2)))
+                .filter(t -> t.getAmount().compareTo(BigDecimal.TEN) >= 0 && t.getAmount().compareTo(new BigDecimal("80")) <= 0)
+                .toList();
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expectedIds(expected), drain(filter, 3).stream().map(Transaction::getTransactionId).toList());
+
+        Filter byTrip = new Filter(null, null, rome.getTripId(), null, null, null, null, null);
+        assertEquals(10, drain(byTrip, 4).size());
+    }
+
+    @Test
+    void pageN_costsTheSameAsPageOne() {
+        em.clear();
+        statistics.clear();
+        List<Transaction> first = repository.page(user.getUserId(), Filter.none(), null, 10);
+        long firstStatements = statistics.getPrepareStatementCount();
+
+        Cursor cursor = Cursor.of(first.get(first.size() - 1));
+        for (int i = 0; i < 8; i++) {
+            List<Transaction> page = repository.page(user.getUserId(), Filter.none(), cursor, 10);
+            cursor = Cursor.of(page.get(page.size() - 1));
+        }
+        em.clear();
+        statistics.clear();
+        List<Transaction> deep = repository.page(user.getUserId(), Filter.none(), cursor, 10);
+
+        assertEquals(10, deep.size());
+        assertEquals(1, firstStatements, "una sentencia con usuario, categoría y viaje en el mismo SELECT");
+        assertEquals(firstStatements, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void invalidInput_isRejected() {
+        assertThrows(IllegalArgumentException.class, () -> Cursor.parse("ayer"));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.parse("2024-13-01:" + UUID.randomUUID()));
+        assertThrows(IllegalArgumentException.class, () -> Cursor.parse("2024-03-01:no-uuid"));
+        assertThrows(IllegalArgumentException.class, () -> new Filter(null, null, null, null,
+                DAY, DAY.minusDays(1), null, null));
+        assertThrows(IllegalArgumentException.class, () -> new Filter(null, null, null, null,
+                null, null, BigDecimal.TEN, BigDecimal.ONE));
+        assertNull(Cursor.parse(" "));
+    }
+}
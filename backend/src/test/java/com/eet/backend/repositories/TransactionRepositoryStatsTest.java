@@ -0,0 +1,77 @@
+package com.eet.backend.repositories;
+
+import com.eet.backend.dto.stats.CategoryCurrencyTotal;
+import com.eet.backend.model.*;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@H2JpaTest
+class TransactionRepositoryStatsTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    @Autowired private TestEntityManager em;
+    @Autowired private TransactionRepository transactionRepository;
+
+    private User user;
+    private Category food;
+    private Category salary;
+
+    @BeforeEach
+    void setUp() {
+        user = em.persist(Entities.user("stats@test.com"));
+        food = em.persist(Entities.category(user, "Food", "🍕"));
+        salary = em.persist(Entities.category(user, "Salary"));
+    }
+
+    private void tx(TransactionType type, Category c, String amount, String currency, LocalDate date) {
+        em.persist(Transaction.builder().user(user).category(c).type(type)
+                .amount(new BigDecimal(amount)).currency(currency).date(date).build());
+    }
+
+    @Test
+    void groupsByTypeCategoryCurrency_andSkipsRecurringTemplates() {
+        tx(TransactionType.EXPENSE, food, "10.00", "EUR", DAY);
+        tx(TransactionType.EXPENSE, food, "5.50", "EUR", DAY.plusDays(1));
+        tx(TransactionType.EXPENSE, food, "20.00", "USD", DAY);
+        tx(TransactionType.INCOME, salary, "1000.00", "EUR", DAY);
+        tx(TransactionType.EXPENSE, food, "99.00", "EUR", DAY.plusMonths(1)); // fuera de rango
+
+        RecurringTransaction template = new RecurringTransaction();
+        template.setUser(user);
+        template.setCategory(food);
+        template.setType(TransactionType.EXPENSE);
+        template.setAmount(new BigDecimal("500.00"));
+        template.setCurrency("EUR");
+        template.setDate(DAY);
+        template.setRecurrencePattern(RecurrencePattern.MONTHLY);
+        template.setNextExecution(DAY.plusMonths(1));
+        em.persist(template);
+        em.flush();
+        em.clear();
+
+        List<CategoryCurrencyTotal> rows = transactionRepository.sumByTypeCategoryCurrency(
+                user.getUserId(), DAY.withDayOfMonth(1), DAY.withDayOfMonth(31));
+
+        assertEquals(3, rows.size());
+        CategoryCurrencyTotal foodEur = rows.stream()
+                .filter(r -> r.getType() == TransactionType.EXPENSE && r.getCurrency().equals("EUR"))
+                .findFirst().orElseThrow();
+        assertEquals(0, new BigDecimal("15.50").compareTo(foodEur.getTotal()));
+        assertEquals(2, foodEur.getCount());
+        assertEquals("Food", foodEur.getCategoryName());
+        assertEquals("🍕", foodEur.getCategoryEmoji());
+        assertTrue(rows.stream().anyMatch(r -> r.getType() == TransactionType.INCOME
+                && r.getCategoryName().equals("Salary") && r.getTotal().compareTo(new BigDecimal("1000")) == 0));
+    }
+}
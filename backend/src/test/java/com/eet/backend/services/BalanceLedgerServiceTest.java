@@ -0,0 +1,186 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.DashboardSummaryDto;
+import com.eet.backend.dto.stats.LedgerCheckDto;
+import com.eet.backend.dto.stats.LedgerTotal;
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.*;
+import com.eet.backend.services.stats.UserStatsChangedEvent;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * El ledger se mantiene en cada escritura y el balance se lee con una fila por moneda,
+ * tenga el usuario 10 transacciones o 400.
+ */
+@H2JpaTest
+class BalanceLedgerServiceTest {
+
+    @Autowired private TestEntityManager em;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private BudgetRepository budgetRepository;
+    @Autowired private TripRepository tripRepository;
+    @Autowired private MonthlyRollupRepository rollupRepository;
+    @Autowired private BalanceLedgerRepository ledgerRepository;
+
+    private final AtomicLong conversions = new AtomicLong();
+    private final List<Object> events = new ArrayList<>();
+    private BalanceLedgerService ledger;
+    private TransactionService transactions;
+    private Statistics statistics;
+    private User user;
+    private Category food;
+
+    @BeforeEach
+    void setUp() {
+        ExchangeRateService fx = mock(ExchangeRateService.class);
+        when(fx.convert(any(Money.class), any(), any())).thenAnswer(inv -> {
+            conversions.incrementAndGet();
+            return inv.getArgument(1).equals("EUR") ? inv.getArgument(0) : ((Money) inv.getArgument(0)).times(new BigDecimal("0.5"));
+        });
+        ledger = new BalanceLedgerService(ledgerRepository, transactionRepository, events::add);
+        transactions = new TransactionService(transactionRepository, new TransactionQueryRepository(em.getEntityManager()), budgetRepository, tripRepository, fx,
+                new MonthlyRollupService(rollupRepository, transactionRepository, event -> { }), ledger, event -> { });
+        statistics = em.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        user = em.persist(Entities.user("ledger@test.com"));
+        food = em.persist(Entities.category(user, "Food", "🍕"));
+    }
+
+    private Transaction tx(TransactionType type, String amount, String currency, LocalDate date) {
+        return Transaction.builder().user(user).category(food).type(type)
+                .amount(new BigDecimal(amount)).currency(currency).date(date).build();
+    }
+
+    private void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+
+    private <T> T measured(Supplier<T> call) {
+        statistics.clear();
+        conversions.set(0);
+        return call.get();
+    }
+
+    @Test
+    void writes_keepLedgerInSync_andBalancesReadIt() {
+        LocalDate today = LocalDate.now();
+        transactions.save(tx(TransactionType.INCOME, "100.00", "EUR", today));
+        Transaction lunch = transactions.save(tx(TransactionType.EXPENSE, "12.50", "EUR", today));
+        Transaction usd = transactions.save(tx(TransactionType.EXPENSE, "40.00", "USD", today.minusDays(1)));
+        RecurringTransaction template = new RecurringTransaction();
+        template.setUser(user);
+        template.setCategory(food);
+        template.setType(TransactionType.EXPENSE);
+        template.setAmount(new BigDecimal("999.00"));
+        template.setCurrency("EUR");
+        template.setDate(today);
+        template.setRecurrencePattern(RecurrencePattern.MONTHLY);
+        template.setNextExecution(today.plusMonths(1));
+        transactions.save(template);
+        flushAndClear();
+
+        transactions.update(lunch.getTransactionId(), tx(TransactionType.EXPENSE, "20.00", "EUR", today), user);
+        transactions.delete(usd.getTransactionId());
+        transactions.save(tx(TransactionType.EXPENSE, "10.00", "USD", today));
+        flushAndClear();
+
+        assertTrue(ledger.check(user.getUserId()).isConsistent());
+        // 100 - 20 en EUR, -10 USD a 0.5
+        assertEquals(0, new BigDecimal("75.00").compareTo(transactions.getBalance(user)));
+
+        DashboardSummaryDto summary = transactions.getDashboardSummary(user.getUserId());
+        assertEquals(0, new BigDecimal("70.00").compareTo(summary.getTotalBalance()));
+        assertEquals(3, summary.getRecentTransactions().size());
+        assertEquals(today, summary.getRecentTransactions().get(0).getDate());
+    }
+
+    @Test
+    void balance_costDependsOnCurrencies_notOnHistory() {
+        LocalDate day = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < 10; i++) {
+            transactions.save(tx(TransactionType.EXPENSE, "1.00", i % 2 == 0 ? "EUR" : "USD", day.plusDays(i)));
+        }
+        flushAndClear();
+        long statementsSmall = measured(() -> { transactions.getBalance(user); return statistics.getPrepareStatementCount(); });
+        long conversionsSmall = conversions.get();
+
+        for (int i = 0; i < 400; i++) {
+            transactions.save(tx(TransactionType.INCOME, "2.00", i % 2 == 0 ? "EUR" : "USD", day.plusDays(i)));
+        }
+        flushAndClear();
+        BigDecimal balance = measured(() -> transactions.getBalance(user));
+
+        assertEquals(1, statementsSmall, "una lectura del ledger");
+        assertEquals(statementsSmall, statistics.getPrepareStatementCount());
+        assertEquals(2, conversionsSmall, "una conversión por moneda");
+        assertEquals(2, conversions.get());
+        // EUR: 400 - 5; USD: (400 - 5) * 0.5
+        assertEquals(0, new BigDecimal("592.50").compareTo(balance));
+    }
+
+    @Test
+    void reconcileAll_detectsDrift_andRepairsIt() {
+        transactions.save(tx(TransactionType.INCOME, "50.00", "EUR", LocalDate.now()));
+        // Escritura que se salta el servicio: el ledger queda desfasado
+        em.persist(tx(TransactionType.EXPENSE, "8.00", "EUR", LocalDate.now()));
+        em.persist(tx(TransactionType.EXPENSE, "3.00", "GBP", LocalDate.now()));
+        flushAndClear();
+
+        LedgerCheckDto before = ledger.check(user.getUserId());
+        assertFalse(before.isConsistent());
+        assertEquals(2, before.getMismatches().size());
+
+        assertEquals(0, ledger.reconcileAll().getRepaired(), "por defecto solo avisa");
+
+        ledger.repairOnReconcile = true;
+        LedgerCheckDto reconciled = ledger.reconcileAll();
+        assertFalse(reconciled.isConsistent());
+        assertEquals(1, reconciled.getRepaired());
+        assertTrue(events.contains(new UserStatsChangedEvent(user.getUserId(), "ledger-rebuilt")), "invalida la cache de stats");
+        flushAndClear();
+
+        assertTrue(ledger.check(user.getUserId()).isConsistent());
+        assertTrue(ledger.reconcileAll().isConsistent());
+        assertEquals(0, new BigDecimal("42.00").compareTo(ledger.entries(user.getUserId()).stream()
+                .filter(e -> e.getCurrency().equals("EUR")).findFirst().orElseThrow().net()));
+    }
+
+    @Test
+    void reconcileAll_rechecksUnderLock_andSkipsDriftThatWasAConcurrentWrite() {
+        transactions.save(tx(TransactionType.INCOME, "50.00", "EUR", LocalDate.now()));
+        flushAndClear();
+
+        // El agregado global se leyó antes de que confirmara una escritura que el ledger ya incluye
+        TransactionRepository racing = mock(TransactionRepository.class);
+        when(racing.aggregateLedgerAll()).thenReturn(List.of(new LedgerTotal(user.getUserId(), "EUR",
+                BigDecimal.ZERO, BigDecimal.ZERO, 0L)));
+        when(racing.aggregateLedger(user.getUserId())).thenAnswer(inv -> transactionRepository.aggregateLedger(user.getUserId()));
+        BalanceLedgerService reconciling = new BalanceLedgerService(ledgerRepository, racing, events::add);
+        reconciling.repairOnReconcile = true;
+
+        LedgerCheckDto reconciled = reconciling.reconcileAll();
+        assertFalse(reconciled.isConsistent(), "la primera pasada lo ve");
+        assertEquals(0, reconciled.getRepaired());
+        assertTrue(events.isEmpty(), "no se reconstruye ni se invalida nada");
+    }
+}
@@ -0,0 +1,142 @@
+package com.eet.backend.services;
+
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.*;
+import com.eet.backend.services.stats.QuantileSketch;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * El cierre de mes de la comparativa por país recorre los gastos por cursor: no quedan
+ * transacciones en el contexto de persistencia y un mes sintético de un millón de filas se
+ * agrega soltando cada fila al procesarla.
+ */
+@H2JpaTest
+class CountrySpendingStreamingTest {
+
+    private static final int USERS = 1_000;
+    private static final int ROWS_PER_USER = 1_000;
+
+    @Autowired private TestEntityManager em;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private CountrySpendingStatsRepository statsRepository;
+    @Autowired private UserCategorySketchRepository sketchRepository;
+
+    private ExchangeRateService fx;
+    private Category food;
+    private Category rent;
+
+    @BeforeEach
+    void setUp() {
+        fx = mock(ExchangeRateService.class, withSettings().stubOnly());
+        when(fx.convert(any(Money.class), any(), any())).thenAnswer(inv -> inv.getArgument(0));
+        food = em.persist(Entities.defaultCategory("Food"));
+        rent = em.persist(Entities.defaultCategory("Rent"));
+    }
+
+    private User user(String email, String country, boolean consent) {
+        return em.persist(Entities.user(email, country, consent));
+    }
+
+    private void expense(User user, Category category, String amount) {
+        em.persist(Transaction.builder().user(user).category(category).type(TransactionType.EXPENSE)
+                .amount(new BigDecimal(amount)).currency("EUR").date(LocalDate.now()).build());
+    }
+
+    @Test
+    void monthClose_aggregatesPerUser_andDetachesEveryRow() {
+        User ana = user("ana@test.com", "ES", true);
+        expense(ana, food, "10.00");
+        expense(ana, food, "20.00");
+        expense(ana, rent, "300.00");
+        User luis = user("luis@test.com", "ES", true);
+        expense(luis, food, "40.00");
+        expense(luis, food, "40.00");
+        expense(luis, food, "40.00");
+        User few = user("few@test.com", "ES", true);       // por debajo del umbral de 3
+        expense(few, food, "99.00");
+        User noConsent = user("private@test.com", "ES", false);
+        for (int i = 0; i < 3; i++) expense(noConsent, food, "99.00");
+        em.flush();
+        em.clear();
+
+        new CountrySpendingStatsService(statsRepository, transactionRepository, fx, sketchRepository,
+                em.getEntityManager()).updateCountrySpendingStats();
+
+        Session session = em.getEntityManager().unwrap(Session.class);
+        assertTrue(session.getStatistics().getEntityKeys().stream()
+                        .map(EntityKey.class::cast)
+                        .noneMatch(k -> k.getEntityName().equals(Transaction.class.getName())),
+                "transacciones retenidas: " + session.getStatistics().getEntityKeys());
+
+        CountrySpendingStats foodStats = statsRepository.findByCountryAndCategory("ES", "Food").orElseThrow();
+        assertEquals(2, foodStats.getSampleSize());
+        assertEquals(0, new BigDecimal("27.50").compareTo(foodStats.getAverageAmount())); // (15 + 40) / 2
+        assertEquals(1, statsRepository.findByCountryAndCategory("ES", "Rent").orElseThrow().getSampleSize());
+        assertTrue(sketchRepository.findByUserIdAndCategoryAndCurrency(few.getUserId(), "Food", "EUR").isEmpty());
+
+        // El sketch del usuario guarda su media del mes, igual que el del país, no cada importe
+        QuantileSketch anaFood = QuantileSketch.fromBytes(sketchRepository
+                .findByUserIdAndCategoryAndCurrency(ana.getUserId(), "Food", "EUR").orElseThrow().getSketch());
+        assertEquals(1, anaFood.count());
+        assertEquals(0, new BigDecimal("15.00").compareTo(anaFood.quantile(0.5, 2)));
+    }
+
+    @Test
+    void millionRowMonth_isConsumedOnceAndDetachedRowByRow() {
+        TransactionRepository repository = mock(TransactionRepository.class, withSettings().stubOnly());
+        CountrySpendingStatsRepository stats = mock(CountrySpendingStatsRepository.class, withSettings().stubOnly());
+        UserCategorySketchRepository sketches = mock(UserCategorySketchRepository.class, withSettings().stubOnly());
+        EntityManager entityManager = mock(EntityManager.class, withSettings().stubOnly());
+        AtomicLong detached = new AtomicLong();
+        doAnswer(inv -> { detached.incrementAndGet(); return null; }).when(entityManager).detach(any());
+        when(sketches.findByUserIdAndCategoryAndCurrency(any(), any(), any())).thenReturn(Optional.empty());
+        when(stats.findByCountryAndCategory(any(), any())).thenReturn(Optional.empty());
+        List<CountrySpendingStats> saved = new ArrayList<>();
+        when(stats.save(any())).thenAnswer(inv -> { saved.add(inv.getArgument(0)); return inv.getArgument(0); });
+
+        // Las filas se crean al leerlas, como haría el cursor, ya ordenadas por usuario
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add(User.builder().userId(UUID.randomUUID()).country("ES").consentToDataAnalysis(true).build());
+        }
+        AtomicLong produced = new AtomicLong();
+        AtomicBoolean closed = new AtomicBoolean();
+        LocalDate day = LocalDate.now();
+        when(repository.streamCountryExpenses(any(), any(), any())).thenAnswer(inv -> Stream.generate(() -> {
+            long i = produced.getAndIncrement();
+            return Transaction.builder().user(users.get((int) (i / ROWS_PER_USER))).category(food)
+                    .type(TransactionType.EXPENSE).amount(new BigDecimal("2.00")).currency("EUR").date(day).build();
+        }).limit((long) USERS * ROWS_PER_USER).onClose(() -> closed.set(true)));
+
+        new CountrySpendingStatsService(stats, repository, fx, sketches, entityManager).updateCountrySpendingStats();
+
+        assertEquals((long) USERS * ROWS_PER_USER, produced.get());
+        assertEquals((long) USERS * ROWS_PER_USER, detached.get());
+        assertTrue(closed.get(), "el cursor se cierra");
+        assertEquals(1, saved.size());
+        assertEquals(USERS, saved.get(0).getSampleSize());
+        assertEquals(0, new BigDecimal("2.00").compareTo(saved.get(0).getAverageAmount()));
+    }
+}
@@ -0,0 +1,150 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.DashboardDto;
+import com.eet.backend.dto.TransactionDto;
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.*;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * El dashboard con su plan fijo de lecturas frente a la secuencia que hacía el controlador
+ * (usuario, balance, gasto del mes, presupuesto, recientes y un tipo por fila): mismo DTO
+ * y presupuesto de sentencias comprobado.
+ */
+@H2JpaTest
+class DashboardServiceTest {
+
+    private static final String EMAIL = "dashboard@test.com";
+
+    @Autowired private TestEntityManager em;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private BudgetRepository budgetRepository;
+    @Autowired private TripRepository tripRepository;
+    @Autowired private MonthlyRollupRepository rollupRepository;
+    @Autowired private BalanceLedgerRepository ledgerRepository;
+
+    private DashboardService dashboard;
+    private TransactionService transactions;
+    private BudgetService budgets;
+    private ExchangeRateService fx;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        fx = mock(ExchangeRateService.class);
+        when(fx.getRate(anyString(), anyString())).thenAnswer(inv -> Optional.of(ExchangeRate.builder()
+                .fromCurrency(inv.getArgument(0)).toCurrency(inv.getArgument(1))
+                .rate(inv.getArgument(0).equals(inv.getArgument(1)) ? BigDecimal.ONE : new BigDecimal("0.5"))
+                .date(LocalDate.now()).build()));
+        when(fx.convert(any(Money.class), any(), any())).thenAnswer(inv -> inv.getArgument(1).equals(inv.getArgument(2))
+                ? inv.getArgument(0) : ((Money) inv.getArgument(0)).times(new BigDecimal("0.5")));
+        when(fx.convert(any(BigDecimal.class), any(), any())).thenAnswer(inv -> inv.getArgument(1).equals(inv.getArgument(2))
+                ? inv.getArgument(0) : ((BigDecimal) inv.getArgument(0)).multiply(new BigDecimal("0.5")));
+
+        MonthlyRollupService rollups = new MonthlyRollupService(rollupRepository, transactionRepository, event -> { });
+        transactions = new TransactionService(transactionRepository, new TransactionQueryRepository(em.getEntityManager()), budgetRepository, tripRepository, fx, rollups,
+                new BalanceLedgerService(ledgerRepository, transactionRepository, event -> { }), event -> { });
+        budgets = new BudgetService(budgetRepository, rollups, event -> { });
+        dashboard = new DashboardService(userRepository, ledgerRepository, transactionRepository, fx);
+        statistics = em.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        User user = em.persist(Entities.user(EMAIL));
+        Category food = em.persist(Entities.category(user, "Food", "🍕"));
+        Trip trip = em.persist(Trip.builder().name("Rome").destination("IT").user(user).currency("EUR")
+                .startDate(LocalDate.now().minusDays(3)).endDate(LocalDate.now()).build());
+        YearMonth now = YearMonth.now();
+        em.persist(Budget.builder().user(user).month(now.getMonthValue()).year(now.getYear())
+                .maxSpending(new BigDecimal("500.00")).build());
+
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 300; i++) {
+            transactions.save(Transaction.builder().user(user).category(food)
+                    .type(i % 4 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE)
+                    .amount(new BigDecimal("3.00")).currency(i % 2 == 0 ? "EUR" : "USD")
+                    .date(today.minusDays(i)).trip(i < 3 ? trip : null)
+                    .description("tx " + i).build());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    // Lo que hacía TransactionController.getDashboardData antes de este cambio
+    private DashboardDto previousDashboard() {
+        User user = userRepository.findByEmail(EMAIL).orElseThrow();
+        BigDecimal balance = transactions.getBalance(user);
+        BigDecimal currentExpenses = transactions.getCurrentMonthExpenses(user);
+        Optional<Budget> monthlyBudget = budgets.getMonthlyBudget(user.getUserId(),
+                LocalDate.now().getMonthValue(), LocalDate.now().getYear());
+        BigDecimal maxSpending = monthlyBudget.map(Budget::getMaxSpending).orElse(null);
+        BigDecimal availableBudget = (maxSpending != null) ? maxSpending.subtract(currentExpenses) : null;
+        List<TransactionDto> recent = transactions.getRecentByUser(user, 5).stream()
+                .map(tx -> {
+                    ExchangeRate rate = fx.getRate(tx.getCurrency(), user.getPreferredCurrency()).orElseThrow();
+                    return TransactionDto.builder().transactionId(tx.getTransactionId())
+                            .convertedAmount(tx.getAmount().multiply(rate.getRate()))
+                            .tripName(tx.getTrip() != null ? tx.getTrip().getName() : null)
+                            .build();
+                })
+                .toList();
+        return new DashboardDto(balance, currentExpenses, maxSpending, availableBudget, recent);
+    }
+
+    // Cada llamada como una petición: contexto de persistencia vacío
+    private <T> long statements(Supplier<T> call) {
+        em.clear();
+        statistics.clear();
+        call.get();
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    void dashboard_matchesPreviousResult_withinQueryBudget() {
+        DashboardDto before = previousDashboard();
+        em.clear();
+        DashboardDto after = dashboard.getDashboard(EMAIL);
+
+        assertEquals(0, before.getBalance().compareTo(after.getBalance()));
+        assertEquals(0, before.getCurrentMonthExpenses().compareTo(after.getCurrentMonthExpenses()));
+        assertEquals(0, before.getAvailableBudget().compareTo(after.getAvailableBudget()));
+        assertEquals(before.getRecentTransactions().stream().map(TransactionDto::getTransactionId).toList(),
+                after.getRecentTransactions().stream().map(TransactionDto::getTransactionId).toList());
+        assertEquals("Rome", after.getRecentTransactions().get(0).getTripName());
+        assertEquals(0, new BigDecimal("1.50").compareTo(after.getRecentTransactions().get(1).getConvertedAmount()));
+        assertEquals(Money.SCALE, after.getRecentTransactions().get(1).getConvertedAmount().scale());
+
+        long previous = statements(this::previousDashboard);
+        long planned = statements(() -> dashboard.getDashboard(EMAIL));
+        assertTrue(planned <= DashboardService.QUERY_BUDGET, "sentencias: " + planned);
+        assertTrue(planned < previous);
+
+        // Un tipo por moneda (EUR, USD) en vez de uno por fila reciente
+        clearInvocations(fx);
+        dashboard.getDashboard(EMAIL);
+        verify(fx, times(2)).getRate(anyString(), anyString());
+    }
+
+    @Test
+    void dashboard_unknownUser_fails() {
+        assertThrows(RuntimeException.class, () -> dashboard.getDashboard("nobody@test.com"));
+    }
+}
@@ -0,0 +1,107 @@
+package com.eet.backend.services;
+
+import com.eet.backend.config.CurrencyConfig;
+import com.eet.backend.dto.FxBackfillResultDto;
+import com.eet.backend.services.fx.CircuitBreaker;
+import com.eet.backend.services.fx.FrankfurterProvider;
+import com.eet.backend.services.fx.HedgedRateFetcher;
+import com.eet.backend.support.FxStandInServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExchangeRateBackfillServiceTest {
+
+    // Viernes 2024-03-29 (Viernes Santo) y lunes 2024-04-01 son festivos TARGET: no hay publicación
+    private static final String SERIES = "{\"base\":\"EUR\",\"rates\":{"
+            + "\"2024-03-27\":{\"USD\":1.0830,\"GBP\":0.8570},"
+            + "\"2024-03-28\":{\"USD\":1.0811,\"GBP\":0.8551},"
+            + "\"2024-04-02\":{\"USD\":1.0765,\"GBP\":0.8560}}}";
+
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource(
+                "jdbc:h2:mem:backfill" + System.nanoTime() + ";MODE=PostgreSQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=DATE", "sa", "");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("CREATE TABLE exchange_rates (rate_id UUID PRIMARY KEY, from_currency VARCHAR(3) NOT NULL, "
+                + "to_currency VARCHAR(3) NOT NULL, rate NUMERIC(19,6) NOT NULL, date DATE NOT NULL, "
+                + "UNIQUE (from_currency, to_currency, date))");
+    }
+
+    private ExchangeRateBackfillService service(FxStandInServer server) {
+        FrankfurterProvider provider = new FrankfurterProvider(HttpClient.newHttpClient(), new ObjectMapper());
+        ReflectionTestUtils.setField(provider, "baseUrl", server.baseUrl() + "/v1");
+        CurrencyConfig currencies = new CurrencyConfig();
+        ReflectionTestUtils.setField(currencies, "supportedCurrencies", List.of("EUR", "USD", "GBP"));
+
+        ExchangeRateBackfillService service = new ExchangeRateBackfillService(
+                new HedgedRateFetcher(provider, Optional.empty(), 300, 2_500),
+                new CircuitBreaker(3, 30_000), jdbc, currencies);
+        service.triangulationEnabled = true;
+        service.pivot = "EUR";
+        service.batchSize = 4;
+        return service;
+    }
+
+    @Test
+    void backfill_oneSeriesRequest_fillsHolidaysAndWeekendForward() throws Exception {
+        try (FxStandInServer server = new FxStandInServer(ex -> SERIES)) {
+            FxBackfillResultDto result = service(server)
+                    .backfill(LocalDate.of(2024, 3, 28), LocalDate.of(2024, 4, 2), null);
+
+            assertEquals(1, server.requests().size());
+            assertTrue(server.requests().get(0).startsWith("/v1/2024-03-21..2024-04-02?base=EUR"));
+            // 6 días x 2 destinos, festivos y fin de semana incluidos
+            assertEquals(12, result.getRows());
+            assertEquals(12, result.getInserted());
+            assertEquals(2, result.getPublishedDays());
+
+            BigDecimal easterMonday = jdbc.queryForObject(
+                    "SELECT rate FROM exchange_rates WHERE from_currency='EUR' AND to_currency='USD' AND date=?",
+                    BigDecimal.class, LocalDate.of(2024, 4, 1));
+            assertEquals(0, new BigDecimal("1.0811").compareTo(easterMonday));
+        }
+    }
+
+    @Test
+    void backfill_isIdempotent_andKeepsExistingRows() throws Exception {
+        jdbc.update("INSERT INTO exchange_rates VALUES (RANDOM_UUID(), 'EUR', 'USD', 1.5, DATE '2024-03-28')");
+        try (FxStandInServer server = new FxStandInServer(ex -> SERIES)) {
+            ExchangeRateBackfillService service = service(server);
+            LocalDate from = LocalDate.of(2024, 3, 28), to = LocalDate.of(2024, 4, 2);
+
+            assertEquals(11, service.backfill(from, to, List.of("EUR")).getInserted());
+            assertEquals(0, service.backfill(from, to, List.of("EUR")).getInserted());
+
+            assertEquals(12, jdbc.queryForObject("SELECT COUNT(*) FROM exchange_rates", Integer.class));
+            BigDecimal kept = jdbc.queryForObject(
+                    "SELECT rate FROM exchange_rates WHERE to_currency='USD' AND date=DATE '2024-03-28'", BigDecimal.class);
+            assertEquals(0, new BigDecimal("1.5").compareTo(kept));
+        }
+    }
+
+    @Test
+    void fillForward_neverFreezesTodayBeforePublication() {
+        LocalDate today = LocalDate.of(2024, 4, 3);
+        var series = new java.util.TreeMap<LocalDate, java.util.Map<String, BigDecimal>>();
+        series.put(today.minusDays(1), java.util.Map.of("USD", new BigDecimal("1.07")));
+
+        List<Object[]> rows = ExchangeRateBackfillService.fillForward(
+                "EUR", List.of("USD"), series, today.minusDays(1), today, today);
+
+        assertEquals(1, rows.size());
+    }
+}
@@ -0,0 +1,158 @@
+package com.eet.backend.services;
+
+import com.eet.backend.model.ExchangeRate;
+import com.eet.backend.model.Money;
+import com.eet.backend.repositories.ExchangeRateQueryRepository;
+import com.eet.backend.repositories.ExchangeRateRepository;
+import com.eet.backend.services.fx.CircuitBreaker;
+import com.eet.backend.services.fx.FxRateCache;
+import com.eet.backend.services.fx.FxRateSnapshot;
+import com.eet.backend.services.fx.HedgedRateFetcher;
+import com.eet.backend.services.fx.RateProvider;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExchangeRateServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    @Mock private ExchangeRateRepository repo;
+    @Mock private ExchangeRateQueryRepository queries;
+    @Mock private RateProvider primary;
+
+    private ExchangeRateService service;
+    private FxRateCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new FxRateCache(List.of("EUR", "USD", "GBP"), 10);
+        HedgedRateFetcher fetcher = new HedgedRateFetcher(primary, Optional.empty(), 50, 1_000);
+        service = new ExchangeRateService(repo, queries, fetcher, cache, new CircuitBreaker(2, 60_000), new FxRateSnapshot(""));
+        service.triangulationEnabled = true;
+        service.pivot = "EUR";
+        service.triangulationScale = 6;
+        service.triangulationRounding = RoundingMode.HALF_EVEN;
+        service.staleEnabled = true;
+        service.staleRetryMs = 60_000;
+    }
+
+    private static ExchangeRate row(String from, String to, String rate) {
+        return ExchangeRate.builder().fromCurrency(from).toCurrency(to).rate(new BigDecimal(rate)).date(DAY).build();
+    }
+
+    @Test
+    void crossRate_isDerivedFromPivotRows_withoutProviderOrSave() {
+        when(repo.findByFromCurrencyAndDate("EUR", DAY))
+                .thenReturn(List.of(row("EUR", "USD", "1.100000"), row("EUR", "GBP", "0.850000")));
+
+        BigDecimal r = service.getRate("USD", "GBP", DAY).orElseThrow().getRate();
+
+        assertEquals(new BigDecimal("0.772727"), r);
+        verify(repo, never()).findByFromCurrencyAndToCurrencyAndDate(any(), any(), any());
+        verify(repo, never()).save(any());
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void inverseOfPivot_andRepeatedLookups_hitTheCache() {
+        when(repo.findByFromCurrencyAndDate("EUR", DAY))
+                .thenReturn(List.of(row("EUR", "USD", "1.250000"), row("EUR", "GBP", "0.850000")));
+
+        assertEquals(new BigDecimal("0.800000"), service.getRate("USD", "EUR", DAY).orElseThrow().getRate());
+        assertEquals(0, new BigDecimal("0.8").compareTo(service.getRate("USD", "EUR", DAY).orElseThrow().getRate()));
+        service.getRate("GBP", "USD", DAY);
+
+        verify(repo, times(1)).findByFromCurrencyAndDate("EUR", DAY);
+    }
+
+    @Test
+    void missingPivotRow_isWarmedWithOneBatchedProviderCall() {
+        when(repo.findByFromCurrencyAndDate("EUR", DAY)).thenReturn(List.of());
+        when(primary.ratesAsync(eq("EUR"), eq(List.of("USD", "GBP")), eq(DAY)))
+                .thenReturn(CompletableFuture.completedFuture(
+                        Map.of("USD", new BigDecimal("1.1"), "GBP", new BigDecimal("0.85"))));
+        when(repo.save(any())).thenAnswer(inv -> inv.getArgument(0));
+
+        service.getRate("EUR", "USD", DAY);
+        service.getRate("EUR", "GBP", DAY);
+        service.getRate("GBP", "USD", DAY);
+
+        verify(primary, times(1)).ratesAsync(any(), any(), any());
+        verify(repo, times(2)).save(any());
+    }
+
+    @Test
+    void providersDown_serveLastStoredRate_markedStale_andOpenTheBreaker() {
+        LocalDate older = DAY.minusDays(3);
+        when(repo.findByFromCurrencyAndDate("EUR", DAY)).thenReturn(List.of());
+        when(repo.findByFromCurrencyAndToCurrencyAndDate(any(), any(), eq(DAY))).thenReturn(Optional.empty());
+        when(primary.ratesAsync(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("HTTP 503")));
+        when(repo.findFirstByFromCurrencyAndToCurrencyAndDateLessThanEqualOrderByDateDesc("EUR", "USD", DAY))
+                .thenReturn(Optional.of(ExchangeRate.builder().fromCurrency("EUR").toCurrency("USD")
+                        .rate(new BigDecimal("1.080000")).date(older).build()));
+        when(repo.findFirstByFromCurrencyAndToCurrencyAndDateLessThanEqualOrderByDateDesc("EUR", "GBP", DAY))
+                .thenReturn(Optional.of(ExchangeRate.builder().fromCurrency("EUR").toCurrency("GBP")
+                        .rate(new BigDecimal("0.860000")).date(older).build()));
+
+        ExchangeRate eurUsd = service.getRate("EUR", "USD", DAY).orElseThrow();
+        assertTrue(eurUsd.isStale());
+        assertEquals(older, eurUsd.getDate());
+
+        ExchangeRate cross = service.getRate("GBP", "USD", DAY).orElseThrow();
+        assertTrue(cross.isStale());
+        assertEquals(new BigDecimal("1.255814"), cross.getRate());
+
+        // Dentro de la ventana de reintento no se vuelve a llamar a nadie
+        for (int i = 0; i < 20; i++) service.getRate("GBP", "USD", DAY);
+
+        assertEquals(CircuitBreaker.State.OPEN, service.getBreakerStats().state());
+        // fila pivote + par EUR->USD abren el circuito; el resto ya no sale a la red
+        verify(primary, times(2)).ratesAsync(any(), any(), any());
+    }
+
+    @Test
+    void providersDown_withoutStoredRate_stillFails() {
+        when(repo.findByFromCurrencyAndDate("EUR", DAY)).thenReturn(List.of());
+        when(repo.findByFromCurrencyAndToCurrencyAndDate(any(), any(), any())).thenReturn(Optional.empty());
+        when(primary.ratesAsync(any(), any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("HTTP 503")));
+        when(repo.findFirstByFromCurrencyAndToCurrencyAndDateLessThanEqualOrderByDateDesc(any(), any(), any()))
+                .thenReturn(Optional.empty());
+
+        assertThrows(IllegalStateException.class, () -> service.getRate("EUR", "USD", DAY));
+    }
+
+    @Test
+    void convertMiss_countsOneCacheMissPerLookup() {
+        LocalDate today = LocalDate.now();
+        service.triangulationEnabled = false;
+        when(repo.findByFromCurrencyAndToCurrencyAndDate("USD", "EUR", today)).thenReturn(Optional.of(
+                ExchangeRate.builder().fromCurrency("USD").toCurrency("EUR").rate(new BigDecimal("0.900000")).date(today).build()));
+
+        service.convert(Money.of(new BigDecimal("10")), "USD", "EUR");
+        assertEquals(1, cache.stats().misses());
+        assertEquals(0, cache.stats().hits());
+
+        service.convert(Money.of(new BigDecimal("10")), "USD", "EUR");
+        assertEquals(1, cache.stats().misses());
+        assertEquals(1, cache.stats().hits());
+    }
+}
@@ -0,0 +1,145 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.stats.CategoryCurrencyTotal;
+import com.eet.backend.dto.stats.RollupCheckDto;
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.*;
+import com.eet.backend.services.stats.UserStatsChangedEvent;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+@H2JpaTest
+class MonthlyRollupServiceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+    private static final YearMonth MARCH = YearMonth.of(2024, 3);
+    private static final YearMonth APRIL = YearMonth.of(2024, 4);
+
+    @Autowired private TestEntityManager em;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private BudgetRepository budgetRepository;
+    @Autowired private TripRepository tripRepository;
+    @Autowired private MonthlyRollupRepository rollupRepository;
+    @Autowired private BalanceLedgerRepository ledgerRepository;
+
+    private final List<Object> events = new ArrayList<>();
+    private MonthlyRollupService rollups;
+    private TransactionService transactions;
+    private User user;
+    private Category food;
+
+    @BeforeEach
+    void setUp() {
+        rollups = new MonthlyRollupService(rollupRepository, transactionRepository, events::add);
+        transactions = new TransactionService(transactionRepository, new TransactionQueryRepository(em.getEntityManager()), budgetRepository, tripRepository,
+                mock(ExchangeRateService.class), rollups,
+                new BalanceLedgerService(ledgerRepository, transactionRepository, event -> { }), event -> { });
+
+        user = em.persist(Entities.user("rollup@test.com"));
+        food = em.persist(Entities.category(user, "Food", "🍕"));
+    }
+
+    private Transaction tx(String amount, String currency, LocalDate date) {
+        return Transaction.builder().user(user).category(food).type(TransactionType.EXPENSE)
+                .amount(new BigDecimal(amount)).currency(currency).date(date).build();
+    }
+
+    private CategoryCurrencyTotal bucket(YearMonth month, String currency) {
+        return rollups.totals(user.getUserId(), month, month).stream()
+                .filter(r -> r.getCurrency().equals(currency))
+                .findFirst().orElse(null);
+    }
+
+    private void flushAndClear() {
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void saveUpdateDelete_keepBucketsInSync() {
+        Transaction a = transactions.save(tx("10.00", "EUR", DAY));
+        transactions.save(tx("5.50", "EUR", DAY.plusDays(2)));
+        Transaction usd = transactions.save(tx("20.00", "USD", DAY));
+        flushAndClear();
+
+        assertEquals(0, new BigDecimal("15.50").compareTo(bucket(MARCH, "EUR").getTotal()));
+        assertEquals(2, bucket(MARCH, "EUR").getCount());
+
+        // Mover de mes y de importe: sale de marzo y entra en abril
+        transactions.update(a.getTransactionId(), tx("7.00", "EUR", DAY.plusMonths(1)), user);
+        transactions.delete(usd.getTransactionId());
+        flushAndClear();
+
+        assertEquals(0, new BigDecimal("5.50").compareTo(bucket(MARCH, "EUR").getTotal()));
+        assertEquals(1, bucket(MARCH, "EUR").getCount());
+        assertNull(bucket(MARCH, "USD"), "un cubo vacío no se devuelve");
+        assertEquals(0, new BigDecimal("7.00").compareTo(bucket(APRIL, "EUR").getTotal()));
+        assertTrue(rollups.check(user.getUserId()).isConsistent());
+    }
+
+    @Test
+    void save_rejectsExistingRows_soEditsGoThroughUpdate() {
+        Transaction saved = transactions.save(tx("10.00", "EUR", DAY));
+
+        assertThrows(IllegalArgumentException.class, () -> transactions.save(saved));
+        flushAndClear();
+
+        assertEquals(1, bucket(MARCH, "EUR").getCount(), "no se cuenta dos veces");
+        assertTrue(rollups.check(user.getUserId()).isConsistent());
+    }
+
+    @Test
+    void recurringTemplates_doNotCount() {
+        RecurringTransaction template = new RecurringTransaction();
+        template.setUser(user);
+        template.setCategory(food);
+        template.setType(TransactionType.EXPENSE);
+        template.setAmount(new BigDecimal("500.00"));
+        template.setCurrency("EUR");
+        template.setDate(DAY);
+        template.setRecurrencePattern(RecurrencePattern.MONTHLY);
+        template.setNextExecution(DAY.plusMonths(1));
+        transactions.save(template);
+        flushAndClear();
+
+        assertTrue(rollups.totals(user.getUserId(), MARCH, MARCH).isEmpty());
+        assertTrue(rollups.check(user.getUserId()).isConsistent());
+    }
+
+    @Test
+    void check_detectsDrift_andRebuildFixesIt() {
+        transactions.save(tx("10.00", "EUR", DAY));
+        transactions.save(tx("3.00", "GBP", DAY.plusMonths(1)));
+        // Escritura que se salta el servicio: el rollup queda desfasado
+        em.persist(tx("4.00", "EUR", DAY));
+        flushAndClear();
+
+        RollupCheckDto before = rollups.check(user.getUserId());
+        assertFalse(before.isConsistent());
+        assertEquals(1, before.getMismatches().size());
+        assertEquals(0, new BigDecimal("14.00").compareTo(before.getMismatches().get(0).getExpectedTotal()));
+        assertEquals(0, new BigDecimal("10.00").compareTo(before.getMismatches().get(0).getRollupTotal()));
+
+        assertEquals(2, rollups.rebuild(user.getUserId()));
+        assertTrue(events.contains(new UserStatsChangedEvent(user.getUserId(), "rollups-rebuilt")), "invalida la cache de stats");
+        flushAndClear();
+
+        assertTrue(rollups.check(user.getUserId()).isConsistent());
+        List<CategoryCurrencyTotal> march = rollups.totals(user.getUserId(), MARCH, MARCH);
+        assertEquals(0, new BigDecimal("14.00").compareTo(march.get(0).getTotal()));
+        assertEquals("Food", march.get(0).getCategoryName());
+    }
+}
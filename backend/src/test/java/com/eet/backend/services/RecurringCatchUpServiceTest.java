@@ -0,0 +1,102 @@
+package com.eet.backend.services;
+
+import com.eet.backend.model.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * La lectura no espera al catch-up: se encola una vez por usuario y día, el flag de
+ * pendiente dura lo que tarda el pool y una cola llena no deja la marca puesta.
+ */
+class RecurringCatchUpServiceTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private RecurringTransactionService recurring;
+    private RecurringCatchUpService catchUp;
+
+    @BeforeEach
+    void setUp() {
+        recurring = mock(RecurringTransactionService.class);
+        when(recurring.processDueTransactionsForUser(any())).thenAnswer(inv -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 3;
+        });
+        catchUp = new RecurringCatchUpService(recurring);
+        catchUp.threads = 1;
+        catchUp.queueCapacity = 1;
+        catchUp.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        catchUp.stop();
+    }
+
+    private static User user() {
+        return User.builder().userId(UUID.randomUUID()).email("catchup@test.com").build();
+    }
+
+    @Test
+    void read_returnsImmediately_andCatchUpRunsOncePerDay() throws Exception {
+        User user = user();
+
+        // El pool sigue bloqueado en release: si la lectura hubiera esperado al catch-up ya no estaría pendiente
+        assertTrue(catchUp.requestCatchUp(user));
+        assertTrue(catchUp.requestCatchUp(user), "sigue pendiente mientras corre");
+        assertTrue(catchUp.isPending(user.getUserId()));
+
+        release.countDown();
+        verify(recurring, timeout(2000)).processDueTransactionsForUser(user);
+        waitUntilDone(user);
+
+        assertFalse(catchUp.requestCatchUp(user), "ya hecho hoy");
+        verify(recurring, times(1)).processDueTransactionsForUser(any());
+    }
+
+    @Test
+    void fullQueue_isNotMarkedAsDone() throws Exception {
+        User running = user(), queued = user(), rejected = user();
+        assertTrue(catchUp.requestCatchUp(running));
+        verify(recurring, timeout(2000)).processDueTransactionsForUser(running); // ocupa el único hilo
+        assertTrue(catchUp.requestCatchUp(queued));                               // ocupa la cola
+
+        assertFalse(catchUp.requestCatchUp(rejected));
+        assertFalse(catchUp.isPending(rejected.getUserId()));
+
+        release.countDown();
+        waitUntilDone(queued);
+        assertTrue(catchUp.requestCatchUp(rejected), "se reintenta en la siguiente lectura");
+        verify(recurring, timeout(2000)).processDueTransactionsForUser(rejected);
+    }
+
+    @Test
+    void failure_allowsRetry() throws Exception {
+        User user = user();
+        doThrow(new RuntimeException("BD caída")).when(recurring).processDueTransactionsForUser(user);
+
+        assertTrue(catchUp.requestCatchUp(user));
+        waitUntilDone(user);
+
+        assertTrue(catchUp.requestCatchUp(user));
+        waitUntilDone(user);
+        verify(recurring, times(2)).processDueTransactionsForUser(user);
+    }
+
+    private void waitUntilDone(User user) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (catchUp.isPending(user.getUserId())) {
+            assertTrue(System.nanoTime() < deadline, "catch-up sin terminar");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.eet.backend.services;
+
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.*;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Catch-up de recurrentes concurrente: varias lecturas del mismo usuario y el job diario a la
+ * vez generan cada ocurrencia una sola vez. Sin transacción de test para que cada hilo haga
+ * commit de verdad; los datos se borran al final.
+ */
+@H2JpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RecurringTransactionConcurrencyTest {
+
+    private static final int DUE = 30;
+
+    @Autowired private EntityManager entityManager;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private RecurringTransactionRepository recurringRepository;
+    @Autowired private BudgetRepository budgetRepository;
+    @Autowired private TripRepository tripRepository;
+    @Autowired private MonthlyRollupRepository rollupRepository;
+    @Autowired private BalanceLedgerRepository ledgerRepository;
+
+    private TransactionTemplate tx;
+    private RecurringTransactionService recurring;
+    private User user;
+    private UUID templateId;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        TransactionService transactions = new TransactionService(transactionRepository,
+                new TransactionQueryRepository(entityManager), budgetRepository, tripRepository,
+                mock(ExchangeRateService.class), new MonthlyRollupService(rollupRepository, transactionRepository, event -> { }),
+                new BalanceLedgerService(ledgerRepository, transactionRepository, event -> { }), event -> { });
+        recurring = new RecurringTransactionService(recurringRepository, transactions, categoryRepository,
+                tripRepository, tx, new UserLockStripes(8));
+
+        user = userRepository.save(Entities.user("recurring@test.com"));
+        Category rent = categoryRepository.save(Entities.category(user, "Rent"));
+
+        LocalDate start = LocalDate.now().minusDays(DUE - 1);
+        RecurringTransaction template = new RecurringTransaction();
+        template.setUser(user);
+        template.setCategory(rent);
+        template.setType(TransactionType.EXPENSE);
+        template.setAmount(new BigDecimal("5.00"));
+        template.setCurrency("EUR");
+        template.setDate(start);
+        template.setRecurrencePattern(RecurrencePattern.DAILY);
+        template.setRecurrenceStartDate(start);
+        template.setNextExecution(start);
+        template.setExecutedOccurrences(0);
+        template.setActive(true);
+        templateId = recurringRepository.save(template).getTransactionId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        recurringRepository.deleteAll();
+        transactionRepository.deleteAll();
+        ledgerRepository.deleteAll();
+        rollupRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private List<Transaction> occurrences() {
+        return transactionRepository.findAll().stream()
+                .filter(t -> templateId.equals(t.getRecurringSourceId()))
+                .toList();
+    }
+
+    @Test
+    void concurrentReadsAndJob_generateEachOccurrenceOnce() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(6);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<Integer>> runs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            boolean job = i % 3 == 0;
+            runs.add(pool.submit(() -> {
+                go.await();
+                return job ? recurring.processDueTransactions() : recurring.processDueTransactionsForUser(user);
+            }));
+        }
+        go.countDown();
+        int created = 0;
+        for (Future<Integer> run : runs) created += run.get(30, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        List<Transaction> generated = occurrences();
+        assertEquals(DUE, created);
+        assertEquals(DUE, generated.size());
+        assertEquals(DUE, generated.stream().map(Transaction::getOccurrenceDate).distinct().count());
+        RecurringTransaction template = recurringRepository.findById(templateId).orElseThrow();
+        assertEquals(LocalDate.now().plusDays(1), template.getNextExecution());
+        assertEquals(DUE, template.getExecutedOccurrences());
+    }
+
+    @Test
+    void rewoundTemplate_doesNotDuplicate() {
+        assertEquals(DUE, recurring.processDueTransactionsForUser(user));
+
+        // Alguien retrasa nextExecution (edición, restauración...): las fechas ya generadas se saltan
+        RecurringTransaction template = recurringRepository.findById(templateId).orElseThrow();
+        template.setNextExecution(LocalDate.now().minusDays(4));
+        recurringRepository.save(template);
+
+        assertEquals(0, recurring.processDueTransactionsForUser(user));
+        assertEquals(DUE, occurrences().size());
+        assertEquals(LocalDate.now().plusDays(1), recurringRepository.findById(templateId).orElseThrow().getNextExecution());
+    }
+
+    @Test
+    void uniqueKey_rejectsDuplicateOccurrence() {
+        recurring.processDueTransactionsForUser(user);
+        Transaction first = occurrences().get(0);
+
+        assertThrows(DataIntegrityViolationException.class, () -> transactionRepository.saveAndFlush(Transaction.builder()
+                .user(user).category(first.getCategory()).type(TransactionType.EXPENSE)
+                .amount(BigDecimal.ONE).currency("EUR").date(first.getDate())
+                .recurringSourceId(templateId).occurrenceDate(first.getOccurrenceDate()).build()));
+    }
+}
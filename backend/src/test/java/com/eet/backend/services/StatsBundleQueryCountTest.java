@@ -0,0 +1,160 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.stats.*;
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.*;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * /api/stats/bundle frente a las seis llamadas que hacía la página de estadísticas:
+ * mismos números, menos sentencias y menos conversiones.
+ */
+@H2JpaTest
+class StatsBundleQueryCountTest {
+
+    private static final String[] CURRENCIES = {"EUR", "USD", "GBP", "PLN"};
+
+    @Autowired private TestEntityManager em;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private BudgetRepository budgetRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TripRepository tripRepository;
+    @Autowired private MonthlyRollupRepository rollupRepository;
+
+    private final AtomicLong conversions = new AtomicLong();
+    private StatsService statsService;
+    private Statistics statistics;
+    private UUID userId;
+    private YearMonth target;
+
+    @BeforeEach
+    void setUp() {
+        ExchangeRateService fx = mock(ExchangeRateService.class);
+        when(fx.convert(any(Money.class), any(), any())).thenAnswer(inv -> {
+            conversions.incrementAndGet();
+            return ((Money) inv.getArgument(0)).times(new BigDecimal("0.5"));
+        });
+        MonthlyRollupService rollups = new MonthlyRollupService(rollupRepository, transactionRepository, event -> { });
+        statsService = new StatsService(transactionRepository, budgetRepository, userRepository, tripRepository, fx, rollups);
+        statistics = em.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        User user = em.persist(Entities.user("bundle@test.com"));
+        userId = user.getUserId();
+        List<Category> categories = List.of(
+                em.persist(Entities.category(user, "Food")),
+                em.persist(Entities.category(user, "Rent")),
+                em.persist(Entities.category(user, "Salary")));
+
+        target = YearMonth.now().minusMonths(1);
+        em.persist(Budget.builder().user(user).month(target.getMonthValue()).year(target.getYear())
+                .maxSpending(new BigDecimal("800")).build());
+
+        // Dos años de movimientos en cuatro monedas y ocho viajes
+        YearMonth now = YearMonth.now();
+        for (int m = 0; m < 24; m++) {
+            LocalDate day = now.minusMonths(m).atDay(5);
+            for (String currency : CURRENCIES) {
+                for (int c = 0; c < 2; c++) {
+                    rollups.add(em.persist(Transaction.builder().user(user).category(categories.get(c))
+                            .type(TransactionType.EXPENSE).amount(new BigDecimal("10.00")).currency(currency)
+                            .date(day).build()));
+                }
+                rollups.add(em.persist(Transaction.builder().user(user).category(categories.get(2))
+                        .type(TransactionType.INCOME).amount(new BigDecimal("100.00")).currency(currency)
+                        .date(day).build()));
+            }
+        }
+        for (int t = 0; t < 8; t++) {
+            Trip trip = em.persist(Trip.builder().name("Trip " + t).destination("X").user(user).currency("EUR")
+                    .startDate(now.atDay(1)).endDate(now.atDay(2)).build());
+            rollups.add(em.persist(Transaction.builder().user(user).category(categories.get(0)).trip(trip)
+                    .type(TransactionType.EXPENSE).amount(new BigDecimal("7.00")).currency("USD")
+                    .date(now.atDay(1)).build()));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    private record Six(MonthlySummaryDto summary, List<MonthlyEvolutionEntryDto> evolution, IncomeVsExpenseDto incomeVsExpense,
+                       List<MonthlyComparisonDto> comparison, List<TripSpendingDto> trips, AnnualSummaryDto annual) {
+    }
+
+    // Cada llamada es una petición aparte: sin contexto de persistencia compartido
+    private <T> T request(Supplier<T> call) {
+        T result = call.get();
+        em.clear();
+        return result;
+    }
+
+    private Six sixCalls() {
+        int month = target.getMonthValue();
+        int year = target.getYear();
+        return new Six(
+                request(() -> statsService.getMonthlySummary(userId, month, year)),
+                request(() -> statsService.getMonthlyEvolution(userId, 6)),
+                request(() -> statsService.getIncomeVsExpense(userId, month, year)),
+                request(() -> statsService.getMonthlyComparison(userId, 6)),
+                request(() -> statsService.getTripSpendingByUser(userId)),
+                request(() -> statsService.getAnnualSummary(userId, year)));
+    }
+
+    private StatsBundleDto bundle() {
+        return statsService.getBundle(userId, target.getMonthValue(), target.getYear(), 6, 6);
+    }
+
+    private static void assertSame(BigDecimal expected, BigDecimal actual) {
+        assertEquals(0, expected.compareTo(actual), expected + " != " + actual);
+    }
+
+    @Test
+    void bundle_matchesSixCalls_withFewerStatementsAndConversions() {
+        statistics.clear();
+        conversions.set(0);
+        Six six = sixCalls();
+        long sixStatements = statistics.getPrepareStatementCount();
+        long sixConversions = conversions.get();
+        em.clear();
+
+        statistics.clear();
+        conversions.set(0);
+        StatsBundleDto bundle = bundle();
+        long bundleStatements = statistics.getPrepareStatementCount();
+        long bundleConversions = conversions.get();
+
+        assertSame(six.summary().getTotalExpense(), bundle.getMonthlySummary().getTotalExpense());
+        assertSame(six.summary().getBudgetUsedPercent(), bundle.getMonthlySummary().getBudgetUsedPercent());
+        assertEquals(six.summary().getExpensesByCategory().keySet(), bundle.getMonthlySummary().getExpensesByCategory().keySet());
+        assertSame(six.incomeVsExpense().getTotalIncome(), bundle.getIncomeVsExpense().getTotalIncome());
+        for (int i = 0; i < 6; i++) {
+            assertEquals(six.evolution().get(i).getMonth(), bundle.getMonthlyEvolution().get(i).getMonth());
+            assertSame(six.evolution().get(i).getBalance(), bundle.getMonthlyEvolution().get(i).getBalance());
+            assertSame(six.comparison().get(i).getTotalExpense(), bundle.getMonthlyComparison().get(i).getTotalExpense());
+        }
+        assertSame(six.annual().getTotalSaving(), bundle.getAnnualSummary().getTotalSaving());
+        assertEquals(8, bundle.getTripSpending().size());
+        assertSame(six.trips().get(0).getTotalSpent(), bundle.getTripSpending().get(0).getTotalSpent());
+
+        assertTrue(bundleStatements < sixStatements / 2, "el bundle debería ahorrar más de la mitad de las sentencias");
+        assertTrue(bundleConversions < sixConversions, "las filas compartidas se convierten una sola vez");
+    }
+}
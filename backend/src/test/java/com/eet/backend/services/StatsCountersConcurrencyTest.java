@@ -0,0 +1,117 @@
+package com.eet.backend.services;
+
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.*;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Primeras escrituras concurrentes sobre un cubo de monthly_rollups o una fila de
+ * balance_ledger que todavía no existen: todas deben sumarse y ninguna transacción fallar.
+ * Sin transacción de test para que cada hilo haga commit de verdad; los datos se borran al final.
+ */
+@H2JpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatsCountersConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 10;
+
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private UserRepository userRepository;
+    @Autowired private CategoryRepository categoryRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private MonthlyRollupRepository rollupRepository;
+    @Autowired private BalanceLedgerRepository ledgerRepository;
+
+    private TransactionTemplate tx;
+    private User user;
+    private Category food;
+
+    @BeforeEach
+    void setUp() {
+        tx = new TransactionTemplate(transactionManager);
+        user = userRepository.save(Entities.user("counters@test.com"));
+        food = categoryRepository.save(Entities.category(user, "Food"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        rollupRepository.deleteAll();
+        ledgerRepository.deleteAll();
+        categoryRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    private Transaction expense(String currency) {
+        return Transaction.builder().user(user).category(food).type(TransactionType.EXPENSE)
+                .amount(new BigDecimal("2.50")).currency(currency).date(LocalDate.of(2024, 3, 15)).build();
+    }
+
+    // Cada ronda usa una moneda nueva: los THREADS hilos compiten por crear la misma fila
+    private void race(Consumer<Transaction> write) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                String currency = "C" + round;
+                CyclicBarrier barrier = new CyclicBarrier(THREADS);
+                List<Future<?>> writes = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    writes.add(pool.submit(() -> {
+                        barrier.await();
+                        tx.executeWithoutResult(status -> write.accept(expense(currency)));
+                        return null;
+                    }));
+                }
+                for (Future<?> w : writes) w.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void rollups_concurrentFirstWrites_allCount() throws Exception {
+        MonthlyRollupService rollups = new MonthlyRollupService(rollupRepository, transactionRepository, event -> { });
+
+        race(rollups::add);
+
+        assertEquals(ROUNDS, rollupRepository.findByUserId(user.getUserId()).size());
+        for (MonthlyRollup bucket : rollupRepository.findByUserId(user.getUserId())) {
+            assertEquals(MonthlyRollup.period(YearMonth.of(2024, 3)), bucket.getPeriod());
+            assertEquals(THREADS, bucket.getTxCount(), bucket.getCurrency());
+            assertEquals(0, new BigDecimal("2.50").multiply(BigDecimal.valueOf(THREADS)).compareTo(bucket.getTotal()));
+        }
+    }
+
+    @Test
+    void ledger_concurrentFirstWrites_allCount() throws Exception {
+        BalanceLedgerService ledger = new BalanceLedgerService(ledgerRepository, transactionRepository, event -> { });
+
+        race(ledger::add);
+
+        assertEquals(ROUNDS, ledgerRepository.findByUserId(user.getUserId()).size());
+        for (BalanceLedger row : ledgerRepository.findByUserId(user.getUserId())) {
+            assertEquals(THREADS, row.getTxCount(), row.getCurrency());
+            assertEquals(0, new BigDecimal("-20.00").compareTo(row.net()));
+        }
+    }
+}
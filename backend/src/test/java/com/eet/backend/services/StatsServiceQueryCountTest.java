@@ -0,0 +1,128 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.stats.MonthlyComparisonDto;
+import com.eet.backend.dto.stats.MonthlyEvolutionEntryDto;
+import com.eet.backend.dto.stats.TripSpendingDto;
+import com.eet.backend.model.*;
+import com.eet.backend.repositories.*;
+import com.eet.backend.support.Entities;
+import com.eet.backend.support.H2JpaTest;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Las series mensuales deben costar lo mismo con 6 que con 24 meses: usuario + una lectura
+ * de rango. Si vuelve el bucle de una consulta por mes, este test falla.
+ */
+@H2JpaTest
+class StatsServiceQueryCountTest {
+
+    @Autowired private TestEntityManager em;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private BudgetRepository budgetRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private TripRepository tripRepository;
+    @Autowired private MonthlyRollupRepository rollupRepository;
+
+    private StatsService statsService;
+    private Statistics statistics;
+    private User user;
+    private Category food;
+
+    @BeforeEach
+    void setUp() {
+        MonthlyRollupService rollups = new MonthlyRollupService(rollupRepository, transactionRepository, event -> { });
+        statsService = new StatsService(transactionRepository, budgetRepository, userRepository, tripRepository,
+                mock(ExchangeRateService.class), rollups);
+        statistics = em.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+
+        user = em.persist(Entities.user("series@test.com"));
+        food = em.persist(Entities.category(user, "Food"));
+
+        // Un gasto por mes durante dos años
+        YearMonth now = YearMonth.now();
+        for (int i = 0; i < 24; i++) {
+            rollups.add(em.persist(Transaction.builder().user(user).category(food).type(TransactionType.EXPENSE)
+                    .amount(new BigDecimal(i + 1)).currency("EUR").date(now.minusMonths(i).atDay(10)).build()));
+        }
+        em.flush();
+        em.clear();
+    }
+
+    private long statements(Runnable call) {
+        statistics.clear();
+        call.run();
+        long count = statistics.getPrepareStatementCount();
+        em.clear();
+        return count;
+    }
+
+    @Test
+    void monthlyComparison_singleRangeRead() {
+        long six = statements(() -> statsService.getMonthlyComparison(user.getUserId(), 6));
+        long twentyFour = statements(() -> statsService.getMonthlyComparison(user.getUserId(), 24));
+
+        assertEquals(2, twentyFour, "usuario + una lectura del rango");
+        assertEquals(six, twentyFour);
+
+        List<MonthlyComparisonDto> months = statsService.getMonthlyComparison(user.getUserId(), 24);
+        assertEquals(24, months.size());
+        assertEquals(0, BigDecimal.ONE.compareTo(months.get(23).getTotalExpense()));
+        assertEquals(0, new BigDecimal(24).compareTo(months.get(0).getTotalExpense()));
+    }
+
+    @Test
+    void monthlyEvolution_singleRangeRead() {
+        long twentyFour = statements(() -> statsService.getMonthlyEvolution(user.getUserId(), 24));
+        assertEquals(2, twentyFour, "usuario + una lectura del rango");
+
+        List<MonthlyEvolutionEntryDto> months = statsService.getMonthlyEvolution(user.getUserId(), 3);
+        assertEquals(List.of(YearMonth.now().minusMonths(2).toString(), YearMonth.now().minusMonths(1).toString(),
+                YearMonth.now().toString()), months.stream().map(MonthlyEvolutionEntryDto::getMonth).toList());
+        assertEquals(0, new BigDecimal(-1).compareTo(months.get(2).getBalance()));
+    }
+
+    private void trips(int n) {
+        for (int i = 0; i < n; i++) {
+            Trip trip = em.persist(Trip.builder().name("Trip " + i).destination("X").user(user).currency("EUR")
+                    .startDate(LocalDate.now()).endDate(LocalDate.now()).build());
+            em.persist(Transaction.builder().user(user).category(food).type(TransactionType.EXPENSE).trip(trip)
+                    .amount(new BigDecimal("10.00")).currency("EUR").date(LocalDate.now()).build());
+            em.persist(Transaction.builder().user(user).category(food).type(TransactionType.EXPENSE).trip(trip)
+                    .amount(new BigDecimal("2.50")).currency("EUR").date(LocalDate.now()).build());
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void tripSpending_costDoesNotGrowWithTrips() {
+        trips(2);
+        long two = statements(() -> statsService.getTripSpending(user.getUserId()));
+        long twoByUser = statements(() -> statsService.getTripSpendingByUser(user.getUserId()));
+        trips(10);
+        long twelve = statements(() -> statsService.getTripSpending(user.getUserId()));
+        long twelveByUser = statements(() -> statsService.getTripSpendingByUser(user.getUserId()));
+
+        assertEquals(two, twelve);
+        assertEquals(twoByUser, twelveByUser);
+        assertTrue(twelve <= 3, "usuario + viajes + una consulta agrupada, fueron " + twelve);
+
+        List<TripSpendingDto> spending = statsService.getTripSpendingByUser(user.getUserId());
+        assertEquals(12, spending.size());
+        assertTrue(spending.stream().allMatch(t -> t.getTotalSpent().compareTo(new BigDecimal("12.50")) == 0));
+        assertEquals(0, new BigDecimal("12.50").compareTo(spending.get(0).getExpenseByCategory().get("Food")));
+    }
+}
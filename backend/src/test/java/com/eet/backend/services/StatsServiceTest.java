@@ -0,0 +1,63 @@
+package com.eet.backend.services;
+
+import com.eet.backend.dto.stats.AnnualSummaryDto;
+import com.eet.backend.dto.stats.CategoryCurrencyTotal;
+import com.eet.backend.model.Money;
+import com.eet.backend.model.TransactionType;
+import com.eet.backend.model.User;
+import com.eet.backend.repositories.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StatsServiceTest {
+
+    private static final UUID USER_ID = UUID.randomUUID();
+
+    @Mock private TransactionRepository transactionRepository;
+    @Mock private BudgetRepository budgetRepository;
+    @Mock private UserRepository userRepository;
+    @Mock private TripRepository tripRepository;
+    @Mock private ExchangeRateService exchangeRateService;
+    @Mock private MonthlyRollupService monthlyRollupService;
+
+    @InjectMocks private StatsService statsService;
+
+    private static CategoryCurrencyTotal group(TransactionType type, String category, String currency, String total, long count) {
+        return new CategoryCurrencyTotal(type, UUID.randomUUID(), category, null, currency, new BigDecimal(total), count);
+    }
+
+    @Test
+    void annualSummary_convertsOncePerCurrencyGroup_notPerTransaction() {
+        when(userRepository.findById(USER_ID)).thenReturn(Optional.of(User.builder().userId(USER_ID).preferredCurrency("EUR").build()));
+        when(monthlyRollupService.totals(USER_ID, YearMonth.of(2024, 1), YearMonth.of(2024, 12)))
+                .thenReturn(List.of(
+                        group(TransactionType.EXPENSE, "Food", "EUR", "1200.00", 4000),
+                        group(TransactionType.EXPENSE, "Food", "USD", "500.00", 3000),
+                        group(TransactionType.EXPENSE, "Rent", "GBP", "2000.00", 12),
+                        group(TransactionType.INCOME, "Salary", "EUR", "9000.00", 12)));
+        when(exchangeRateService.convert(any(Money.class), any(), any()))
+                .thenAnswer(inv -> ((Money) inv.getArgument(0)).times(new BigDecimal("0.5")));
+
+        AnnualSummaryDto summary = statsService.getAnnualSummary(USER_ID, 2024);
+
+        assertEquals(0, new BigDecimal("2450.00").compareTo(summary.getTotalExpense()));
+        assertEquals(0, new BigDecimal("1450.00").compareTo(summary.getExpenseByCategory().get("Food")));
+        assertEquals(0, new BigDecimal("6550.00").compareTo(summary.getTotalSaving()));
+        verify(exchangeRateService, times(2)).convert(any(Money.class), any(), any());
+        verify(transactionRepository, never()).findByUserUserIdAndDateBetween(any(), any(), any());
+    }
+}
@@ -0,0 +1,56 @@
+package com.eet.backend.services.fx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+    private final CircuitBreaker breaker = new CircuitBreaker(3, 500, now::get);
+
+    @Test
+    void opensAfterConsecutiveFailures_andRejectsWithoutCalling() {
+        AtomicInteger calls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> breaker.call(() -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("caído");
+            }));
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        assertThrows(IllegalStateException.class, () -> breaker.call(calls::incrementAndGet));
+        assertEquals(3, calls.get());
+        assertEquals(1, breaker.stats().rejected());
+    }
+
+    @Test
+    void halfOpen_letsOneTrialThrough_andClosesOnSuccess() {
+        for (int i = 0; i < 3; i++) breaker.onFailure();
+        now.addAndGet(500);
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire()); // solo una prueba a la vez
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertEquals("ok", breaker.call(() -> "ok"));
+    }
+
+    @Test
+    void failedTrial_reopensForAnotherWindow() {
+        for (int i = 0; i < 3; i++) breaker.onFailure();
+        now.addAndGet(600);
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+        assertEquals(2, breaker.stats().opens());
+    }
+}
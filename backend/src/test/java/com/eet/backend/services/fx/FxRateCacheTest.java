@@ -0,0 +1,58 @@
+package com.eet.backend.services.fx;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRateCacheTest {
+
+    private static final List<String> CURRENCIES = List.of("EUR", "USD", "GBP");
+
+    @Test
+    void put_then_get_returnsRateAndCountsHit() {
+        FxRateCache cache = new FxRateCache(CURRENCIES, 10);
+        LocalDate d = LocalDate.of(2024, 5, 2);
+
+        assertNull(cache.get("EUR", "USD", d));
+        cache.put("EUR", "USD", d, new BigDecimal("1.071200"));
+
+        assertEquals(0, new BigDecimal("1.071200").compareTo(cache.get("EUR", "USD", d)));
+        assertNull(cache.get("USD", "EUR", d)); // la matriz no es simétrica
+
+        FxRateCache.Stats s = cache.stats();
+        assertEquals(1, s.hits());
+        assertEquals(2, s.misses());
+    }
+
+    @Test
+    void unsupportedCurrency_isNeverCached() {
+        FxRateCache cache = new FxRateCache(CURRENCIES, 10);
+        LocalDate d = LocalDate.of(2024, 5, 2);
+
+        cache.put("EUR", "SEK", d, new BigDecimal("11.5"));
+
+        assertNull(cache.get("EUR", "SEK", d));
+        assertFalse(cache.supports("SEK"));
+    }
+
+    @Test
+    void retention_isBoundedAndEvictsLeastRecentlyUsedDate() throws InterruptedException {
+        FxRateCache cache = new FxRateCache(CURRENCIES, 2);
+        LocalDate d1 = LocalDate.of(2024, 1, 1), d2 = d1.plusDays(1), d3 = d1.plusDays(2);
+
+        cache.put("EUR", "USD", d1, BigDecimal.ONE);
+        cache.put("EUR", "USD", d2, BigDecimal.TEN);
+        Thread.sleep(1);
+        cache.get("EUR", "USD", d1); // d1 pasa a ser la más reciente
+        cache.put("EUR", "USD", d3, BigDecimal.valueOf(2));
+
+        assertEquals(2, cache.stats().cachedDates());
+        assertEquals(1, cache.stats().evictions());
+        assertNotNull(cache.get("EUR", "USD", d1));
+        assertNull(cache.get("EUR", "USD", d2));
+    }
+}
@@ -0,0 +1,74 @@
+package com.eet.backend.services.fx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FxRateSnapshotTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+
+    @TempDir Path dir;
+
+    @Test
+    void roundTrip_restoresEveryCachedCell() throws Exception {
+        FxRateCache cache = new FxRateCache(List.of("EUR", "USD", "GBP"), 10);
+        cache.put("EUR", "USD", DAY, new BigDecimal("1.0892"));
+        cache.put("USD", "GBP", DAY, new BigDecimal("0.784529"));
+        cache.put("EUR", "GBP", DAY.minusDays(1), new BigDecimal("0.8545"));
+
+        FxRateSnapshot snapshot = new FxRateSnapshot(dir.resolve("fx.snap").toString());
+        assertEquals(2, snapshot.write(cache));
+        // cabecera 16 + 3 códigos * 4 + 2 registros * (8 + 9 * 8)
+        assertEquals(16 + 12 + 2 * 80, Files.size(dir.resolve("fx.snap")));
+
+        FxRateCache warm = new FxRateCache(List.of("EUR", "USD", "GBP"), 10);
+        assertEquals(2, snapshot.loadInto(warm));
+
+        assertEquals(new BigDecimal("1.089200"), warm.get("EUR", "USD", DAY));
+        assertEquals(new BigDecimal("0.784529"), warm.get("USD", "GBP", DAY));
+        assertEquals(new BigDecimal("0.854500"), warm.get("EUR", "GBP", DAY.minusDays(1)));
+        assertNull(warm.get("GBP", "EUR", DAY));
+    }
+
+    @Test
+    void load_remapsByCurrencyCode_whenSupportedListChanged() throws Exception {
+        FxRateCache old = new FxRateCache(List.of("EUR", "USD", "GBP"), 10);
+        old.put("EUR", "GBP", DAY, new BigDecimal("0.8545"));
+        old.put("EUR", "USD", DAY, new BigDecimal("1.0892"));
+        FxRateSnapshot snapshot = new FxRateSnapshot(dir.resolve("fx.snap").toString());
+        snapshot.write(old);
+
+        FxRateCache current = new FxRateCache(List.of("GBP", "EUR", "JPY"), 10);
+        snapshot.loadInto(current);
+
+        assertEquals(new BigDecimal("0.854500"), current.get("EUR", "GBP", DAY));
+        assertNull(current.get("EUR", "JPY", DAY));
+    }
+
+    @Test
+    void corruptOrMissingFile_isIgnored() throws Exception {
+        Path file = dir.resolve("fx.snap");
+        FxRateSnapshot snapshot = new FxRateSnapshot(file.toString());
+        FxRateCache cache = new FxRateCache(List.of("EUR", "USD"), 10);
+
+        assertEquals(0, snapshot.loadInto(cache));
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17});
+        assertEquals(0, snapshot.loadInto(cache));
+        assertEquals(0, cache.stats().cachedDates());
+    }
+
+    @Test
+    void disabledWithoutPath() throws Exception {
+        FxRateSnapshot snapshot = new FxRateSnapshot("");
+        assertFalse(snapshot.isEnabled());
+        assertEquals(0, snapshot.write(new FxRateCache(List.of("EUR"), 1)));
+    }
+}
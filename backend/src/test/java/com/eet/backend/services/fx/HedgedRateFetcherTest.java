@@ -0,0 +1,86 @@
+package com.eet.backend.services.fx;
+
+import com.eet.backend.support.FxStandInServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Proveedores reales contra servidores locales con latencia inyectada:
+ * Frankfurter lento, FreeCurrencyAPI rápido.
+ */
+class HedgedRateFetcherTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+    private static final HttpClient HTTP = HttpClient.newBuilder().connectTimeout(Duration.ofMillis(500)).build();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static FxStandInServer frankfurterStandIn() throws Exception {
+        return new FxStandInServer(ex -> "{\"rates\":{\"USD\":1.0892}}");
+    }
+
+    private static FxStandInServer freeCurrencyStandIn() throws Exception {
+        return new FxStandInServer(ex -> "{\"data\":{\"2024-03-15\":{\"USD\":1.09}}}");
+    }
+
+    private static HedgedRateFetcher fetcher(FxStandInServer slow, FxStandInServer fast,
+                                             long hedgeDelayMs, long budgetMs) {
+        FrankfurterProvider primary = new FrankfurterProvider(HTTP, MAPPER);
+        primary.baseUrl = slow.baseUrl() + "/v1";
+        primary.requestTimeoutMs = 5_000;
+        FreeCurrencyApiProvider fallback = new FreeCurrencyApiProvider(HTTP, MAPPER);
+        fallback.baseUrl = fast.baseUrl() + "/v1";
+        fallback.apiKey = "test";
+        fallback.requestTimeoutMs = 5_000;
+        return new HedgedRateFetcher(primary, Optional.of(fallback), hedgeDelayMs, budgetMs);
+    }
+
+    @Test
+    void fastPrimary_neverFiresTheHedge() throws Exception {
+        try (FxStandInServer primary = frankfurterStandIn(); FxStandInServer fallback = freeCurrencyStandIn()) {
+            HedgedRateFetcher fetcher = fetcher(primary, fallback, 500, 2_000);
+
+            assertEquals(new BigDecimal("1.0892"), fetcher.rate("EUR", "USD", DAY));
+            assertEquals(0, fetcher.stats().hedges());
+            assertTrue(fallback.requests().isEmpty());
+        }
+    }
+
+    @Test
+    void slowPrimary_isHedged_andFallbackAnswers() throws Exception {
+        try (FxStandInServer primary = frankfurterStandIn(); FxStandInServer fallback = freeCurrencyStandIn()) {
+            primary.setLatencyMillis(800);
+            HedgedRateFetcher fetcher = fetcher(primary, fallback, 40, 2_000);
+
+            int samples = 5;
+            for (int i = 0; i < samples; i++) {
+                assertEquals(new BigDecimal("1.09"), fetcher.rate("EUR", "USD", DAY));
+            }
+
+            assertEquals(samples, fetcher.stats().hedges());
+            assertEquals(samples, fetcher.stats().fallbackWins());
+            assertEquals(samples, fallback.requests().size());
+        }
+    }
+
+    @Test
+    void bothProvidersTooSlow_failWithinBudget() throws Exception {
+        try (FxStandInServer primary = frankfurterStandIn(); FxStandInServer fallback = freeCurrencyStandIn()) {
+            primary.setLatencyMillis(1_500);
+            fallback.setLatencyMillis(1_500);
+            HedgedRateFetcher fetcher = fetcher(primary, fallback, 20, 200);
+
+            long start = System.nanoTime();
+            assertThrows(IllegalStateException.class, () -> fetcher.rate("EUR", "USD", DAY));
+            assertTrue((System.nanoTime() - start) / 1_000_000 < 1_000);
+            assertEquals(1, fetcher.stats().timeouts());
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.eet.backend.services.fx;
+
+import com.eet.backend.support.FxStandInServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.net.http.HttpClient;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateProviderHttpTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 15);
+    private static final List<String> TARGETS = List.of("USD", "GBP", "JPY");
+    private static final HttpClient HTTP = HttpClient.newHttpClient();
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    void frankfurter_fetchesAllSymbolsInOneRequest() throws Exception {
+        try (FxStandInServer server = new FxStandInServer(ex ->
+                "{\"base\":\"EUR\",\"date\":\"2024-03-15\",\"rates\":{\"USD\":1.0892,\"GBP\":0.8545,\"JPY\":162.12}}")) {
+            FrankfurterProvider provider = new FrankfurterProvider(HTTP, MAPPER);
+            provider.baseUrl = server.baseUrl() + "/v1";
+
+            Map<String, BigDecimal> rates = provider.rates("EUR", TARGETS, DAY);
+
+            assertEquals(new BigDecimal("1.0892"), rates.get("USD"));
+            assertEquals(new BigDecimal("162.12"), rates.get("JPY"));
+            assertEquals(List.of("/v1/2024-03-15?base=EUR&symbols=USD,GBP,JPY"), server.requests());
+        }
+    }
+
+    @Test
+    void freeCurrencyApi_fetchesAllCurrenciesInOneHistoricalRequest() throws Exception {
+        try (FxStandInServer server = new FxStandInServer(ex ->
+                "{\"data\":{\"2024-03-15\":{\"USD\":1.0892,\"GBP\":0.8545,\"JPY\":162.12}}}")) {
+            FreeCurrencyApiProvider provider = new FreeCurrencyApiProvider(HTTP, MAPPER);
+            provider.baseUrl = server.baseUrl() + "/v1";
+            provider.apiKey = "test";
+
+            Map<String, BigDecimal> rates = provider.rates("EUR", TARGETS, DAY);
+
+            assertEquals(3, rates.size());
+            assertEquals(new BigDecimal("0.8545"), rates.get("GBP"));
+            assertEquals(1, server.requests().size());
+            assertTrue(server.requests().get(0).contains("currencies=USD,GBP,JPY"));
+        }
+    }
+
+    @Test
+    void singleRate_delegatesToBatchAndFailsWhenSymbolMissing() throws Exception {
+        try (FxStandInServer server = new FxStandInServer(ex -> "{\"rates\":{}}")) {
+            FrankfurterProvider provider = new FrankfurterProvider(HTTP, MAPPER);
+            provider.baseUrl = server.baseUrl() + "/v1";
+
+            assertThrows(IllegalStateException.class, () -> provider.rate("EUR", "USD", DAY));
+        }
+    }
+
+    @Test
+    void frankfurter_timeSeries_loadsWholeRangeInOneRequest() throws Exception {
+        try (FxStandInServer server = new FxStandInServer(ex ->
+                "{\"base\":\"EUR\",\"rates\":{\"2024-03-15\":{\"USD\":1.0892},\"2024-03-18\":{\"USD\":1.0872}}}")) {
+            FrankfurterProvider provider = new FrankfurterProvider(HTTP, MAPPER);
+            provider.baseUrl = server.baseUrl() + "/v1";
+
+            Map<LocalDate, Map<String, BigDecimal>> series =
+                    provider.timeSeriesAsync("EUR", List.of("USD"), DAY, DAY.plusDays(3)).join();
+
+            assertEquals(List.of(DAY, DAY.plusDays(3)), List.copyOf(series.keySet()));
+            assertEquals(new BigDecimal("1.0872"), series.get(DAY.plusDays(3)).get("USD"));
+            assertEquals(List.of("/v1/2024-03-15..2024-03-18?base=EUR&symbols=USD"), server.requests());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.eet.backend.services.fx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsOnSameKey_shareOneLoad() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        int callers = 8;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(pool.submit(() -> flight.execute("EUR-USD-2024-01-01", () -> {
+                    loads.incrementAndGet();
+                    await(release);
+                    return 42;
+                })));
+            }
+            // Espera a que todos los hilos estén colgados de la carga en curso
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (flight.stats().coalescedWaiters() < callers - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<Integer> r : results) assertEquals(42, r.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+        SingleFlight.Stats s = flight.stats();
+        assertEquals(1, s.executions());
+        assertEquals(callers - 1, s.coalescedWaiters());
+        assertEquals(0, s.inFlight());
+    }
+
+    @Test
+    void failure_isPropagatedToWaiters_andNextCallRetries() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+
+        assertThrows(IllegalStateException.class,
+                () -> flight.execute("k", () -> { throw new IllegalStateException("down"); }));
+        assertEquals(7, flight.execute("k", () -> 7));
+        assertEquals(1, flight.stats().failures());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.eet.backend.services.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CategoryIndexTest {
+
+    private final UUID food = UUID.randomUUID();
+    private final UUID rent = UUID.randomUUID();
+    private final UUID otherFood = UUID.randomUUID();
+
+    @Test
+    void assignsDenseIndices_andBuildsLabelsOnDemand() {
+        CategoryIndex index = new CategoryIndex();
+        assertEquals(0, index.indexOf(food, "Food", "🍕"));
+        assertEquals(1, index.indexOf(rent, "Rent", null));
+        assertEquals(0, index.indexOf(food, "Food", "🍕"));
+        assertEquals(2, index.indexOf(null, null, null));
+        assertEquals(2, index.indexOf(null, null, null));
+
+        assertEquals(3, index.size());
+        assertEquals("🍕 Food", index.label(0));
+        assertEquals("Rent", index.label(1));
+        assertEquals(CategoryIndex.UNCATEGORIZED, index.name(2));
+    }
+
+    @Test
+    void toMap_skipsUnusedSlots_andMergesSameLabel() {
+        CategoryIndex index = new CategoryIndex();
+        index.indexOf(food, "Food", null);
+        index.indexOf(rent, "Rent", null);
+        index.indexOf(otherFood, "Food", null); // categoría propia con el mismo nombre que la de serie
+
+        Map<String, BigDecimal> map = index.toMap(new long[]{125_000, 0, 5_000}, new boolean[]{true, false, true}, index::name);
+
+        assertEquals(Map.of("Food", new BigDecimal("13.0000")), map);
+    }
+
+    @Test
+    void lookupOfKnownCategories_doesNotAllocate() {
+        CategoryIndex index = new CategoryIndex();
+        UUID[] ids = new UUID[50];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+            index.indexOf(ids[i], "C" + i, null);
+        }
+        long[] sums = new long[index.size()];
+        for (int warm = 0; warm < 20_000; warm++) sums[index.indexOf(ids[warm % 50], null, null)] += warm;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 1_000_000; i++) {
+            int c = index.indexOf(ids[i % 50], null, null);
+            sums[c] = Math.addExact(sums[c], i);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+        assertTrue(allocated < 64 * 1024, "1M filas acumuladas deberían asignar ~0 bytes, fueron " + allocated);
+    }
+}
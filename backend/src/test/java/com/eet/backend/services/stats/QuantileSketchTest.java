@@ -0,0 +1,104 @@
+package com.eet.backend.services.stats;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuantileSketchTest {
+
+    private static final double[] QS = {0.10, 0.25, 0.50, 0.75, 0.90, 0.99};
+
+    // Importes con cola larga, como el gasto real: muchos pequeños y algún pico
+    private static double[] skewedAmounts(int n, long seed) {
+        Random rnd = new Random(seed);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) values[i] = Math.exp(3 + rnd.nextGaussian());
+        return values;
+    }
+
+    private static double exact(double[] sorted, double q) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(q * sorted.length))];
+    }
+
+    // Error en rango de cuantil: qué fracción de los datos queda entre el valor estimado y el exacto
+    private static double rankError(double[] sorted, double q, double estimate) {
+        int rank = Arrays.binarySearch(sorted, estimate);
+        if (rank < 0) rank = -rank - 1;
+        return Math.abs((double) rank / sorted.length - q);
+    }
+
+    @Test
+    void quantiles_areAccurateOnSkewedData() {
+        double[] values = skewedAmounts(100_000, 1);
+        QuantileSketch sketch = new QuantileSketch();
+        for (double v : values) sketch.add(v);
+        Arrays.sort(values);
+
+        assertEquals(100_000, sketch.count());
+        for (double q : QS) {
+            assertTrue(rankError(values, q, sketch.quantile(q)) < 0.005,
+                    "q=" + q + " estimado " + sketch.quantile(q) + " exacto " + exact(values, q));
+        }
+        assertEquals(values[0], sketch.quantile(0), 1e-9);
+        assertEquals(values[values.length - 1], sketch.quantile(1), 1e-9);
+    }
+
+    @Test
+    void monthlyMerges_matchOneShot() {
+        double[] all = new double[0];
+        QuantileSketch stored = QuantileSketch.fromBytes(null);
+        for (int month = 0; month < 12; month++) {
+            double[] values = skewedAmounts(5_000, 100 + month);
+            QuantileSketch monthSketch = new QuantileSketch();
+            for (double v : values) monthSketch.add(v);
+            // Como el cierre de mes: leer de BD, fusionar y volver a guardar
+            stored = QuantileSketch.fromBytes(stored.toBytes());
+            stored.merge(monthSketch);
+
+            int offset = all.length;
+            all = Arrays.copyOf(all, offset + values.length);
+            System.arraycopy(values, 0, all, offset, values.length);
+        }
+        Arrays.sort(all);
+
+        assertEquals(60_000, stored.count());
+        for (double q : QS) {
+            assertTrue(rankError(all, q, stored.quantile(q)) < 0.01, "q=" + q);
+        }
+    }
+
+    @Test
+    void serializedState_staysSmall() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (double v : skewedAmounts(1_000_000, 7)) sketch.add(v);
+        byte[] bytes = sketch.toBytes();
+
+        assertTrue(bytes.length < 8 * 1024, "bytes: " + bytes.length);
+        QuantileSketch copy = QuantileSketch.fromBytes(bytes);
+        assertEquals(sketch.count(), copy.count());
+        assertEquals(sketch.quantile(0.9), copy.quantile(0.9), 1e-9);
+    }
+
+    @Test
+    void median_ignoresOutlier_unlikeMean() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 99; i++) sketch.add(new BigDecimal("20.00"));
+        sketch.add(new BigDecimal("50000.00"));
+
+        assertEquals(new BigDecimal("20.00"), sketch.quantile(0.5, 2));
+        assertNull(new QuantileSketch().quantile(0.5, 2));
+        assertTrue(Double.isNaN(new QuantileSketch().quantile(0.5)));
+    }
+
+    @Test
+    void corruptBytes_areRejected() {
+        byte[] bytes = new QuantileSketch().toBytes();
+        bytes[0] = 0;
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(bytes));
+        assertThrows(IllegalArgumentException.class, () -> QuantileSketch.fromBytes(new byte[]{0x54, 0x44}));
+    }
+}
@@ -0,0 +1,93 @@
+package com.eet.backend.services.stats;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StatsCacheTest {
+
+    private final UUID alice = UUID.randomUUID();
+    private final UUID bob = UUID.randomUUID();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private List<Integer> load() {
+        loads.incrementAndGet();
+        return List.of(1, 2, 3);
+    }
+
+    @Test
+    void servesRepeatedRequestsFromCache_andKeysByPreferredCurrency() {
+        StatsCache cache = new StatsCache(new ObjectMapper(), 1 << 20);
+
+        cache.get(alice, "EUR", "annual-summary", "2024", this::load);
+        cache.get(alice, "EUR", "annual-summary", "2024", this::load);
+        cache.get(alice, "EUR", "annual-summary", "2023", this::load);
+        assertEquals(2, loads.get());
+
+        cache.get(alice, "USD", "annual-summary", "2024", this::load);
+        assertEquals(3, loads.get());
+        assertEquals(1, cache.stats().hits());
+    }
+
+    @Test
+    void withoutPreferredCurrency_isNotCached() {
+        StatsCache cache = new StatsCache(new ObjectMapper(), 1 << 20);
+
+        cache.get(alice, null, "annual-summary", "2024", this::load);
+        cache.get(alice, null, "annual-summary", "2024", this::load);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.stats().entries());
+    }
+
+    @Test
+    void eventInvalidatesOnlyThatUser() {
+        StatsCache cache = new StatsCache(new ObjectMapper(), 1 << 20);
+        cache.get(alice, "EUR", "monthly-summary", "3/2024", this::load);
+        cache.get(bob, "EUR", "monthly-summary", "3/2024", this::load);
+
+        cache.onUserStatsChanged(new UserStatsChangedEvent(alice, "transaction-saved"));
+
+        cache.get(alice, "EUR", "monthly-summary", "3/2024", this::load);
+        cache.get(bob, "EUR", "monthly-summary", "3/2024", this::load);
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.stats().entries());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenOverWeight() {
+        // "[1,2,3]" pesa 7 bytes: caben dos entradas
+        StatsCache cache = new StatsCache(new ObjectMapper(), 15);
+        cache.get(alice, "EUR", "a", "", this::load);
+        cache.get(alice, "EUR", "b", "", this::load);
+        cache.get(alice, "EUR", "a", "", this::load); // "b" pasa a ser la menos usada
+        cache.get(alice, "EUR", "c", "", this::load);
+
+        assertEquals(2, cache.stats().entries());
+        assertEquals(14, cache.stats().weightBytes());
+        assertEquals(1, cache.stats().evictions());
+
+        cache.get(alice, "EUR", "a", "", this::load);
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void resultComputedAcrossAnInvalidation_isNotStored() {
+        StatsCache cache = new StatsCache(new ObjectMapper(), 1 << 20);
+        StatsCache.Key key = new StatsCache.Key(alice, "monthly-summary", "", "EUR", LocalDate.now());
+
+        cache.get(key, () -> {
+            cache.invalidate(alice); // una escritura confirma mientras se calcula
+            return load();
+        });
+        cache.get(key, this::load);
+
+        assertEquals(2, loads.get());
+    }
+}
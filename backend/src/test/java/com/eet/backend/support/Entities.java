@@ -2,7 +2,6 @@ package com.eet.backend.support;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.UUID;
 
 // Ajusta estos imports al paquete real de tus entidades/enums:
 import com.eet.backend.model.User;
@@ -16,6 +15,7 @@ import com.eet.backend.model.RecurrencePattern;
 /**
  * Factory helpers para crear entidades de forma concisa en tests.
  * No usa Lombok; setters explícitos para máxima compatibilidad.
+ * Los ids los genera JPA: las entidades se pueden pasar tal cual a persist()/save().
  */
 public final class Entities {
 
@@ -24,11 +24,19 @@ public final class Entities {
     // ======= User =======
     public static User user(String email) {
         User u = new User();
-        // Si tu entidad genera el UUID en @PrePersist, puedes omitirlo.
-        setIfPresent(() -> u.setUserId(UUID.randomUUID()));
         u.setEmail(email);
         u.setPasswordHash("dummy-hash");
         u.setPreferredCurrency("EUR"); // si tu modelo lo tiene
+        u.setLanguage("es");
+        u.setConsentToDataAnalysis(false);
+        return u;
+    }
+
+    // Usuario que entra (o no) en la comparativa por país
+    public static User user(String email, String country, boolean consentToDataAnalysis) {
+        User u = user(email);
+        u.setCountry(country);
+        u.setConsentToDataAnalysis(consentToDataAnalysis);
         return u;
     }
 
@@ -39,7 +47,6 @@ public final class Entities {
 
     public static Category category(User owner, String name, String emoji) {
         Category c = new Category();
-        setIfPresent(() -> c.setCategoryId(UUID.randomUUID()));
         c.setUser(owner);
         c.setName(name);
         if (hasSetter(() -> c.setEmoji(null)) && emoji != null) {
@@ -49,10 +56,16 @@ public final class Entities {
         return c;
     }
 
+    // Categoría de serie: sin usuario, la que cuenta en la comparativa por país
+    public static Category defaultCategory(String name) {
+        Category c = category(null, name);
+        c.setDefault(true);
+        return c;
+    }
+
     // ======= Trip =======
     public static Trip trip(User owner, String name) {
         Trip t = new Trip();
-        setIfPresent(() -> t.setTripId(UUID.randomUUID()));
         t.setUser(owner);
         t.setName(name);
         t.setDestination("Testland");
@@ -82,7 +95,6 @@ public final class Entities {
             Trip trip
     ) {
         Transaction tx = new Transaction();
-        setIfPresent(() -> tx.setTransactionId(UUID.randomUUID()));
         tx.setUser(owner);
         tx.setAmount(amount);
         tx.setCurrency(currency);
@@ -91,14 +103,6 @@ public final class Entities {
         tx.setDate(date);
         if (category != null) tx.setCategory(category);
         if (trip != null) tx.setTrip(trip);
-
-        // Campos opcionales que tu DTO/Entidad pueda tener
-        if (hasSetter(() -> tx.setAmount(null))) {
-            tx.setAmount(null);
-        }
-        if (hasSetter(() -> tx.setCurrency(null))) {
-            tx.setCurrency(null);
-        }
         return tx;
     }
 
@@ -110,7 +114,6 @@ public final class Entities {
             LocalDate startDate
     ) {
         RecurringTransaction r = new RecurringTransaction();
-        setIfPresent(() -> r.setTransactionId(UUID.randomUUID()));
         r.setUser(owner);
         r.setAmount(amount);
         r.setCurrency("EUR");
@@ -128,10 +131,6 @@ public final class Entities {
     }
 
     // ======= Helpers para evitar NoSuchMethodError si algún setter no existe =======
-    private static void setIfPresent(Runnable r) {
-        try { r.run(); } catch (Throwable ignored) {}
-    }
-
     /**
      * Intenta ejecutar un setter "vacío" en tiempo de test, solo para comprobar si existe.
      * Si no existe, captura la excepción y devuelve false.
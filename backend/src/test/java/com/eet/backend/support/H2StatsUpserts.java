@@ -0,0 +1,78 @@
+package com.eet.backend.support;
+
+import com.eet.backend.repositories.BalanceLedgerRepositoryCustom;
+import com.eet.backend.repositories.MonthlyRollupRepositoryCustom;
+import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.UUID;
+
+/**
+ * Upserts de rollups y ledger para H2: no admite INSERT ... ON CONFLICT DO UPDATE, así que se
+ * registran con el nombre del fragmento de Spring Data (que entonces no crea el de producción)
+ * y usan el MERGE equivalente. El MERGE de H2 no es atómico frente a otra inserción concurrente:
+ * se repite si choca con la clave única (en H2 el error solo anula la sentencia).
+ */
+@TestConfiguration
+public class H2StatsUpserts {
+
+    private static final String UNIQUE_VIOLATION = "23505";
+    private static final int ATTEMPTS = 5;
+
+    private static final String ROLLUP_MERGE = """
+            MERGE INTO monthly_rollups r
+            USING (VALUES (CAST(? AS UUID), CAST(? AS UUID), CAST(? AS INTEGER), CAST(? AS VARCHAR),
+                           CAST(? AS UUID), CAST(? AS VARCHAR), CAST(? AS NUMERIC(19, 4)), CAST(? AS BIGINT)))
+                  AS s (rollup_id, user_id, period, type, category_id, currency, total, tx_count)
+            ON r.user_id = s.user_id AND r.period = s.period AND r.type = s.type
+               AND r.category_id = s.category_id AND r.currency = s.currency
+            WHEN MATCHED THEN UPDATE SET total = r.total + s.total, tx_count = r.tx_count + s.tx_count
+            WHEN NOT MATCHED THEN INSERT (rollup_id, user_id, period, type, category_id, currency, total, tx_count)
+                 VALUES (s.rollup_id, s.user_id, s.period, s.type, s.category_id, s.currency, s.total, s.tx_count)
+            """;
+
+    private static final String LEDGER_MERGE = """
+            MERGE INTO balance_ledger l
+            USING (VALUES (CAST(? AS UUID), CAST(? AS UUID), CAST(? AS VARCHAR),
+                           CAST(? AS NUMERIC(19, 4)), CAST(? AS NUMERIC(19, 4)), CAST(? AS BIGINT)))
+                  AS s (ledger_id, user_id, currency, income, expense, tx_count)
+            ON l.user_id = s.user_id AND l.currency = s.currency
+            WHEN MATCHED THEN UPDATE SET income = l.income + s.income, expense = l.expense + s.expense,
+                                         tx_count = l.tx_count + s.tx_count
+            WHEN NOT MATCHED THEN INSERT (ledger_id, user_id, currency, income, expense, tx_count)
+                 VALUES (s.ledger_id, s.user_id, s.currency, s.income, s.expense, s.tx_count)
+            """;
+
+    @Bean
+    MonthlyRollupRepositoryCustom monthlyRollupRepositoryImpl(EntityManager entityManager) {
+        return (userId, period, type, categoryId, currency, amount, count) -> merge(entityManager, ROLLUP_MERGE,
+                UUID.randomUUID(), userId, period, type.name(), categoryId, currency, amount, count);
+    }
+
+    @Bean
+    BalanceLedgerRepositoryCustom balanceLedgerRepositoryImpl(EntityManager entityManager) {
+        return (userId, currency, income, expense, count) -> merge(entityManager, LEDGER_MERGE,
+                UUID.randomUUID(), userId, currency, income, expense, count);
+    }
+
+    private static void merge(EntityManager entityManager, String sql, Object... params) {
+        entityManager.flush();
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            for (int attempt = 1; ; attempt++) {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < params.length; i++) {
+                        ps.setObject(i + 1, params[i]);
+                    }
+                    ps.executeUpdate();
+                    return;
+                } catch (SQLException e) {
+                    if (attempt >= ATTEMPTS || !UNIQUE_VIOLATION.equals(e.getSQLState())) throw e;
+                }
+            }
+        });
+    }
+}
@@ -2,14 +2,7 @@ import React, { useEffect, useMemo, useState } from "react";
 import { useAuth } from "../context/AuthContext";
 import { parseJwt } from "../utils/tokenUtils";
 import { useTranslation } from "react-i18next";
-import {
-  getMonthlySummary,
-  getMonthlyEvolution,
-  getIncomeVsExpense,
-  getMonthlyComparison,
-  getTripSpending,
-  getAnnualSummary,
-} from "../services/statsService";
+import { getStatsBundle } from "../services/statsService";
 
 import StatCard from "../components/stats/StatCard";
 import BudgetRing from "../components/stats/BudgetRing";
@@ -58,21 +51,13 @@ const StatsPage = () => {
         if (!userId) return;
         setLoading(true);
 
-        const [
-          summaryData,
-          evolutionData,
-          incomeExpenseData,
-          monthlyCompData,
-          tripSpendingData,
-          annualSummaryData,
-        ] = await Promise.all([
-          getMonthlySummary(userId, selectedMonth, selectedYear),
-          getMonthlyEvolution(userId, 6),
-          getIncomeVsExpense(userId, selectedMonth, selectedYear),
-          getMonthlyComparison(userId),
-          getTripSpending(userId),
-          getAnnualSummary(userId, selectedYear),
-        ]);
+        const bundle = await getStatsBundle(userId, selectedMonth, selectedYear, 6, 6);
+        const summaryData = bundle.monthlySummary;
+        const evolutionData = bundle.monthlyEvolution;
+        const incomeExpenseData = bundle.incomeVsExpense;
+        const monthlyCompData = bundle.monthlyComparison;
+        const tripSpendingData = bundle.tripSpending;
+        const annualSummaryData = bundle.annualSummary;
 
         setSummary(summaryData);
         setEvolution(evolutionData);
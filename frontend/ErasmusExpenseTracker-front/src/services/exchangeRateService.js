@@ -25,6 +25,28 @@ export const convertCurrency = async ({ amount, fromCurrency, toCurrency }) => {
   return res.json();
 };
 
+/**
+ * Convierte varias cantidades en una sola llamada.
+ * items: [{ amount, fromCurrency, toCurrency, date? }] -> resultados en el mismo orden.
+ */
+export const convertCurrencies = async (items) => {
+  const res = await fetch(`${API_BASE_URL}/api/exchange-rates/convert/batch`, {
+    method: "POST",
+    headers: {
+      ...getAuthHeaders(),
+      "Content-Type": "application/json",
+    },
+    body: JSON.stringify(items),
+  });
+
+  if (!res.ok) {
+    const text = await res.text();
+    throw new Error(`Batch currency conversion failed: ${res.status} - ${text}`);
+  }
+
+  return res.json();
+};
+
 /**
  * Obtiene la lista de monedas soportadas por la aplicación.
  */
@@ -85,3 +85,20 @@ export const getAnnualSummary = async (userId, year) => {
   if (!res.ok) throw new Error("Failed to fetch annual summary");
   return await res.json();
 };
+
+// 7. Bundle: las seis vistas anteriores en una sola petición
+export const getStatsBundle = async (userId, month, year, evolutionMonths = 6, comparisonMonths = 6) => {
+  const url = new URL(`${API_BASE_URL}/api/stats/bundle`);
+  url.searchParams.set("userId", userId);
+  if (month) url.searchParams.set("month", month);
+  if (year) url.searchParams.set("year", year);
+  url.searchParams.set("evolutionMonths", evolutionMonths);
+  url.searchParams.set("comparisonMonths", comparisonMonths);
+
+  const res = await fetch(url.toString(), {
+    headers: getAuthHeaders(),
+  });
+
+  if (!res.ok) throw new Error("Failed to fetch stats bundle");
+  return await res.json();
+};